@@ -0,0 +1,88 @@
+package com.testtask.benchmark;
+
+import com.testtask.cache.ExchangeRateCache;
+import com.testtask.entity.ExchangeRate;
+import com.testtask.repository.ExchangeRateRepository;
+import com.testtask.service.ExchangeRateService;
+import com.testtask.service.ProcessingMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выбор курса в ExchangeRateService.getRate без БД:
+ * cacheHit — курс уже в кэше; exactDate и previousDate — кэш не хранит записей (TTL 0),
+ * и курс выбирается по репозиторию: точная дата или ближайшая более ранняя (выходной день).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class ExchangeRateSelectionBenchmark {
+
+    private static final LocalDate FRIDAY = LocalDate.of(2025, 12, 26);
+    private static final LocalDate SUNDAY = LocalDate.of(2025, 12, 28);
+
+    private ExchangeRateService cached;
+    private ExchangeRateService uncached;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ProcessingMetrics metrics = new ProcessingMetrics(meterRegistry);
+        ExchangeRate friday = ExchangeRate.builder()
+                .baseCurrency("USD")
+                .targetCurrency("KZT")
+                .rateDate(FRIDAY)
+                .rate(new BigDecimal("512.34000000"))
+                .build();
+
+        // Как в БД: по точной дате находится только рабочий день, по "не позже" — последний рабочий.
+        ExchangeRateRepository repository = RepositoryStubs.stub(ExchangeRateRepository.class, Map.of(
+                "findByBaseCurrencyAndTargetCurrencyAndRateDate",
+                args -> isWeekend((LocalDate) args[2]) ? Optional.empty() : Optional.of(friday),
+                "findFirstByBaseCurrencyAndTargetCurrencyAndRateDateLessThanEqualOrderByRateDateDesc",
+                args -> Optional.of(friday)));
+
+        ExchangeRateCache warmCache = new ExchangeRateCache(10_000, Duration.ofHours(1), Duration.ofMinutes(5), meterRegistry);
+        warmCache.put("KZT", SUNDAY, friday.getRate());
+        cached = new ExchangeRateService(null, repository, warmCache, metrics, Schedulers.immediate(), null);
+
+        ExchangeRateCache noCache = new ExchangeRateCache(10_000, Duration.ZERO, Duration.ZERO, meterRegistry);
+        uncached = new ExchangeRateService(null, repository, noCache, metrics, Schedulers.immediate(), null);
+    }
+
+    @Benchmark
+    public Optional<BigDecimal> cacheHit() {
+        return cached.getRate("KZT", SUNDAY);
+    }
+
+    @Benchmark
+    public Optional<BigDecimal> exactDate() {
+        return uncached.getRate("KZT", FRIDAY);
+    }
+
+    @Benchmark
+    public Optional<BigDecimal> previousDate() {
+        return uncached.getRate("KZT", SUNDAY);
+    }
+
+    private static boolean isWeekend(LocalDate date) {
+        return date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY;
+    }
+}
@@ -0,0 +1,106 @@
+package com.testtask.benchmark;
+
+import com.testtask.client.FxDailyParser;
+import com.testtask.client.FxDailySeries;
+import com.testtask.support.StubFxServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор ответа FX_DAILY и выбор курса на дату: прежний путь через Map.class против потокового парсера.
+ * <p>
+ * По умолчанию полезная нагрузка синтетическая: StubFxServer генерирует 20 лет дневных курсов USD/KZT
+ * в формате Alpha Vantage (outputsize=full) и последние 100 дней (compact). Записанного ответа провайдера
+ * в репозитории нет: для записи нужны ключ API и доступ к сети. Структура та же, что у настоящего ответа
+ * (Meta Data, дни по убыванию, четыре цены на день), но значения сгенерированы, а open/high/low равны close.
+ * Записанный ответ подставляется параметром {@code -p payloadFile=<путь>}, тогда outputSize не влияет на нагрузку.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class FxDailyParseBenchmark {
+
+    private static final JsonMapper MAPPER = JsonMapper.builder().build();
+
+    @Param({"compact", "full"})
+    public String outputSize;
+
+    @Param({""})
+    public String payloadFile;
+
+    private byte[] payload;
+    private LocalDate weekendDate;
+
+    @Setup
+    public void setUp() throws IOException {
+        weekendDate = LocalDate.of(2025, 12, 28);
+        if (!payloadFile.isEmpty()) {
+            payload = Files.readAllBytes(Path.of(payloadFile));
+            return;
+        }
+        NavigableMap<LocalDate, BigDecimal> closes = StubFxServer.generateSeries(
+                "KZT", LocalDate.of(2006, 1, 2), LocalDate.of(2025, 12, 31), new BigDecimal("120.5"));
+        payload = StubFxServer.dailyPayload("KZT", closes, "full".equals(outputSize))
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public BigDecimal mapBased() {
+        return legacyClosestRate(payload, weekendDate);
+    }
+
+    @Benchmark
+    public BigDecimal streaming() {
+        FxDailySeries series = FxDailyParser.parse(new ByteArrayInputStream(payload), "KZT");
+        return series.floorRate(weekendDate);
+    }
+
+    /**
+     * Копия выбора курса из ExchangeRateService до перехода на потоковый парсер.
+     */
+    @SuppressWarnings("unchecked")
+    private static BigDecimal legacyClosestRate(byte[] payload, LocalDate date) {
+        Map<String, Object> response = MAPPER.readValue(payload, Map.class);
+        Map<String, Map<String, String>> timeSeries =
+                (Map<String, Map<String, String>>) response.get("Time Series FX (Daily)");
+
+        Map<String, String> dayData = timeSeries.get(date.toString());
+        if (dayData != null && dayData.get("4. close") != null) {
+            return new BigDecimal(dayData.get("4. close"));
+        }
+
+        Optional<Map.Entry<String, Map<String, String>>> closest = timeSeries.entrySet().stream()
+                .filter(e -> {
+                    try {
+                        return !LocalDate.parse(e.getKey()).isAfter(date);
+                    } catch (Exception ex) {
+                        return false;
+                    }
+                })
+                .max(Comparator.comparing(e -> LocalDate.parse(e.getKey())));
+
+        return closest.map(e -> new BigDecimal(e.getValue().get("4. close"))).orElse(null);
+    }
+}
@@ -0,0 +1,98 @@
+package com.testtask.benchmark;
+
+import com.testtask.dto.ExceededTransactionResponseDto;
+import com.testtask.dto.TransactionRequestDto;
+import com.testtask.entity.Transaction;
+import com.testtask.mapper.AppMapper;
+import com.testtask.mapper.AppMapperImpl;
+import com.testtask.model.ExpenseCategory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Преобразования на входе и выходе API: AppMapper.toEntity для POST /transactions
+ * и сериализация Jackson ответа с Transaction и списка превысивших лимит (100 строк).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class MappingSerializationBenchmark {
+
+    private static final JsonMapper MAPPER = JsonMapper.builder().build();
+    private static final OffsetDateTime DATETIME = OffsetDateTime.of(2025, 11, 15, 10, 0, 0, 0, ZoneOffset.ofHours(6));
+
+    private final AppMapper appMapper = new AppMapperImpl();
+
+    private TransactionRequestDto request;
+    private Transaction transaction;
+    private ExceededTransactionResponseDto exceeded;
+    private List<ExceededTransactionResponseDto> exceededList;
+
+    @Setup
+    public void setUp() {
+        request = TransactionRequestDto.builder()
+                .accountFrom("0000000123")
+                .accountTo("9999999999")
+                .currencyShortname("KZT")
+                .sum(new BigDecimal("150000.00"))
+                .expenseCategory(ExpenseCategory.PRODUCT)
+                .datetime(DATETIME)
+                .build();
+
+        transaction = appMapper.toEntity(request);
+        transaction.setId(42L);
+        transaction.setUsdAmount(new BigDecimal("319.05"));
+        transaction.setLimitExceeded(true);
+        transaction.setLimitSum(new BigDecimal("1000.00"));
+        transaction.setLimitDatetime(DATETIME.withDayOfMonth(1));
+        transaction.setLimitCurrency("USD");
+
+        exceededList = new ArrayList<>();
+        for (long id = 100; id > 0; id--) {
+            exceededList.add(exceeded(id, DATETIME.toInstant().minusSeconds(3600 * (100 - id))));
+        }
+        exceeded = exceededList.getFirst();
+    }
+
+    @Benchmark
+    public Transaction toEntity() {
+        return appMapper.toEntity(request);
+    }
+
+    @Benchmark
+    public byte[] serializeTransaction() {
+        return MAPPER.writeValueAsBytes(transaction);
+    }
+
+    @Benchmark
+    public byte[] serializeExceeded() {
+        return MAPPER.writeValueAsBytes(exceeded);
+    }
+
+    @Benchmark
+    public byte[] serializeExceededList() {
+        return MAPPER.writeValueAsBytes(exceededList);
+    }
+
+    private static ExceededTransactionResponseDto exceeded(long id, Instant datetime) {
+        return new ExceededTransactionResponseDto(id, "0000000123", "9999999999", "KZT",
+                new BigDecimal("150000.00"), "PRODUCT", datetime, new BigDecimal("319.05"),
+                new BigDecimal("1000.00"), Instant.parse("2025-11-01T00:00:00Z"), "USD");
+    }
+}
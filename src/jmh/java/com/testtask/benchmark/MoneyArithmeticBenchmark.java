@@ -0,0 +1,88 @@
+package com.testtask.benchmark;
+
+import com.testtask.model.FxRate;
+import com.testtask.model.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Конвертация в USD и сравнение с лимитом, как в TransactionService: прежний вариант на BigDecimal
+ * и фиксированная точка Money/FxRate. fixedPoint включает перевод BigDecimal из сущностей в long и обратно,
+ * fixedPointCore — только арифметику на уже переведённых значениях.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class MoneyArithmeticBenchmark {
+
+    private static final int SIZE = 1024;
+
+    private final BigDecimal[] sums = new BigDecimal[SIZE];
+    private final BigDecimal[] rates = new BigDecimal[SIZE];
+    private final BigDecimal[] spent = new BigDecimal[SIZE];
+    private final BigDecimal[] limits = new BigDecimal[SIZE];
+
+    private final Money[] sumMoney = new Money[SIZE];
+    private final FxRate[] fxRates = new FxRate[SIZE];
+    private final Money[] spentMoney = new Money[SIZE];
+    private final Money[] limitMoney = new Money[SIZE];
+
+    private int index;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < SIZE; i++) {
+            // суммы до 10 млн в валюте, курсы 0.5..600 с 8 знаками, как в exchange_rates.rate
+            sums[i] = BigDecimal.valueOf(random.nextLong(1, 1_000_000_000L), Money.SCALE);
+            rates[i] = BigDecimal.valueOf(random.nextLong(50_000_000L, 60_000_000_000L), FxRate.SCALE);
+            spent[i] = BigDecimal.valueOf(random.nextLong(0, 200_000L), Money.SCALE);
+            limits[i] = BigDecimal.valueOf(random.nextLong(100_000L, 300_000L), Money.SCALE);
+
+            sumMoney[i] = Money.of(sums[i]);
+            fxRates[i] = FxRate.of(rates[i]);
+            spentMoney[i] = Money.of(spent[i]);
+            limitMoney[i] = Money.of(limits[i]);
+        }
+    }
+
+    @Benchmark
+    public boolean bigDecimal(Blackhole blackhole) {
+        int i = next();
+        BigDecimal usdAmount = sums[i].divide(rates[i], 2, RoundingMode.HALF_UP);
+        blackhole.consume(usdAmount);
+        return spent[i].add(usdAmount).compareTo(limits[i]) > 0;
+    }
+
+    @Benchmark
+    public boolean fixedPoint(Blackhole blackhole) {
+        int i = next();
+        Money usdAmount = Money.convert(sums[i], rates[i]);
+        blackhole.consume(usdAmount.toBigDecimal());
+        return Money.of(spent[i]).plus(usdAmount).isGreaterThan(Money.of(limits[i]));
+    }
+
+    @Benchmark
+    public boolean fixedPointCore() {
+        int i = next();
+        return spentMoney[i].plus(sumMoney[i].divide(fxRates[i])).isGreaterThan(limitMoney[i]);
+    }
+
+    private int next() {
+        index = (index + 1) & (SIZE - 1);
+        return index;
+    }
+}
@@ -0,0 +1,161 @@
+package com.testtask.benchmark;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Вставка транзакций в PostgreSQL так, как это делает Hibernate:
+ * identity - по одному INSERT ... RETURNING id на строку (прежний GenerationType.IDENTITY);
+ * sequenceBatched - id из последовательности блоками по 50 и JDBC-пачки по 50 строк
+ * с reWriteBatchedInserts (SEQUENCE + pooled optimizer + hibernate.jdbc.batch_size).
+ * Счётчик rows в отчёте JMH - строк в секунду.
+ * Нужен Docker: БД поднимается через Testcontainers и мигрируется Flyway.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class TransactionInsertBenchmark {
+
+    private static final int ALLOCATION_SIZE = 50;
+    private static final int JDBC_BATCH_SIZE = 50;
+
+    private static final String INSERT_IDENTITY = """
+            INSERT INTO transactions (account_from, account_to, currency_shortname, sum, expense_category,
+                                      datetime, usd_amount, limit_exceeded, limit_sum, limit_datetime, limit_currency)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String INSERT_WITH_ID = """
+            INSERT INTO transactions (id, account_from, account_to, currency_shortname, sum, expense_category,
+                                      datetime, usd_amount, limit_exceeded, limit_sum, limit_datetime, limit_currency)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    @Param({"100", "1000", "10000"})
+    public int rowsPerBatch;
+
+    private PostgreSQLContainer<?> postgres;
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void startDatabase() throws SQLException {
+        postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+        postgres.start();
+
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+
+        connection = DriverManager.getConnection(
+                postgres.getJdbcUrl() + "&reWriteBatchedInserts=true",
+                postgres.getUsername(), postgres.getPassword());
+        connection.setAutoCommit(false);
+    }
+
+    @Setup(Level.Iteration)
+    public void truncate() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE transactions");
+        }
+        connection.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDatabase() throws SQLException {
+        connection.close();
+        postgres.stop();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rows {
+        public long rows;
+    }
+
+    @Benchmark
+    public void identity(Rows counter) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_IDENTITY, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < rowsPerBatch; i++) {
+                bind(insert, 1, i);
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    keys.next();
+                }
+            }
+        }
+        connection.commit();
+        counter.rows += rowsPerBatch;
+    }
+
+    @Benchmark
+    public void sequenceBatched(Rows counter) throws SQLException {
+        try (PreparedStatement nextId = connection.prepareStatement("SELECT nextval('transactions_id_seq')");
+             PreparedStatement insert = connection.prepareStatement(INSERT_WITH_ID)) {
+
+            long id = 0;
+            long blockEnd = -1;
+            for (int i = 0; i < rowsPerBatch; i++) {
+                if (id > blockEnd) {
+                    try (ResultSet rs = nextId.executeQuery()) {
+                        rs.next();
+                        blockEnd = rs.getLong(1);
+                    }
+                    id = blockEnd - ALLOCATION_SIZE + 1;
+                }
+                insert.setLong(1, id++);
+                bind(insert, 2, i);
+                insert.addBatch();
+                if ((i + 1) % JDBC_BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        counter.rows += rowsPerBatch;
+    }
+
+    private static void bind(PreparedStatement insert, int first, int i) throws SQLException {
+        insert.setString(first, String.format("%010d", i));
+        insert.setString(first + 1, "9999999999");
+        insert.setString(first + 2, "KZT");
+        insert.setBigDecimal(first + 3, new BigDecimal("350000.00"));
+        insert.setString(first + 4, i % 2 == 0 ? "PRODUCT" : "SERVICE");
+        insert.setObject(first + 5, OffsetDateTime.of(2026, 1, 1 + i % 28, 12, 0, 0, 0, ZoneOffset.UTC));
+        insert.setBigDecimal(first + 6, new BigDecimal("700.00"));
+        insert.setBoolean(first + 7, false);
+        insert.setBigDecimal(first + 8, new BigDecimal("1000.00"));
+        insert.setObject(first + 9, OffsetDateTime.of(2026, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC));
+        insert.setString(first + 10, "USD");
+    }
+}
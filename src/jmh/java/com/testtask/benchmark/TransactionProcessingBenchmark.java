@@ -0,0 +1,155 @@
+package com.testtask.benchmark;
+
+import com.testtask.cache.ExchangeRateCache;
+import com.testtask.cache.LimitTimeline;
+import com.testtask.cache.SpendAccumulator;
+import com.testtask.entity.Limit;
+import com.testtask.entity.Transaction;
+import com.testtask.model.ExpenseCategory;
+import com.testtask.repository.ExchangeRateRepository;
+import com.testtask.repository.LimitRepository;
+import com.testtask.repository.MonthlyCategorySpendRepository;
+import com.testtask.repository.MonthlyCategorySpendRepository.SpendTotals;
+import com.testtask.repository.TransactionRepository;
+import com.testtask.service.ExchangeRateService;
+import com.testtask.service.MonthlySpendService;
+import com.testtask.service.ProcessingMetrics;
+import com.testtask.service.TransactionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TransactionService.processAndSave без БД: курс из кэша, лимит из LimitTimeline, репозитории — заглушки.
+ * Измеряется собственный код обработки (конвертация, выбор лимита, сумма за месяц, учёт в агрегате).
+ * aggregate=memory — сумма за месяц из SpendAccumulator, database — счётчики в памяти не отвечают,
+ * и сумма берётся запросом (здесь — заглушкой), как после рестарта до прогрева.
+ * Размер аллокаций на операцию — с профилировщиком gc (-prof gc, включён в профиле benchmark).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class TransactionProcessingBenchmark {
+
+    private static final OffsetDateTime MONTH_START = OffsetDateTime.of(2025, 11, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    private static final OffsetDateTime DATETIME = MONTH_START.plusDays(14).plusHours(10);
+    private static final BigDecimal SPENT = new BigDecimal("640.25");
+
+    @Param({"memory", "database"})
+    public String aggregate;
+
+    private TransactionService transactionService;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ProcessingMetrics metrics = new ProcessingMetrics(meterRegistry);
+
+        ExchangeRateCache exchangeRateCache = new ExchangeRateCache(10_000, Duration.ofHours(1), Duration.ofMinutes(5), meterRegistry);
+        exchangeRateCache.put("KZT", DATETIME.toLocalDate(), new BigDecimal("470.15000000"));
+        ExchangeRateService exchangeRateService = new ExchangeRateService(null,
+                RepositoryStubs.stub(ExchangeRateRepository.class, Map.of()), exchangeRateCache, metrics, Schedulers.immediate(), null);
+
+        LimitTimeline limitTimeline = new LimitTimeline();
+        limitTimeline.load(List.of(
+                limit(1L, MONTH_START.minusMonths(2), "1000.00"),
+                limit(2L, MONTH_START.plusDays(3), "1500.00")));
+
+        Instant lastDatetime = DATETIME.minusHours(1).toInstant();
+        SpendAccumulator spendAccumulator = new SpendAccumulator(16, meterRegistry);
+        if ("memory".equals(aggregate)) {
+            spendAccumulator.apply(ExpenseCategory.PRODUCT, MONTH_START.toInstant(), SPENT, 10, lastDatetime);
+        }
+
+        // Агрегат всегда возвращает одни и те же итоги, чтобы состояние не менялось от операции к операции.
+        SpendTotals totals = new SpendTotalsStub(ExpenseCategory.PRODUCT.name(), micros(MONTH_START.toInstant()),
+                SPENT, 10L, micros(lastDatetime));
+        MonthlyCategorySpendRepository monthlySpendRepository = RepositoryStubs.stub(MonthlyCategorySpendRepository.class,
+                Map.of("addSpend", args -> "memory".equals(aggregate) ? List.of(totals) : List.of()));
+
+        TransactionRepository transactionRepository = RepositoryStubs.stub(TransactionRepository.class, Map.of(
+                "save", args -> args[0],
+                "sumUsdAfterLimit", args -> SPENT));
+
+        MonthlySpendService monthlySpendService = new MonthlySpendService(
+                monthlySpendRepository, transactionRepository, spendAccumulator);
+
+        transactionService = new TransactionService(transactionRepository,
+                RepositoryStubs.stub(LimitRepository.class, Map.of()), exchangeRateService, monthlySpendService,
+                limitTimeline, null, metrics, Schedulers.immediate(), null);
+    }
+
+    @Benchmark
+    public Transaction processAndSave() {
+        return transactionService.processAndSave(Transaction.builder()
+                .accountFrom("0000000123")
+                .accountTo("9999999999")
+                .currencyShortname("KZT")
+                .sum(new BigDecimal("150000.00"))
+                .expenseCategory(ExpenseCategory.PRODUCT)
+                .datetime(DATETIME)
+                .build());
+    }
+
+    private static Limit limit(long id, OffsetDateTime datetime, String sum) {
+        return Limit.builder()
+                .id(id)
+                .category(ExpenseCategory.PRODUCT)
+                .limitSum(new BigDecimal(sum))
+                .limitDatetime(datetime)
+                .currency("USD")
+                .build();
+    }
+
+    private static long micros(Instant instant) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+    }
+
+    private record SpendTotalsStub(String category, long monthStartMicros, BigDecimal usdTotal,
+                                   long txCount, long lastDatetimeMicros) implements SpendTotals {
+
+        @Override
+        public String getCategory() {
+            return category;
+        }
+
+        @Override
+        public Long getMonthStartMicros() {
+            return monthStartMicros;
+        }
+
+        @Override
+        public BigDecimal getUsdTotal() {
+            return usdTotal;
+        }
+
+        @Override
+        public Long getTxCount() {
+            return txCount;
+        }
+
+        @Override
+        public Long getLastDatetimeMicros() {
+            return lastDatetimeMicros;
+        }
+    }
+}
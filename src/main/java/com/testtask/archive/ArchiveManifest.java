@@ -0,0 +1,71 @@
+package com.testtask.archive;
+
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Список заархивированных месяцев в manifest.json каталога архива.
+ * Файл перезаписывается целиком через временный файл и атомарное переименование,
+ * поэтому после сбоя на диске либо старая, либо новая версия.
+ */
+public record ArchiveManifest(List<Entry> entries) {
+
+    public static final String FILE_NAME = "manifest.json";
+
+    public record Entry(
+            YearMonth month,
+            String file,
+            long rows,
+            long exceededRows,
+            Instant minDatetime,
+            Instant maxDatetime,
+            String sha256,
+            Instant archivedAt
+    ) {
+    }
+
+    public static ArchiveManifest load(Path directory, JsonMapper jsonMapper) throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return new ArchiveManifest(List.of());
+        }
+        return jsonMapper.readValue(file.toFile(), ArchiveManifest.class);
+    }
+
+    public ArchiveManifest with(Entry entry) {
+        List<Entry> updated = new ArrayList<>(entries);
+        updated.removeIf(existing -> existing.month().equals(entry.month()));
+        updated.add(entry);
+        updated.sort(Comparator.comparing(Entry::month));
+        return new ArchiveManifest(List.copyOf(updated));
+    }
+
+    public Optional<Entry> find(YearMonth month) {
+        return entries.stream().filter(entry -> entry.month().equals(month)).findFirst();
+    }
+
+    public void save(Path directory, JsonMapper jsonMapper) throws IOException {
+        Path target = directory.resolve(FILE_NAME);
+        Path temp = directory.resolve(FILE_NAME + ".tmp");
+        try (OutputStream output = Files.newOutputStream(temp)) {
+            jsonMapper.writerWithDefaultPrettyPrinter().writeValue(output, this);
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
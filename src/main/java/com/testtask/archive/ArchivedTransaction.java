@@ -0,0 +1,26 @@
+package com.testtask.archive;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Строка transactions в архиве: все колонки таблицы, моменты времени в UTC.
+ */
+public record ArchivedTransaction(
+        long id,
+        String accountFrom,
+        String accountTo,
+        String currencyShortname,
+        BigDecimal sum,
+        String expenseCategory,
+        Instant datetime,
+        BigDecimal usdAmount,
+        Long limitId,
+        boolean limitExceeded,
+        Instant createdAt,
+        Instant updatedAt,
+        BigDecimal limitSum,
+        Instant limitDatetime,
+        String limitCurrency
+) {
+}
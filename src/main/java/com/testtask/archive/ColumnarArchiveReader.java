@@ -0,0 +1,140 @@
+package com.testtask.archive;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.function.Predicate;
+import java.util.zip.CRC32C;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Потоковое чтение архива, записанного ColumnarArchiveWriter. В памяти одновременно только одна группа строк.
+ */
+public final class ColumnarArchiveReader {
+
+    private ColumnarArchiveReader() {
+    }
+
+    /**
+     * Передаёт строки файла по порядку в consumer, пока тот возвращает true.
+     * При onlyExceeded группы без превысивших лимит строк пропускаются без разбора колонок,
+     * а в consumer попадают только превысившие.
+     *
+     * @return false, если чтение остановил consumer
+     */
+    public static boolean read(Path file, boolean onlyExceeded, Predicate<ArchivedTransaction> consumer) throws IOException {
+        try (InputStream stream = Files.newInputStream(file)) {
+            return read(stream, file.getFileName().toString(), onlyExceeded, consumer);
+        }
+    }
+
+    public static boolean read(InputStream stream, String name, boolean onlyExceeded,
+                               Predicate<ArchivedTransaction> consumer) throws IOException {
+
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(stream, 64 * 1024)));
+        if (input.readInt() != ColumnarArchiveWriter.MAGIC) {
+            throw new IOException("Not a transactions archive: " + name);
+        }
+        short version = input.readShort();
+        if (version != ColumnarArchiveWriter.VERSION) {
+            throw new IOException("Unsupported archive version " + version + " in " + name);
+        }
+
+        int rows;
+        while ((rows = input.readInt()) > 0) {
+            int exceeded = input.readInt();
+            input.readLong();
+            input.readLong();
+            int length = input.readInt();
+
+            if (onlyExceeded && exceeded == 0) {
+                input.skipNBytes(length + Integer.BYTES);
+                continue;
+            }
+
+            byte[] body = input.readNBytes(length);
+            CRC32C crc = new CRC32C();
+            crc.update(body);
+            if (body.length != length || input.readInt() != (int) crc.getValue()) {
+                throw new IOException("Corrupted row group in archive " + name);
+            }
+
+            for (ArchivedTransaction row : decode(body, rows)) {
+                if (onlyExceeded && !row.limitExceeded()) {
+                    continue;
+                }
+                if (!consumer.test(row)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static ArchivedTransaction[] decode(byte[] body, int rows) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+
+        long[] id = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            id[i] = in.readLong();
+        }
+        String[] accountFrom = strings(in, rows);
+        String[] accountTo = strings(in, rows);
+        String[] currency = strings(in, rows);
+        BigDecimal[] sum = money(in, rows);
+        String[] category = strings(in, rows);
+        Instant[] datetime = instants(in, rows);
+        BigDecimal[] usdAmount = money(in, rows);
+        Long[] limitId = new Long[rows];
+        for (int i = 0; i < rows; i++) {
+            limitId[i] = in.readBoolean() ? in.readLong() : null;
+        }
+        boolean[] exceeded = new boolean[rows];
+        for (int i = 0; i < rows; i++) {
+            exceeded[i] = in.readBoolean();
+        }
+        Instant[] createdAt = instants(in, rows);
+        Instant[] updatedAt = instants(in, rows);
+        BigDecimal[] limitSum = money(in, rows);
+        Instant[] limitDatetime = instants(in, rows);
+        String[] limitCurrency = strings(in, rows);
+
+        ArchivedTransaction[] result = new ArchivedTransaction[rows];
+        for (int i = 0; i < rows; i++) {
+            result[i] = new ArchivedTransaction(id[i], accountFrom[i], accountTo[i], currency[i], sum[i], category[i],
+                    datetime[i], usdAmount[i], limitId[i], exceeded[i], createdAt[i], updatedAt[i],
+                    limitSum[i], limitDatetime[i], limitCurrency[i]);
+        }
+        return result;
+    }
+
+    private static String[] strings(DataInputStream in, int rows) throws IOException {
+        String[] values = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            values[i] = in.readUTF();
+        }
+        return values;
+    }
+
+    private static BigDecimal[] money(DataInputStream in, int rows) throws IOException {
+        BigDecimal[] values = new BigDecimal[rows];
+        for (int i = 0; i < rows; i++) {
+            values[i] = in.readBoolean() ? BigDecimal.valueOf(in.readLong(), ColumnarArchiveWriter.MONEY_SCALE) : null;
+        }
+        return values;
+    }
+
+    private static Instant[] instants(DataInputStream in, int rows) throws IOException {
+        Instant[] values = new Instant[rows];
+        for (int i = 0; i < rows; i++) {
+            values[i] = ColumnarArchiveWriter.instant(in.readLong());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,178 @@
+package com.testtask.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Пишет архив строк transactions: GZIP-поток из групп строк, внутри группы значения лежат по колонкам.
+ * <p>
+ * Формат: MAGIC, VERSION, затем группы. Заголовок группы: число строк, число превысивших лимит,
+ * минимальный и максимальный datetime (микросекунды UTC), длина тела; затем тело (колонки подряд)
+ * и CRC32C тела. Группа с нулём строк завершает файл. По заголовку читатель пропускает группы,
+ * в которых нет нужных строк, не разбирая колонки.
+ */
+public class ColumnarArchiveWriter implements Closeable {
+
+    static final int MAGIC = 0x54584152;
+    static final short VERSION = 1;
+    static final int MONEY_SCALE = 2;
+
+    private final DataOutputStream output;
+    private final int groupSize;
+    private final List<ArchivedTransaction> group;
+
+    private long rows;
+    private long exceededRows;
+    private Instant minDatetime;
+    private Instant maxDatetime;
+
+    public ColumnarArchiveWriter(OutputStream output, int groupSize) throws IOException {
+        this.output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(output, 64 * 1024)));
+        this.groupSize = groupSize;
+        this.group = new ArrayList<>(groupSize);
+        this.output.writeInt(MAGIC);
+        this.output.writeShort(VERSION);
+    }
+
+    public void write(ArchivedTransaction row) throws IOException {
+        group.add(row);
+        rows++;
+        if (row.limitExceeded()) {
+            exceededRows++;
+        }
+        if (minDatetime == null || row.datetime().isBefore(minDatetime)) {
+            minDatetime = row.datetime();
+        }
+        if (maxDatetime == null || row.datetime().isAfter(maxDatetime)) {
+            maxDatetime = row.datetime();
+        }
+        if (group.size() == groupSize) {
+            flushGroup();
+        }
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    public long exceededRows() {
+        return exceededRows;
+    }
+
+    public Instant minDatetime() {
+        return minDatetime;
+    }
+
+    public Instant maxDatetime() {
+        return maxDatetime;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushGroup();
+        output.writeInt(0);
+        output.close();
+    }
+
+    private void flushGroup() throws IOException {
+        if (group.isEmpty()) {
+            return;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(group.size() * 128);
+        DataOutputStream body = new DataOutputStream(bytes);
+
+        longs(body, ArchivedTransaction::id);
+        strings(body, ArchivedTransaction::accountFrom);
+        strings(body, ArchivedTransaction::accountTo);
+        strings(body, ArchivedTransaction::currencyShortname);
+        money(body, ArchivedTransaction::sum);
+        strings(body, ArchivedTransaction::expenseCategory);
+        instants(body, ArchivedTransaction::datetime);
+        money(body, ArchivedTransaction::usdAmount);
+        nullableLongs(body, ArchivedTransaction::limitId);
+        for (ArchivedTransaction row : group) {
+            body.writeBoolean(row.limitExceeded());
+        }
+        instants(body, ArchivedTransaction::createdAt);
+        instants(body, ArchivedTransaction::updatedAt);
+        money(body, ArchivedTransaction::limitSum);
+        instants(body, ArchivedTransaction::limitDatetime);
+        strings(body, ArchivedTransaction::limitCurrency);
+        body.flush();
+
+        long groupExceeded = group.stream().filter(ArchivedTransaction::limitExceeded).count();
+        long groupMin = group.stream().map(ArchivedTransaction::datetime).min(Instant::compareTo).map(ColumnarArchiveWriter::micros).orElseThrow();
+        long groupMax = group.stream().map(ArchivedTransaction::datetime).max(Instant::compareTo).map(ColumnarArchiveWriter::micros).orElseThrow();
+
+        CRC32C crc = new CRC32C();
+        crc.update(bytes.toByteArray());
+
+        output.writeInt(group.size());
+        output.writeInt((int) groupExceeded);
+        output.writeLong(groupMin);
+        output.writeLong(groupMax);
+        output.writeInt(bytes.size());
+        bytes.writeTo(output);
+        output.writeInt((int) crc.getValue());
+
+        group.clear();
+    }
+
+    private void longs(DataOutputStream body, Function<ArchivedTransaction, Long> column) throws IOException {
+        for (ArchivedTransaction row : group) {
+            body.writeLong(column.apply(row));
+        }
+    }
+
+    private void nullableLongs(DataOutputStream body, Function<ArchivedTransaction, Long> column) throws IOException {
+        for (ArchivedTransaction row : group) {
+            Long value = column.apply(row);
+            body.writeBoolean(value != null);
+            if (value != null) {
+                body.writeLong(value);
+            }
+        }
+    }
+
+    private void strings(DataOutputStream body, Function<ArchivedTransaction, String> column) throws IOException {
+        for (ArchivedTransaction row : group) {
+            body.writeUTF(column.apply(row));
+        }
+    }
+
+    private void money(DataOutputStream body, Function<ArchivedTransaction, BigDecimal> column) throws IOException {
+        for (ArchivedTransaction row : group) {
+            BigDecimal value = column.apply(row);
+            body.writeBoolean(value != null);
+            if (value != null) {
+                body.writeLong(value.setScale(MONEY_SCALE).unscaledValue().longValueExact());
+            }
+        }
+    }
+
+    private void instants(DataOutputStream body, Function<ArchivedTransaction, Instant> column) throws IOException {
+        for (ArchivedTransaction row : group) {
+            body.writeLong(micros(column.apply(row)));
+        }
+    }
+
+    static long micros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+    }
+
+    static Instant instant(long micros) {
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L);
+    }
+}
@@ -0,0 +1,85 @@
+package com.testtask.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+
+@Component
+public class ExchangeRateCache {
+
+    private final Cache<RateKey, BigDecimal> rates;
+    private final Cache<RateKey, Boolean> missing;
+
+    public ExchangeRateCache(
+            @Value("${exchange-rates.cache.max-size:10000}") long maxSize,
+            @Value("${exchange-rates.cache.ttl:1h}") Duration ttl,
+            @Value("${exchange-rates.cache.missing-ttl:5m}") Duration missingTtl,
+            MeterRegistry meterRegistry) {
+
+        this.rates = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        this.missing = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(missingTtl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, rates, "exchangeRates");
+        CaffeineCacheMetrics.monitor(meterRegistry, missing, "exchangeRatesMissing");
+    }
+
+    public Optional<BigDecimal> get(String targetCurrency, LocalDate date) {
+        return Optional.ofNullable(rates.getIfPresent(new RateKey(targetCurrency, date)));
+    }
+
+    public boolean isMissing(String targetCurrency, LocalDate date) {
+        return missing.getIfPresent(new RateKey(targetCurrency, date)) != null;
+    }
+
+    public void put(String targetCurrency, LocalDate date, BigDecimal rate) {
+        RateKey key = new RateKey(targetCurrency, date);
+        rates.put(key, rate);
+        missing.invalidate(key);
+    }
+
+    public void putMissing(String targetCurrency, LocalDate date) {
+        missing.put(new RateKey(targetCurrency, date), Boolean.TRUE);
+    }
+
+    /**
+     * Отрицательные записи по валюте теряют смысл, как только для неё появляется новый курс:
+     * поиск "на дату или раньше" для любой из этих дат мог начать что-то находить.
+     */
+    public void invalidateMissing(String targetCurrency) {
+        missing.asMap().keySet().removeIf(key -> key.targetCurrency().equals(targetCurrency));
+    }
+
+    public void invalidate(String targetCurrency) {
+        rates.asMap().keySet().removeIf(key -> key.targetCurrency().equals(targetCurrency));
+        invalidateMissing(targetCurrency);
+    }
+
+    public CacheStats stats() {
+        return rates.stats();
+    }
+
+    public CacheStats missingStats() {
+        return missing.stats();
+    }
+
+    private record RateKey(String targetCurrency, LocalDate date) {
+    }
+}
@@ -0,0 +1,61 @@
+package com.testtask.cache;
+
+import com.testtask.entity.Limit;
+import com.testtask.model.ExpenseCategory;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * История лимитов по категориям, отсортированная по моменту установки.
+ * Пока полная загрузка не выполнена, вызывающие должны обращаться к LimitRepository.
+ */
+@Component
+public class LimitTimeline {
+
+    private volatile Map<ExpenseCategory, ConcurrentSkipListMap<Instant, Limit>> timelines = emptyTimelines();
+    private volatile boolean loaded;
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Лимит, действующий на момент datetime: последний установленный не позже него.
+     */
+    public Optional<Limit> applicableAt(ExpenseCategory category, OffsetDateTime datetime) {
+        Map.Entry<Instant, Limit> entry = timelines.get(category).floorEntry(datetime.toInstant());
+        return entry == null ? Optional.empty() : Optional.of(entry.getValue());
+    }
+
+    public void load(Collection<Limit> limits) {
+        Map<ExpenseCategory, ConcurrentSkipListMap<Instant, Limit>> loadedTimelines = emptyTimelines();
+        for (Limit limit : limits) {
+            loadedTimelines.get(limit.getCategory()).put(limit.getLimitDatetime().toInstant(), limit);
+        }
+        this.timelines = loadedTimelines;
+        this.loaded = true;
+    }
+
+    public void add(Limit limit) {
+        timelines.get(limit.getCategory()).put(limit.getLimitDatetime().toInstant(), limit);
+    }
+
+    public int size() {
+        return timelines.values().stream().mapToInt(Map::size).sum();
+    }
+
+    private static Map<ExpenseCategory, ConcurrentSkipListMap<Instant, Limit>> emptyTimelines() {
+        Map<ExpenseCategory, ConcurrentSkipListMap<Instant, Limit>> result = new EnumMap<>(ExpenseCategory.class);
+        for (ExpenseCategory category : ExpenseCategory.values()) {
+            result.put(category, new ConcurrentSkipListMap<>());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,144 @@
+package com.testtask.cache;
+
+import com.testtask.model.ExpenseCategory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Месячные суммы расходов по категориям в памяти, в центах.
+ * Ключ - категория и начало месяца (как его считает TransactionService).
+ * Каждой категории отведён свой набор блокировок, поэтому параллельная обработка
+ * разных категорий не конкурирует между собой.
+ * Значения приходят только из закоммиченного состояния monthly_category_spend и
+ * принимаются, лишь если tx_count больше уже известного, так что порядок применения не важен.
+ */
+@Component
+public class SpendAccumulator {
+
+    private static final int USD_SCALE = 2;
+
+    private final Map<SpendKey, Totals> totals = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+    private final int stripesPerCategory;
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+
+    public SpendAccumulator(
+            @Value("${spend-accumulator.stripes-per-category:16}") int stripesPerCategory,
+            MeterRegistry meterRegistry) {
+
+        this.stripesPerCategory = Integer.highestOneBit(Math.max(1, stripesPerCategory));
+        this.stripes = new ReentrantLock[ExpenseCategory.values().length * this.stripesPerCategory];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+
+        Gauge.builder("spend.accumulator.size", totals, Map::size)
+                .register(meterRegistry);
+        FunctionCounter.builder("spend.accumulator.lock.acquisitions", acquisitions, LongAdder::sum)
+                .register(meterRegistry);
+        FunctionCounter.builder("spend.accumulator.lock.contended", contended, LongAdder::sum)
+                .description("Lock acquisitions that had to wait for another thread")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Сумма за месяц до момента txDateTime, если все учтённые транзакции месяца строго раньше него.
+     */
+    public Optional<BigDecimal> spentBefore(ExpenseCategory category, Instant monthStart, Instant txDateTime) {
+        SpendKey key = new SpendKey(category, monthStart);
+        long txMicros = toMicros(txDateTime);
+
+        ReentrantLock lock = lock(key);
+        try {
+            Totals current = totals.get(key);
+            if (current == null || (current.txCount > 0 && current.lastMicros >= txMicros)) {
+                return Optional.empty();
+            }
+            return Optional.of(BigDecimal.valueOf(current.cents, USD_SCALE));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void apply(ExpenseCategory category, Instant monthStart,
+                      BigDecimal usdTotal, long txCount, Instant lastDatetime) {
+        SpendKey key = new SpendKey(category, monthStart);
+        long cents = usdTotal.setScale(USD_SCALE).unscaledValue().longValueExact();
+        long lastMicros = toMicros(lastDatetime);
+
+        ReentrantLock lock = lock(key);
+        try {
+            Totals current = totals.get(key);
+            if (current == null) {
+                totals.put(key, new Totals(cents, txCount, lastMicros));
+            } else if (txCount > current.txCount) {
+                current.cents = cents;
+                current.txCount = txCount;
+                current.lastMicros = lastMicros;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        totals.clear();
+    }
+
+    public int size() {
+        return totals.size();
+    }
+
+    public long lockAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    public long contendedAcquisitions() {
+        return contended.sum();
+    }
+
+    private ReentrantLock lock(SpendKey key) {
+        int month = Long.hashCode(key.monthStart().getEpochSecond());
+        int index = key.category().ordinal() * stripesPerCategory + ((month ^ (month >>> 16)) & (stripesPerCategory - 1));
+        ReentrantLock lock = stripes[index];
+
+        acquisitions.increment();
+        if (!lock.tryLock()) {
+            contended.increment();
+            lock.lock();
+        }
+        return lock;
+    }
+
+    private static long toMicros(Instant instant) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+    }
+
+    private record SpendKey(ExpenseCategory category, Instant monthStart) {
+    }
+
+    private static final class Totals {
+        private long cents;
+        private long txCount;
+        private long lastMicros;
+
+        private Totals(long cents, long txCount, long lastMicros) {
+            this.cents = cents;
+            this.txCount = txCount;
+            this.lastMicros = lastMicros;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.testtask.client;
+
+import com.testtask.exception.ExchangeRateProviderException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AlphaVantageClient {
+
+    private static final String BASE_CURRENCY = "USD";
+
+    private final WebClient exchangeRateWebClient;
+    private final CircuitBreaker alphaVantageCircuitBreaker;
+    private final TokenBucket alphaVantageRateLimiter;
+    private final Retry alphaVantageRetry;
+
+    @Value("${alphavantage.api-key}")
+    private String apiKey;
+
+    @Value("${alphavantage.output-size:compact}")
+    private String outputSize;
+
+    @Value("${alphavantage.rate-limit.max-wait:30s}")
+    private Duration maxRateLimitWait;
+
+    @Value("${alphavantage.max-response-size:4MB}")
+    private DataSize maxResponseSize;
+
+    public Mono<FxDailySeries> fetchDailySeries(String targetCurrency) {
+        Mono<FxDailySeries> attempt = acquirePermit(targetCurrency)
+                .then(Mono.defer(() -> requestDailySeries(targetCurrency)))
+                .onErrorMap(WebClientRequestException.class, e -> new ExchangeRateProviderException(
+                        "Alpha Vantage is unreachable: " + e.getMessage(), e, true))
+                .transformDeferred(CircuitBreakerOperator.of(alphaVantageCircuitBreaker))
+                .onErrorMap(CallNotPermittedException.class, e -> new ExchangeRateProviderException(
+                        "Alpha Vantage circuit breaker is open", e, false));
+
+        return attempt.retryWhen(alphaVantageRetry);
+    }
+
+    private Mono<Void> acquirePermit(String targetCurrency) {
+        return Mono.defer(() -> {
+            long waitNanos = alphaVantageRateLimiter.reserve(maxRateLimitWait);
+            if (waitNanos < 0) {
+                return Mono.error(new ExchangeRateProviderException(
+                        "Alpha Vantage call quota exhausted for USD/" + targetCurrency, false));
+            }
+            if (waitNanos == 0) {
+                return Mono.empty();
+            }
+
+            log.debug("Delaying Alpha Vantage call for USD/{} by {} ms to respect the quota",
+                    targetCurrency, Duration.ofNanos(waitNanos).toMillis());
+            return Mono.delay(Duration.ofNanos(waitNanos)).then();
+        });
+    }
+
+    private Mono<FxDailySeries> requestDailySeries(String targetCurrency) {
+        return exchangeRateWebClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/query")
+                        .queryParam("function", "FX_DAILY")
+                        .queryParam("from_symbol", BASE_CURRENCY)
+                        .queryParam("to_symbol", targetCurrency)
+                        .queryParam("outputsize", outputSize)
+                        .queryParam("apikey", apiKey)
+                        .build())
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                        clientResponse -> clientResponse.bodyToMono(String.class)
+                                .defaultIfEmpty("")
+                                .map(body -> new ExchangeRateProviderException(
+                                        "Alpha Vantage error: " + clientResponse.statusCode() + " - " + body,
+                                        clientResponse.statusCode().is5xxServerError()
+                                                || clientResponse.statusCode().isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS))))
+                .bodyToFlux(DataBuffer.class)
+                .as(body -> DataBufferUtils.join(body, (int) maxResponseSize.toBytes()))
+                .onErrorMap(DataBufferLimitException.class, e -> new ExchangeRateProviderException(
+                        "Alpha Vantage response for USD/" + targetCurrency + " exceeds " + maxResponseSize, e, false))
+                .map(buffer -> parseSeries(buffer, targetCurrency));
+    }
+
+    private FxDailySeries parseSeries(DataBuffer buffer, String targetCurrency) {
+        try (InputStream json = buffer.asInputStream(true)) {
+            return FxDailyParser.parse(json, targetCurrency);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.testtask.client;
+
+import com.testtask.exception.ExchangeRateProviderException;
+import lombok.extern.slf4j.Slf4j;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.core.ObjectReadContext;
+import tools.jackson.core.json.JsonFactory;
+
+import java.io.InputStream;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Потоковый разбор ответа FX_DAILY: читает токены и сразу складывает даты и курсы закрытия
+ * в примитивные массивы, не строя промежуточных Map и строк для ненужных полей.
+ */
+@Slf4j
+public final class FxDailyParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final String TIME_SERIES = "Time Series FX (Daily)";
+    private static final String CLOSE = "4. close";
+
+    private FxDailyParser() {
+    }
+
+    public static FxDailySeries parse(InputStream json, String targetCurrency) {
+        try (JsonParser parser = JSON_FACTORY.createParser(ObjectReadContext.empty(), json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new ExchangeRateProviderException("Unexpected Alpha Vantage response for USD/" + targetCurrency, false);
+            }
+
+            FxDailySeries series = null;
+            String name;
+            while ((name = parser.nextName()) != null) {
+                switch (name) {
+                    case "Error Message" -> throw new ExchangeRateProviderException(
+                            "Alpha Vantage API error: " + nextString(parser), false);
+                    case "Note", "Information" -> throw new ExchangeRateProviderException(
+                            "Alpha Vantage throttled the request: " + nextString(parser), true);
+                    case TIME_SERIES -> {
+                        parser.nextToken();
+                        series = readTimeSeries(parser, targetCurrency);
+                    }
+                    default -> {
+                        parser.nextToken();
+                        parser.skipChildren();
+                    }
+                }
+            }
+
+            if (series == null || series.isEmpty()) {
+                throw new ExchangeRateProviderException("No time series data for USD/" + targetCurrency, false);
+            }
+            return series;
+        }
+    }
+
+    private static FxDailySeries readTimeSeries(JsonParser parser, String targetCurrency) {
+        if (!parser.hasToken(JsonToken.START_OBJECT)) {
+            parser.skipChildren();
+            return null;
+        }
+
+        int[] days = new int[128];
+        long[] closes = new long[128];
+        int size = 0;
+
+        String day;
+        while ((day = parser.nextName()) != null) {
+            parser.nextToken();
+            long close = -1;
+
+            String field;
+            while ((field = parser.nextName()) != null) {
+                JsonToken value = parser.nextToken();
+                if (CLOSE.equals(field) && value == JsonToken.VALUE_STRING) {
+                    close = parseScaled(parser.getStringCharacters(), parser.getStringOffset(), parser.getStringLength());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            int epochDay;
+            try {
+                epochDay = parseEpochDay(day);
+            } catch (DateTimeException | NumberFormatException e) {
+                log.warn("Skipping malformed USD/{} entry {}: {}", targetCurrency, day, e.getMessage());
+                continue;
+            }
+            if (close < 0) {
+                log.warn("Skipping USD/{} entry {} without a valid close", targetCurrency, day);
+                continue;
+            }
+
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+                closes = Arrays.copyOf(closes, size * 2);
+            }
+            days[size] = epochDay;
+            closes[size] = close;
+            size++;
+        }
+
+        return sorted(days, closes, size);
+    }
+
+    /**
+     * Alpha Vantage отдаёт дни по убыванию, поэтому обычно достаточно развернуть массивы;
+     * в остальных случаях сортируем и убираем повторяющиеся дни.
+     */
+    private static FxDailySeries sorted(int[] days, long[] closes, int size) {
+        boolean ascending = true;
+        boolean descending = true;
+        for (int i = 1; i < size; i++) {
+            ascending &= days[i - 1] < days[i];
+            descending &= days[i - 1] > days[i];
+        }
+
+        if (ascending) {
+            return new FxDailySeries(Arrays.copyOf(days, size), Arrays.copyOf(closes, size));
+        }
+
+        if (descending) {
+            int[] sortedDays = new int[size];
+            long[] sortedCloses = new long[size];
+            for (int i = 0; i < size; i++) {
+                sortedDays[i] = days[size - 1 - i];
+                sortedCloses[i] = closes[size - 1 - i];
+            }
+            return new FxDailySeries(sortedDays, sortedCloses);
+        }
+
+        long[] order = new long[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = ((long) days[i] << 32) | i;
+        }
+        Arrays.sort(order);
+
+        int[] sortedDays = new int[size];
+        long[] sortedCloses = new long[size];
+        int unique = 0;
+        for (long packed : order) {
+            int day = (int) (packed >> 32);
+            if (unique > 0 && sortedDays[unique - 1] == day) {
+                continue;
+            }
+            sortedDays[unique] = day;
+            sortedCloses[unique] = closes[(int) packed];
+            unique++;
+        }
+        return new FxDailySeries(Arrays.copyOf(sortedDays, unique), Arrays.copyOf(sortedCloses, unique));
+    }
+
+    static int parseEpochDay(String day) {
+        if (day.length() != 10 || day.charAt(4) != '-' || day.charAt(7) != '-') {
+            throw new NumberFormatException("Expected yyyy-MM-dd");
+        }
+        int year = digits(day, 0, 4);
+        int month = digits(day, 5, 7);
+        int dayOfMonth = digits(day, 8, 10);
+        return (int) LocalDate.of(year, month, dayOfMonth).toEpochDay();
+    }
+
+    /**
+     * Положительное десятичное число в long с масштабом {@link FxDailySeries#RATE_SCALE},
+     * лишние знаки округляются HALF_UP. Для некорректной строки возвращает -1.
+     */
+    static long parseScaled(char[] chars, int offset, int length) {
+        long value = 0;
+        int fractionDigits = -1;
+        boolean roundUp = false;
+        boolean anyDigit = false;
+
+        for (int i = offset; i < offset + length; i++) {
+            char c = chars[i];
+            if (c == '.') {
+                if (fractionDigits >= 0) {
+                    return -1;
+                }
+                fractionDigits = 0;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            anyDigit = true;
+
+            if (fractionDigits >= FxDailySeries.RATE_SCALE) {
+                if (fractionDigits == FxDailySeries.RATE_SCALE) {
+                    roundUp = c >= '5';
+                }
+                fractionDigits++;
+                continue;
+            }
+
+            if (value > (Long.MAX_VALUE - 9) / 10) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+            if (fractionDigits >= 0) {
+                fractionDigits++;
+            }
+        }
+
+        if (!anyDigit) {
+            return -1;
+        }
+
+        for (int scale = Math.max(fractionDigits, 0); scale < FxDailySeries.RATE_SCALE; scale++) {
+            if (value > Long.MAX_VALUE / 10) {
+                return -1;
+            }
+            value *= 10;
+        }
+        return roundUp ? value + 1 : value;
+    }
+
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Expected a digit in " + text);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static String nextString(JsonParser parser) {
+        parser.nextToken();
+        return parser.getString();
+    }
+}
@@ -0,0 +1,55 @@
+package com.testtask.client;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Дневные курсы закрытия одной валютной пары в компактном виде: отсортированные по возрастанию
+ * дни (epoch day) и курсы, хранимые как long с масштабом {@link #RATE_SCALE}, как в exchange_rates.rate.
+ */
+public final class FxDailySeries {
+
+    public static final int RATE_SCALE = 8;
+
+    private final int[] epochDays;
+    private final long[] scaledCloses;
+
+    FxDailySeries(int[] epochDays, long[] scaledCloses) {
+        this.epochDays = epochDays;
+        this.scaledCloses = scaledCloses;
+    }
+
+    public int size() {
+        return epochDays.length;
+    }
+
+    public boolean isEmpty() {
+        return epochDays.length == 0;
+    }
+
+    public LocalDate dateAt(int index) {
+        return LocalDate.ofEpochDay(epochDays[index]);
+    }
+
+    public BigDecimal rateAt(int index) {
+        return BigDecimal.valueOf(scaledCloses[index], RATE_SCALE);
+    }
+
+    public LocalDate lastDate() {
+        return isEmpty() ? null : dateAt(epochDays.length - 1);
+    }
+
+    /**
+     * Индекс последнего дня не позже {@code date} или -1, если таких дней нет.
+     */
+    public int floorIndex(LocalDate date) {
+        int found = Arrays.binarySearch(epochDays, (int) date.toEpochDay());
+        return found >= 0 ? found : -found - 2;
+    }
+
+    public BigDecimal floorRate(LocalDate date) {
+        int index = floorIndex(date);
+        return index < 0 ? null : rateAt(index);
+    }
+}
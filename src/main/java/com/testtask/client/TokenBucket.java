@@ -0,0 +1,61 @@
+package com.testtask.client;
+
+import java.time.Duration;
+
+/**
+ * Token bucket: до {@code capacity} вызовов можно сделать сразу, дальше по одному на каждый
+ * {@code refillPeriod}. Вызывающий не спит внутри — он получает время, через которое его токен
+ * станет доступен, и сам решает, как ждать. Выданные авансом токены уводят баланс в минус,
+ * поэтому следующие вызывающие ждут дольше и квота не превышается.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final long refillIntervalNanos;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(int capacity, Duration refillPeriod) {
+        if (capacity < 1 || refillPeriod.isNegative() || refillPeriod.isZero()) {
+            throw new IllegalArgumentException("Token bucket needs a positive capacity and refill period");
+        }
+        this.capacity = capacity;
+        this.refillIntervalNanos = refillPeriod.toNanos();
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Резервирует один токен.
+     *
+     * @return через сколько наносекунд токен можно использовать (0 — сразу),
+     * либо -1, если ждать пришлось бы дольше {@code maxWait}; в этом случае ничего не резервируется
+     */
+    public synchronized long reserve(Duration maxWait) {
+        refill(System.nanoTime());
+
+        if (tokens >= 1.0) {
+            tokens -= 1.0;
+            return 0;
+        }
+
+        long waitNanos = (long) Math.ceil((1.0 - tokens) * refillIntervalNanos);
+        if (waitNanos > maxWait.toNanos()) {
+            return -1;
+        }
+
+        tokens -= 1.0;
+        return waitNanos;
+    }
+
+    public synchronized double availableTokens() {
+        refill(System.nanoTime());
+        return Math.max(0.0, tokens);
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacity, tokens + (double) (now - lastRefillNanos) / refillIntervalNanos);
+        lastRefillNanos = now;
+    }
+}
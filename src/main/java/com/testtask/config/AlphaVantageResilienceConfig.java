@@ -0,0 +1,83 @@
+package com.testtask.config;
+
+import com.testtask.client.TokenBucket;
+import com.testtask.exception.ExchangeRateProviderException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+@Configuration
+public class AlphaVantageResilienceConfig {
+
+    @Value("${alphavantage.rate-limit.capacity:5}")
+    private int rateLimitCapacity;
+
+    @Value("${alphavantage.rate-limit.refill-period:12s}")
+    private Duration rateLimitRefillPeriod;
+
+    @Value("${alphavantage.retry.max-attempts:3}")
+    private int retryMaxAttempts;
+
+    @Value("${alphavantage.retry.min-backoff:500ms}")
+    private Duration retryMinBackoff;
+
+    @Value("${alphavantage.retry.max-backoff:5s}")
+    private Duration retryMaxBackoff;
+
+    @Value("${alphavantage.retry.jitter:0.5}")
+    private double retryJitter;
+
+    @Value("${alphavantage.circuit-breaker.failure-rate-threshold:50}")
+    private float failureRateThreshold;
+
+    @Value("${alphavantage.circuit-breaker.sliding-window-size:10}")
+    private int slidingWindowSize;
+
+    @Value("${alphavantage.circuit-breaker.wait-in-open-state:60s}")
+    private Duration waitInOpenState;
+
+    @Bean
+    public TokenBucket alphaVantageRateLimiter(MeterRegistry meterRegistry) {
+        TokenBucket bucket = new TokenBucket(rateLimitCapacity, rateLimitRefillPeriod);
+        Gauge.builder("alphavantage.rate.limiter.available.tokens", bucket, TokenBucket::availableTokens)
+                .description("Токены, доступные для вызовов Alpha Vantage прямо сейчас")
+                .register(meterRegistry);
+        return bucket;
+    }
+
+    @Bean
+    public CircuitBreaker alphaVantageCircuitBreaker(MeterRegistry meterRegistry) {
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(Math.min(slidingWindowSize, 5))
+                .waitDurationInOpenState(waitInOpenState)
+                .permittedNumberOfCallsInHalfOpenState(1)
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .ignoreException(e -> e instanceof ExchangeRateProviderException p && !p.isRetryable())
+                .build();
+
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(config);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry.circuitBreaker("alphavantage");
+    }
+
+    @Bean
+    public Retry alphaVantageRetry() {
+        return Retry.backoff(retryMaxAttempts - 1L, retryMinBackoff)
+                .maxBackoff(retryMaxBackoff)
+                .jitter(retryJitter)
+                .filter(e -> e instanceof ExchangeRateProviderException p && p.isRetryable())
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+}
@@ -0,0 +1,16 @@
+package com.testtask.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class BatchExecutorConfig {
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService transactionBatchExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("batch-", 0).factory());
+    }
+}
@@ -0,0 +1,69 @@
+package com.testtask.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Два пула Hikari: primary для записи и read для транзакций readOnly (отчёты, справочники), чтобы тяжёлая
+ * выборка не занимала соединения приёма транзакций. Пул read смотрит на реплику из read-datasource.url,
+ * а если она не задана - на ту же БД, что и primary.
+ * <p>
+ * Общий DataSource отдаёт соединение лениво, при первом запросе: к этому моменту транзакция уже пометила его
+ * readOnly, и оно берётся из пула read (или из primary, пока {@link ReplicaLagGuard} считает реплику отставшей).
+ * Метрики hikaricp.* у пулов различаются тегом pool.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("read-datasource.hikari")
+    public HikariDataSource readDataSource(
+            DataSourceProperties properties,
+            @Value("${read-datasource.url:}") String url,
+            @Value("${read-datasource.username:}") String username,
+            @Value("${read-datasource.password:}") String password) {
+
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url.isBlank() ? properties.determineUrl() : url)
+                .username(username.isBlank() ? properties.determineUsername() : username)
+                .password(password.isBlank() ? properties.determinePassword() : password)
+                .build();
+        dataSource.setPoolName("read");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            @Qualifier("readDataSource") DataSource readDataSource,
+            ReplicaLagGuard replicaLagGuard) {
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(new ReadRoutingDataSource(readDataSource, primaryDataSource, replicaLagGuard));
+        return dataSource;
+    }
+}
@@ -0,0 +1,37 @@
+package com.testtask.config;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Источник соединений для readOnly-транзакций: пул read, пока реплика не отстала, иначе primary.
+ */
+class ReadRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource readDataSource;
+    private final DataSource primaryDataSource;
+    private final ReplicaLagGuard replicaLagGuard;
+
+    ReadRoutingDataSource(DataSource readDataSource, DataSource primaryDataSource, ReplicaLagGuard replicaLagGuard) {
+        this.readDataSource = readDataSource;
+        this.primaryDataSource = primaryDataSource;
+        this.replicaLagGuard = replicaLagGuard;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return target().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return target().getConnection(username, password);
+    }
+
+    private DataSource target() {
+        return replicaLagGuard.isReplicaUsable() ? readDataSource : primaryDataSource;
+    }
+}
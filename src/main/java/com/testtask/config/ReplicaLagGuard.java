@@ -0,0 +1,97 @@
+package com.testtask.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Следит за отставанием реплики из read-datasource.url и снимает с неё чтение, пока отставание больше
+ * read-datasource.max-lag или неизвестно (реплика недоступна, ещё ничего не проиграла). До первой проверки
+ * чтение идёт в primary. Если реплика не задана, пул read смотрит на primary и проверять нечего.
+ * <p>
+ * Реплика, проигравшая всё полученное, отставания не имеет, даже если последняя транзакция была давно:
+ * иначе простаивающий primary выглядел бы как отставание.
+ */
+@Slf4j
+@Component
+public class ReplicaLagGuard {
+
+    private static final String LAG_SQL = """
+            SELECT CASE
+                       WHEN NOT pg_is_in_recovery() THEN 0
+                       WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                       ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())
+                   END
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final double maxLagSeconds;
+    private final Counter primaryFallbacks;
+
+    private volatile double lagSeconds = Double.NaN;
+    private volatile boolean replicaUsable;
+
+    public ReplicaLagGuard(
+            @Qualifier("readDataSource") DataSource readDataSource,
+            MeterRegistry meterRegistry,
+            @Value("${read-datasource.url:}") String replicaUrl,
+            @Value("${read-datasource.max-lag:10s}") Duration maxLag) {
+
+        this.jdbcTemplate = new JdbcTemplate(readDataSource);
+        this.enabled = !replicaUrl.isBlank();
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        this.replicaUsable = !enabled;
+        this.primaryFallbacks = Counter.builder("datasource.replica.fallbacks").register(meterRegistry);
+
+        Gauge.builder("datasource.replica.lag", this, guard -> guard.lagSeconds)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("datasource.replica.usable", this, guard -> guard.replicaUsable ? 1 : 0)
+                .register(meterRegistry);
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    @Scheduled(fixedDelayString = "${read-datasource.lag-check-interval:5s}")
+    public void check() {
+        if (!enabled) {
+            return;
+        }
+
+        Double lag;
+        try {
+            lag = jdbcTemplate.queryForObject(LAG_SQL, Double.class);
+        } catch (DataAccessException e) {
+            log.warn("Replica lag check failed: {}", e.getMessage());
+            lag = null;
+        }
+        update(lag);
+    }
+
+    void update(Double lag) {
+        boolean usable = lag != null && lag <= maxLagSeconds;
+        if (usable != replicaUsable) {
+            if (usable) {
+                log.info("Replica lag {}s is within {}s, read-only transactions go to the replica", lag, maxLagSeconds);
+            } else {
+                log.warn("Replica lag {}s exceeds {}s, read-only transactions go to the primary", lag, maxLagSeconds);
+                primaryFallbacks.increment();
+            }
+        }
+        lagSeconds = lag != null ? lag : Double.NaN;
+        replicaUsable = usable;
+    }
+}
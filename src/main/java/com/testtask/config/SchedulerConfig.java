@@ -0,0 +1,22 @@
+package com.testtask.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+@Configuration
+public class SchedulerConfig {
+
+    @Value("${jdbc-scheduler.threads:10}")
+    private int threads;
+
+    @Value("${jdbc-scheduler.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler jdbcScheduler() {
+        return Schedulers.newBoundedElastic(threads, queueCapacity, "jdbc");
+    }
+}
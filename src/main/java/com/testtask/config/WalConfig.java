@@ -0,0 +1,36 @@
+package com.testtask.config;
+
+import com.testtask.repository.WalAppliedRepository;
+import com.testtask.repository.WalDeadLetterRepository;
+import com.testtask.wal.SegmentLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+public class WalConfig {
+
+    /**
+     * Номера записей продолжают уже применённые, даже если каталог журнала был потерян:
+     * иначе новая запись с тем же номером считалась бы уже проведённой. Учитываются и wal_dead_letters:
+     * их строки живут дольше сегментов и отметок в wal_applied.
+     */
+    @Bean(destroyMethod = "close")
+    public SegmentLog transactionWal(
+            @Value("${transaction-wal.dir:data/wal}") Path directory,
+            @Value("${transaction-wal.segment-size:64MB}") DataSize segmentSize,
+            WalAppliedRepository walAppliedRepository,
+            WalDeadLetterRepository walDeadLetterRepository) throws IOException {
+
+        long maxApplied = Math.max(orZero(walAppliedRepository.findMaxSeq()), orZero(walDeadLetterRepository.findMaxSeq()));
+        return SegmentLog.open(directory, Math.toIntExact(segmentSize.toBytes()), maxApplied + 1);
+    }
+
+    private static long orZero(Long seq) {
+        return seq == null ? 0 : seq;
+    }
+}
@@ -1,11 +1,17 @@
 package com.testtask.config;
 
+import io.netty.channel.ChannelOption;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 @Configuration
 public class WebClientConfig {
@@ -13,11 +19,42 @@ public class WebClientConfig {
     @Value("${alphavantage.base-url}")
     private String baseUrl;
 
+    @Value("${alphavantage.connect-timeout:2s}")
+    private Duration connectTimeout;
+
+    @Value("${alphavantage.response-timeout:10s}")
+    private Duration responseTimeout;
+
+    @Value("${alphavantage.pool.max-connections:20}")
+    private int maxConnections;
+
+    @Value("${alphavantage.pool.pending-acquire-timeout:5s}")
+    private Duration pendingAcquireTimeout;
+
+    @Value("${alphavantage.pool.max-idle-time:30s}")
+    private Duration maxIdleTime;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider exchangeRateConnectionProvider() {
+        return ConnectionProvider.builder("alphavantage")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .metrics(true)
+                .build();
+    }
+
     @Bean
-    public WebClient exchangeRateWebClient() {
+    public WebClient exchangeRateWebClient(ConnectionProvider exchangeRateConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(exchangeRateConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout)
+                .metrics(true, uri -> "/query");
+
         return WebClient.builder()
                 .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
                 .build();
     }
-}
\ No newline at end of file
+}
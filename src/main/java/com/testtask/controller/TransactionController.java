@@ -1,25 +1,47 @@
 package com.testtask.controller;
 
+import com.testtask.dto.BufferedTransactionAckDto;
+import com.testtask.dto.ExceededTransactionFilter;
+import com.testtask.dto.ExceededTransactionPageDto;
 import com.testtask.dto.ExceededTransactionResponseDto;
+import com.testtask.dto.IngestJobResponseDto;
 import com.testtask.dto.TransactionRequestDto;
+import com.testtask.dto.TransactionStreamResultDto;
 import com.testtask.entity.Transaction;
 import com.testtask.mapper.AppMapper;
+import com.testtask.model.ExpenseCategory;
+import com.testtask.model.ExportFormat;
+import com.testtask.service.BufferedIngestService;
+import com.testtask.service.ExceededTransactionExporter;
+import com.testtask.service.IngestJobService;
+import com.testtask.service.TransactionBatchProcessor;
 import com.testtask.service.TransactionService;
+import com.testtask.service.TransactionStreamIngestor;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
 
+import java.net.URI;
+import java.time.OffsetDateTime;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -30,6 +52,11 @@ import java.util.stream.Collectors;
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final TransactionBatchProcessor transactionBatchProcessor;
+    private final TransactionStreamIngestor transactionStreamIngestor;
+    private final IngestJobService ingestJobService;
+    private final BufferedIngestService bufferedIngestService;
+    private final ExceededTransactionExporter exceededTransactionExporter;
     private final AppMapper appMapper;
 
     @PostMapping
@@ -70,16 +97,40 @@ public class TransactionController {
         return ResponseEntity.status(HttpStatus.CREATED).body(saved);
     }
 
+    @PostMapping("/async")
+    @Operation(
+            summary = "Принять и обработать расходную операцию без блокировки потока запроса",
+            description = "То же, что POST /api/transactions, но курс запрашивается неблокирующим WebClient, " +
+                    "а работа с БД выполняется на отдельном ограниченном пуле потоков. " +
+                    "Соединение с БД не удерживается, пока ожидается ответ провайдера курсов."
+    )
+    @ApiResponse(responseCode = "201", description = "Транзакция успешно обработана",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = Transaction.class)))
+    @ApiResponse(responseCode = "400", description = "Некорректные входные данные (валидация)")
+    public Mono<ResponseEntity<Transaction>> createTransactionAsync(
+            @Valid @RequestBody @Schema(description = "Данные новой транзакции") TransactionRequestDto requestDto) {
+
+        Transaction transaction = appMapper.toEntity(requestDto);
+
+        return transactionService.processAndSaveAsync(transaction)
+                .map(saved -> ResponseEntity.status(HttpStatus.CREATED).body(saved));
+    }
+
     @PostMapping("/batch")
     @Operation(
             summary = "Принять и обработать пачку расходных операций (параллельно)",
-            description = "Принимает список транзакций, обрабатывает их параллельно " +
-                    "(с использованием CompletableFuture), конвертирует в USD, проверяет лимиты и сохраняет."
+            description = "Принимает список транзакций и группирует их по категории и месяцу. " +
+                    "Группы обрабатываются параллельно на виртуальных потоках (не больше одновременных " +
+                    "обращений к БД, чем соединений в пуле), внутри группы транзакции идут по возрастанию " +
+                    "datetime и при проверке лимита учитывают более ранние транзакции той же пачки. " +
+                    "Группа сохраняется одной записью. При ошибке или по таймауту обработка оставшихся групп отменяется."
     )
     @ApiResponse(responseCode = "201", description = "Все транзакции успешно обработаны",
             content = @Content(mediaType = "application/json",
                     schema = @Schema(implementation = Transaction.class)))
     @ApiResponse(responseCode = "400", description = "Некорректные данные в одной или нескольких транзакциях")
+    @ApiResponse(responseCode = "503", description = "Пачка не обработана за отведённое время")
     public ResponseEntity<List<Transaction>> createBatchTransactions(
             @Valid @RequestBody List<TransactionRequestDto> requestDtos) {
 
@@ -87,32 +138,87 @@ public class TransactionController {
             return ResponseEntity.badRequest().build();
         }
 
-        List<CompletableFuture<Transaction>> futures = requestDtos.stream()
-                .map(dto -> CompletableFuture.supplyAsync(() -> {
-                    try {
-                        Transaction tx = appMapper.toEntity(dto);
-                        return transactionService.processAndSave(tx);
-                    } catch (Exception e) {
-                        throw new RuntimeException("Ошибка в транзакции: " + e.getMessage(), e);
-                    }
-                }))
+        List<Transaction> transactions = requestDtos.stream()
+                .map(appMapper::toEntity)
                 .collect(Collectors.toList());
 
-        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-
-        List<Transaction> savedTransactions = futures.stream()
-                .map(future -> {
-                    try {
-                        return future.get();
-                    } catch (Exception e) {
-                        throw new RuntimeException("Не удалось обработать одну из транзакций", e);
-                    }
-                })
-                .collect(Collectors.toList());
+        List<Transaction> savedTransactions = transactionBatchProcessor.processAll(transactions);
 
         return ResponseEntity.status(HttpStatus.CREATED).body(savedTransactions);
     }
 
+    @PostMapping(value = "/stream", consumes = "application/x-ndjson", produces = "application/x-ndjson")
+    @Operation(
+            summary = "Потоковый приём расходных операций в формате NDJSON",
+            description = "Принимает транзакции построчно (одна JSON-запись на строку) и обрабатывает их кусками " +
+                    "фиксированного размера, не загружая весь файл в память. По каждой непустой строке " +
+                    "в ответ сразу пишется NDJSON-запись с номером строки и либо id, usdAmount, limitExceeded, " +
+                    "либо текстом ошибки (некорректный JSON, ошибка валидации или обработки)."
+    )
+    @ApiResponse(responseCode = "200", description = "Поток результатов по строкам",
+            content = @Content(mediaType = "application/x-ndjson",
+                    schema = @Schema(implementation = TransactionStreamResultDto.class)))
+    public ResponseEntity<StreamingResponseBody> createTransactionsFromStream(HttpServletRequest request) {
+        StreamingResponseBody body = output -> transactionStreamIngestor.ingest(request.getInputStream(), output);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    @PostMapping("/jobs")
+    @Operation(
+            summary = "Поставить расходную операцию в очередь на обработку",
+            description = "Проверяет входные данные, сохраняет операцию в очередь (таблица ingest_jobs) и сразу " +
+                    "отвечает 202 с идентификатором задания. Конвертация, проверка лимита и сохранение " +
+                    "выполняются воркерами в фоне; результат доступен через GET /api/transactions/jobs/{id}."
+    )
+    @ApiResponse(responseCode = "202", description = "Задание принято",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = IngestJobResponseDto.class)))
+    @ApiResponse(responseCode = "400", description = "Некорректные входные данные (валидация)")
+    public ResponseEntity<IngestJobResponseDto> enqueueTransaction(
+            @Valid @RequestBody @Schema(description = "Данные новой транзакции") TransactionRequestDto requestDto) {
+
+        IngestJobResponseDto job = ingestJobService.enqueue(requestDto);
+
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/transactions/jobs/" + job.id()))
+                .body(job);
+    }
+
+    @GetMapping("/jobs/{id}")
+    @Operation(
+            summary = "Получить статус и результат задания",
+            description = "Статус задания (QUEUED, PROCESSING, DONE, FAILED), число попыток и, после обработки, " +
+                    "id сохранённой транзакции, сумма в USD и признак превышения лимита либо текст ошибки."
+    )
+    @ApiResponse(responseCode = "200", description = "Задание найдено",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = IngestJobResponseDto.class)))
+    @ApiResponse(responseCode = "404", description = "Задание не найдено")
+    public ResponseEntity<IngestJobResponseDto> getJob(@PathVariable UUID id) {
+        return ResponseEntity.ok(ingestJobService.getJob(id));
+    }
+
+    @PostMapping("/buffered")
+    @Operation(
+            summary = "Принять расходную операцию через локальный журнал",
+            description = "Проверяет входные данные, дописывает операцию в локальный журнал (WAL) и отвечает 202 " +
+                    "с номером записи, как только журнал сброшен на диск. Сброс общий для всех одновременных " +
+                    "запросов. Конвертация, проверка лимита и сохранение выполняются в фоне; после сбоя " +
+                    "непроведённые записи журнала проводятся при следующем старте."
+    )
+    @ApiResponse(responseCode = "202", description = "Операция записана в журнал",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = BufferedTransactionAckDto.class)))
+    @ApiResponse(responseCode = "400", description = "Некорректные входные данные (валидация)")
+    public ResponseEntity<BufferedTransactionAckDto> bufferTransaction(
+            @Valid @RequestBody @Schema(description = "Данные новой транзакции") TransactionRequestDto requestDto) {
+
+        return ResponseEntity.accepted().body(bufferedIngestService.accept(requestDto));
+    }
+
     @GetMapping("/exceeded")
     @Operation(
             summary = "Получить список транзакций, превысивших лимит",
@@ -126,4 +232,61 @@ public class TransactionController {
         List<ExceededTransactionResponseDto> exceeded = transactionService.getExceededTransactions();
         return ResponseEntity.ok(exceeded);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/exceeded/page")
+    @Operation(
+            summary = "Получить страницу транзакций, превысивших лимит",
+            description = "Постраничная выдача превысивших лимит транзакций от новых к старым (по datetime, затем id). " +
+                    "Следующая страница запрашивается с cursor из nextCursor предыдущего ответа; nextCursor = null " +
+                    "на последней странице. Фильтры необязательны, интервал дат полуоткрытый [from, to)."
+    )
+    @ApiResponse(responseCode = "200", description = "Страница превысивших транзакций",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = ExceededTransactionPageDto.class)))
+    @ApiResponse(responseCode = "400", description = "Некорректный курсор, размер страницы или интервал дат")
+    public ResponseEntity<ExceededTransactionPageDto> getExceededTransactionsPage(
+            @Parameter(description = "Категория расходов") @RequestParam(required = false) ExpenseCategory category,
+            @Parameter(description = "Начало интервала (включительно), ISO-8601")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @Parameter(description = "Конец интервала (не включительно), ISO-8601")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @Parameter(description = "Счёт списания") @RequestParam(required = false) String accountFrom,
+            @Parameter(description = "Курсор из nextCursor предыдущей страницы") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы, от 1 до 500") @RequestParam(defaultValue = "50") int size) {
+
+        ExceededTransactionFilter filter = new ExceededTransactionFilter(category, from, to, accountFrom);
+        return ResponseEntity.ok(transactionService.getExceededTransactionsPage(filter, cursor, size));
+    }
+
+    @GetMapping(value = "/exceeded/export", produces = {"application/x-ndjson", "text/csv"})
+    @Operation(
+            summary = "Выгрузить все транзакции, превысившие лимит",
+            description = "Потоковая выгрузка превысивших лимит транзакций от новых к старым в формате NDJSON " +
+                    "(по умолчанию) или CSV с заголовком. Строки читаются из БД курсором и сразу пишутся в ответ, " +
+                    "весь список в памяти не собирается. Фильтры те же, что у /exceeded/page."
+    )
+    @ApiResponse(responseCode = "200", description = "Поток строк выгрузки",
+            content = {
+                    @Content(mediaType = "application/x-ndjson",
+                            schema = @Schema(implementation = ExceededTransactionResponseDto.class)),
+                    @Content(mediaType = "text/csv")
+            })
+    public ResponseEntity<StreamingResponseBody> exportExceededTransactions(
+            @Parameter(description = "Формат выгрузки: NDJSON или CSV") @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @Parameter(description = "Категория расходов") @RequestParam(required = false) ExpenseCategory category,
+            @Parameter(description = "Начало интервала (включительно), ISO-8601")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @Parameter(description = "Конец интервала (не включительно), ISO-8601")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @Parameter(description = "Счёт списания") @RequestParam(required = false) String accountFrom) {
+
+        ExceededTransactionFilter filter = new ExceededTransactionFilter(category, from, to, accountFrom);
+        StreamingResponseBody body = output -> exceededTransactionExporter.export(filter, format, output);
+
+        String fileName = format == ExportFormat.CSV ? "exceeded-transactions.csv" : "exceeded-transactions.ndjson";
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format == ExportFormat.CSV ? "text/csv" : "application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+}
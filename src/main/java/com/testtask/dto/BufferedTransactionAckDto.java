@@ -0,0 +1,8 @@
+package com.testtask.dto;
+
+public record BufferedTransactionAckDto(
+
+        long sequence
+
+) {
+}
@@ -0,0 +1,19 @@
+package com.testtask.dto;
+
+import com.testtask.model.ExpenseCategory;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Необязательные фильтры списка превысивших лимит транзакций: null означает "без фильтра".
+ * Интервал дат полуоткрытый: [from, to).
+ */
+public record ExceededTransactionFilter(
+
+        ExpenseCategory category,
+        OffsetDateTime from,
+        OffsetDateTime to,
+        String accountFrom
+
+) {
+}
@@ -0,0 +1,11 @@
+package com.testtask.dto;
+
+import java.util.List;
+
+public record ExceededTransactionPageDto(
+
+        List<ExceededTransactionResponseDto> items,
+        String nextCursor
+
+) {
+}
@@ -0,0 +1,24 @@
+package com.testtask.dto;
+
+import com.testtask.model.IngestJobStatus;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+public record IngestJobResponseDto(
+
+        UUID id,
+        IngestJobStatus status,
+        int attempts,
+        OffsetDateTime createdAt,
+        OffsetDateTime startedAt,
+        OffsetDateTime finishedAt,
+
+        Long transactionId,
+        BigDecimal usdAmount,
+        Boolean limitExceeded,
+        String error
+
+) {
+}
@@ -0,0 +1,25 @@
+package com.testtask.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TransactionStreamResultDto(
+
+        long line,
+        Long id,
+        BigDecimal usdAmount,
+        Boolean limitExceeded,
+        String error
+
+) {
+
+    public static TransactionStreamResultDto saved(long line, Long id, BigDecimal usdAmount, boolean limitExceeded) {
+        return new TransactionStreamResultDto(line, id, usdAmount, limitExceeded, null);
+    }
+
+    public static TransactionStreamResultDto failed(long line, String error) {
+        return new TransactionStreamResultDto(line, null, null, null, error);
+    }
+}
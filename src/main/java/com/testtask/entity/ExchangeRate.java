@@ -21,7 +21,8 @@ import java.time.OffsetDateTime;
 public class ExchangeRate {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "exchange_rates_seq")
+    @SequenceGenerator(name = "exchange_rates_seq", sequenceName = "exchange_rates_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "base_currency", nullable = false)
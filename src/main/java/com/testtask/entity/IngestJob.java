@@ -0,0 +1,80 @@
+package com.testtask.entity;
+
+import com.testtask.model.ExpenseCategory;
+import com.testtask.model.IngestJobStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.TimeZoneColumn;
+import org.hibernate.annotations.TimeZoneStorage;
+import org.hibernate.annotations.TimeZoneStorageType;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "ingest_jobs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+@EqualsAndHashCode(of = "id")
+public class IngestJob {
+
+    @Id
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private IngestJobStatus status;
+
+    @Column(name = "account_from", nullable = false, length = 20)
+    private String accountFrom;
+
+    @Column(name = "account_to", nullable = false, length = 20)
+    private String accountTo;
+
+    @Column(name = "currency_shortname", nullable = false, length = 3)
+    private String currencyShortname;
+
+    @Column(name = "sum", precision = 15, scale = 2, nullable = false)
+    private BigDecimal sum;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "expense_category", nullable = false)
+    private ExpenseCategory expenseCategory;
+
+    @TimeZoneStorage(TimeZoneStorageType.COLUMN)
+    @TimeZoneColumn(name = "datetime_offset")
+    @Column(name = "datetime", nullable = false)
+    private OffsetDateTime datetime;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at")
+    private OffsetDateTime nextAttemptAt;
+
+    @Column(name = "transaction_id")
+    private Long transactionId;
+
+    @Column(name = "usd_amount", precision = 15, scale = 2)
+    private BigDecimal usdAmount;
+
+    @Column(name = "limit_exceeded")
+    private Boolean limitExceeded;
+
+    @Column(name = "error")
+    private String error;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    @Column(name = "started_at")
+    private OffsetDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private OffsetDateTime finishedAt;
+}
@@ -23,7 +23,8 @@ import java.time.OffsetDateTime;
 public class Limit {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "limits_seq")
+    @SequenceGenerator(name = "limits_seq", sequenceName = "limits_id_seq", allocationSize = 50)
     private Long id;
 
     @Enumerated(EnumType.STRING)
@@ -0,0 +1,45 @@
+package com.testtask.entity;
+
+import com.testtask.model.ExpenseCategory;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+@Entity
+@Table(name = "monthly_category_spend")
+@IdClass(MonthlyCategorySpendId.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+@EqualsAndHashCode(of = {"category", "monthStart"})
+public class MonthlyCategorySpend {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "category", nullable = false)
+    private ExpenseCategory category;
+
+    @Id
+    @Column(name = "month_start", nullable = false)
+    private OffsetDateTime monthStart;
+
+    @Column(name = "month_end", nullable = false)
+    private OffsetDateTime monthEnd;
+
+    @Column(name = "usd_total", precision = 17, scale = 2, nullable = false)
+    private BigDecimal usdTotal;
+
+    @Column(name = "tx_count", nullable = false)
+    private long txCount;
+
+    @Column(name = "last_datetime", nullable = false)
+    private OffsetDateTime lastDatetime;
+
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
+}
@@ -0,0 +1,18 @@
+package com.testtask.entity;
+
+import com.testtask.model.ExpenseCategory;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonthlyCategorySpendId implements Serializable {
+
+    private ExpenseCategory category;
+    private OffsetDateTime monthStart;
+}
@@ -21,7 +21,8 @@ import java.time.OffsetDateTime;
 public class Transaction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "account_from", nullable = false, length = 20)
@@ -53,6 +54,18 @@ public class Transaction {
     @Column(name = "limit_exceeded", nullable = false)
     private boolean limitExceeded = false;
 
+    /**
+     * Лимит, с которым сравнивалась транзакция при сохранении: установленный или дефолтный.
+     */
+    @Column(name = "limit_sum", precision = 15, scale = 2, nullable = false)
+    private BigDecimal limitSum;
+
+    @Column(name = "limit_datetime", nullable = false)
+    private OffsetDateTime limitDatetime;
+
+    @Column(name = "limit_currency", nullable = false, length = 3)
+    private String limitCurrency;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private OffsetDateTime createdAt = OffsetDateTime.now();
@@ -0,0 +1,30 @@
+package com.testtask.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+@Entity
+@Table(name = "wal_applied")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+@EqualsAndHashCode(of = "seq")
+public class WalApplied {
+
+    @Id
+    private Long seq;
+
+    @Column(name = "transaction_id")
+    private Long transactionId;
+
+    @Column(name = "error")
+    private String error;
+
+    @Column(name = "applied_at", nullable = false, insertable = false, updatable = false)
+    private OffsetDateTime appliedAt;
+}
@@ -0,0 +1,8 @@
+package com.testtask.exception;
+
+public class BatchTimeoutException extends RuntimeException {
+
+    public BatchTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.testtask.exception;
+
+public class ExchangeRateNotFoundException extends RuntimeException {
+
+    public ExchangeRateNotFoundException(String message) {
+        super(message);
+    }
+}
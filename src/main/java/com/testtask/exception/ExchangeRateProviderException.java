@@ -0,0 +1,20 @@
+package com.testtask.exception;
+
+public class ExchangeRateProviderException extends RuntimeException {
+
+    private final boolean retryable;
+
+    public ExchangeRateProviderException(String message, boolean retryable) {
+        super(message);
+        this.retryable = retryable;
+    }
+
+    public ExchangeRateProviderException(String message, Throwable cause, boolean retryable) {
+        super(message, cause);
+        this.retryable = retryable;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
@@ -67,6 +67,36 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(ExchangeRateNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleExchangeRateNotFoundException(
+            ExchangeRateNotFoundException ex, WebRequest request) {
+
+        ErrorResponse response = new ErrorResponse(
+                HttpStatus.UNPROCESSABLE_CONTENT.value(),
+                ex.getMessage(),
+                null,
+                OffsetDateTime.now(),
+                request.getDescription(false)
+        );
+
+        return new ResponseEntity<>(response, HttpStatus.UNPROCESSABLE_CONTENT);
+    }
+
+    @ExceptionHandler(BatchTimeoutException.class)
+    public ResponseEntity<ErrorResponse> handleBatchTimeoutException(
+            BatchTimeoutException ex, WebRequest request) {
+
+        ErrorResponse response = new ErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                ex.getMessage(),
+                null,
+                OffsetDateTime.now(),
+                request.getDescription(false)
+        );
+
+        return new ResponseEntity<>(response, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleGlobalException(
             Exception ex, WebRequest request) {
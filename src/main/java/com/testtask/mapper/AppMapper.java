@@ -15,6 +15,9 @@ public interface AppMapper {
     @Mapping(target = "usdAmount", ignore = true)
     @Mapping(target = "limit", ignore = true)
     @Mapping(target = "limitExceeded", ignore = true)
+    @Mapping(target = "limitSum", ignore = true)
+    @Mapping(target = "limitDatetime", ignore = true)
+    @Mapping(target = "limitCurrency", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
     Transaction toEntity(TransactionRequestDto dto);
@@ -27,4 +30,30 @@ public interface AppMapper {
     Limit toEntity(LimitRequestDto dto);
 
     LimitResponseDto toResponseDto(Limit entity);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "status", ignore = true)
+    @Mapping(target = "attempts", ignore = true)
+    @Mapping(target = "nextAttemptAt", ignore = true)
+    @Mapping(target = "transactionId", ignore = true)
+    @Mapping(target = "usdAmount", ignore = true)
+    @Mapping(target = "limitExceeded", ignore = true)
+    @Mapping(target = "error", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "startedAt", ignore = true)
+    @Mapping(target = "finishedAt", ignore = true)
+    IngestJob toJob(TransactionRequestDto dto);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "usdAmount", ignore = true)
+    @Mapping(target = "limit", ignore = true)
+    @Mapping(target = "limitExceeded", ignore = true)
+    @Mapping(target = "limitSum", ignore = true)
+    @Mapping(target = "limitDatetime", ignore = true)
+    @Mapping(target = "limitCurrency", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
+    Transaction toTransaction(IngestJob job);
+
+    IngestJobResponseDto toResponseDto(IngestJob job);
 }
\ No newline at end of file
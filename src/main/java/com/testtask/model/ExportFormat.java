@@ -0,0 +1,6 @@
+package com.testtask.model;
+
+public enum ExportFormat {
+    NDJSON,
+    CSV
+}
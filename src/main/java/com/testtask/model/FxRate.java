@@ -0,0 +1,22 @@
+package com.testtask.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Курс валюты к USD в фиксированной точке: целое число единиц 10^-8, как в exchange_rates.rate (DECIMAL(18,8)).
+ */
+public record FxRate(long units) {
+
+    public static final int SCALE = 8;
+
+    /**
+     * Точное представление курса; ArithmeticException, если у него больше {@link #SCALE} знаков после запятой.
+     */
+    public static FxRate of(BigDecimal rate) {
+        return new FxRate(rate.setScale(SCALE).movePointRight(SCALE).longValueExact());
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(units, SCALE);
+    }
+}
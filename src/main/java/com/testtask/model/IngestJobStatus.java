@@ -0,0 +1,8 @@
+package com.testtask.model;
+
+public enum IngestJobStatus {
+    QUEUED,
+    PROCESSING,
+    DONE,
+    FAILED
+}
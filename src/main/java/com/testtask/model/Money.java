@@ -0,0 +1,79 @@
+package com.testtask.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Денежная сумма в фиксированной точке: целое число центов (масштаб 2, как у sum, usd_amount и limit_sum).
+ * Конвертация и сравнение с лимитом на горячем пути идут в long без промежуточных BigDecimal;
+ * результаты совпадают с прежними BigDecimal-вычислениями, включая округление HALF_UP.
+ */
+public record Money(long cents) implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+    public static final Money ZERO = new Money(0);
+
+    private static final long RATE_ONE = 100_000_000L;
+    private static final long MAX_DIRECT_CENTS = Long.MAX_VALUE / RATE_ONE;
+
+    /**
+     * Точное представление суммы; ArithmeticException, если у неё больше {@link #SCALE} знаков после запятой
+     * или она не помещается в long.
+     */
+    public static Money of(BigDecimal amount) {
+        return new Money(amount.setScale(SCALE).movePointRight(SCALE).longValueExact());
+    }
+
+    /**
+     * sum / rate с округлением HALF_UP до центов — то же, что {@code sum.divide(rate, 2, HALF_UP)}.
+     * Значения с лишними знаками после запятой (в схеме их не бывает) считаются через BigDecimal.
+     */
+    public static Money convert(BigDecimal sum, BigDecimal rate) {
+        if (sum.scale() <= SCALE && rate.scale() <= FxRate.SCALE) {
+            return of(sum).divide(FxRate.of(rate));
+        }
+        return of(sum.divide(rate, SCALE, RoundingMode.HALF_UP));
+    }
+
+    /**
+     * Сумма в валюте курса, пересчитанная в USD: cents / 100 / (units / 10^8) = cents * 10^8 / units центов.
+     * Если cents * 10^8 не помещается в long (суммы от ~922 млн) или модуль не представим, деление идёт через BigDecimal.
+     */
+    public Money divide(FxRate rate) {
+        long units = rate.units();
+        if (units == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        long dividend = Math.abs(cents);
+        long divisor = Math.abs(units);
+        if (dividend > MAX_DIRECT_CENTS || dividend < 0 || divisor < 0) {
+            return of(toBigDecimal().divide(rate.toBigDecimal(), SCALE, RoundingMode.HALF_UP));
+        }
+
+        long scaled = dividend * RATE_ONE;
+        long quotient = scaled / divisor;
+        long remainder = scaled - quotient * divisor;
+        // HALF_UP: половина и больше округляется от нуля; 2 * remainder >= divisor без переполнения
+        if (remainder >= divisor - remainder) {
+            quotient++;
+        }
+        return new Money((cents < 0) != (units < 0) ? -quotient : quotient);
+    }
+
+    public Money plus(Money other) {
+        return new Money(Math.addExact(cents, other.cents));
+    }
+
+    public boolean isGreaterThan(Money other) {
+        return cents > other.cents;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+}
@@ -2,17 +2,39 @@ package com.testtask.repository;
 
 import com.testtask.entity.ExchangeRate;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Optional;
 
 @Repository
-public interface ExchangeRateRepository extends JpaRepository<ExchangeRate, Long> {
+public interface ExchangeRateRepository extends JpaRepository<ExchangeRate, Long>, ExchangeRateRepositoryCustom {
 
     Optional<ExchangeRate> findByBaseCurrencyAndTargetCurrencyAndRateDate(
             String baseCurrency, String targetCurrency, LocalDate rateDate);
 
     Optional<ExchangeRate> findFirstByBaseCurrencyAndTargetCurrencyAndRateDateLessThanEqualOrderByRateDateDesc(
             String baseCurrency, String targetCurrency, LocalDate date);
+
+    Optional<ExchangeRate> findFirstByBaseCurrencyAndTargetCurrencyOrderByRateDateDesc(
+            String baseCurrency, String targetCurrency);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+    INSERT INTO exchange_rates (base_currency, target_currency, rate_date, rate, source)
+    VALUES (:baseCurrency, :targetCurrency, :rateDate, :rate, :source)
+    ON CONFLICT (base_currency, target_currency, rate_date) DO NOTHING
+    """, nativeQuery = true)
+    int insertIfAbsent(
+            @Param("baseCurrency") String baseCurrency,
+            @Param("targetCurrency") String targetCurrency,
+            @Param("rateDate") LocalDate rateDate,
+            @Param("rate") BigDecimal rate,
+            @Param("source") String source);
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.testtask.repository;
+
+import com.testtask.entity.ExchangeRate;
+
+import java.util.List;
+
+public interface ExchangeRateRepositoryCustom {
+
+    void upsertAll(List<ExchangeRate> rates);
+}
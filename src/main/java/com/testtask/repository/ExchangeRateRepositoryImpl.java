@@ -0,0 +1,42 @@
+package com.testtask.repository;
+
+import com.testtask.entity.ExchangeRate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class ExchangeRateRepositoryImpl implements ExchangeRateRepositoryCustom {
+
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * Первый день каждой выгрузки приходит без previous_rate (предыдущий день в окно не попал),
+     * поэтому уже сохранённое значение не затирается пустым.
+     */
+    private static final String UPSERT_SQL = """
+            INSERT INTO exchange_rates (base_currency, target_currency, rate_date, rate, previous_rate, source)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (base_currency, target_currency, rate_date) DO UPDATE
+                SET rate          = EXCLUDED.rate,
+                    previous_rate = COALESCE(EXCLUDED.previous_rate, exchange_rates.previous_rate),
+                    source        = EXCLUDED.source,
+                    updated_at    = CURRENT_TIMESTAMP
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void upsertAll(List<ExchangeRate> rates) {
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rates, BATCH_SIZE, (ps, rate) -> {
+            ps.setString(1, rate.getBaseCurrency());
+            ps.setString(2, rate.getTargetCurrency());
+            ps.setDate(3, Date.valueOf(rate.getRateDate()));
+            ps.setBigDecimal(4, rate.getRate());
+            ps.setBigDecimal(5, rate.getPreviousRate());
+            ps.setString(6, rate.getSource());
+        });
+    }
+}
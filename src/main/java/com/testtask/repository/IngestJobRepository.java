@@ -0,0 +1,122 @@
+package com.testtask.repository;
+
+import com.testtask.entity.IngestJob;
+import com.testtask.model.IngestJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface IngestJobRepository extends JpaRepository<IngestJob, UUID> {
+
+    /**
+     * Забирает пачку заданий в обработку. Задания, чьи воркеры не отчитались за leaseSeconds,
+     * считаются брошенными и забираются повторно, пока не исчерпаны maxAttempts: результат пишется
+     * в одной транзакции со вставкой, поэтому незавершённое задание транзакцию не создало. Задания,
+     * отложенные после ошибки, ждут своего next_attempt_at. attempts растёт при каждом захвате
+     * и служит номером аренды: отчитаться может только воркер с последним номером.
+     */
+    @Transactional
+    @Query(value = """
+    UPDATE ingest_jobs
+    SET status     = 'PROCESSING',
+        started_at = CURRENT_TIMESTAMP,
+        attempts   = attempts + 1
+    WHERE id IN (
+        SELECT id
+        FROM ingest_jobs
+        WHERE (status = 'QUEUED' AND (next_attempt_at IS NULL OR next_attempt_at <= CURRENT_TIMESTAMP))
+           OR (status = 'PROCESSING' AND started_at < CURRENT_TIMESTAMP - make_interval(secs => :leaseSeconds)
+               AND attempts < :maxAttempts)
+        ORDER BY created_at
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+    )
+    RETURNING *
+    """, nativeQuery = true)
+    List<IngestJob> claimBatch(
+            @Param("limit") int limit,
+            @Param("leaseSeconds") long leaseSeconds,
+            @Param("maxAttempts") int maxAttempts);
+
+    /**
+     * Переводит в FAILED брошенные задания, у которых не осталось попыток: иначе воркер, падающий
+     * на задании, забирал бы его снова без ограничения числа попыток.
+     */
+    @Modifying
+    @Query(value = """
+    UPDATE ingest_jobs
+    SET status      = 'FAILED',
+        error       = 'Lease expired after ' || attempts || ' attempts',
+        finished_at = CURRENT_TIMESTAMP
+    WHERE status = 'PROCESSING'
+      AND started_at < CURRENT_TIMESTAMP - make_interval(secs => :leaseSeconds)
+      AND attempts >= :maxAttempts
+    """, nativeQuery = true)
+    int failAbandoned(@Param("leaseSeconds") long leaseSeconds, @Param("maxAttempts") int maxAttempts);
+
+    /**
+     * Записывает результат, если задание всё ещё в аренде с номером attempts. 0 - аренду перехватил
+     * другой воркер, и результат нужно откатить.
+     */
+    @Modifying
+    @Query("UPDATE IngestJob j " +
+            "SET j.status = com.testtask.model.IngestJobStatus.DONE, " +
+            "    j.transactionId = :transactionId, " +
+            "    j.usdAmount = :usdAmount, " +
+            "    j.limitExceeded = :limitExceeded, " +
+            "    j.error = null, " +
+            "    j.finishedAt = CURRENT_TIMESTAMP " +
+            "WHERE j.id = :id " +
+            "  AND j.status = com.testtask.model.IngestJobStatus.PROCESSING " +
+            "  AND j.attempts = :attempts")
+    int complete(
+            @Param("id") UUID id,
+            @Param("attempts") int attempts,
+            @Param("transactionId") Long transactionId,
+            @Param("usdAmount") BigDecimal usdAmount,
+            @Param("limitExceeded") boolean limitExceeded);
+
+    @Modifying
+    @Query("UPDATE IngestJob j " +
+            "SET j.status = com.testtask.model.IngestJobStatus.FAILED, " +
+            "    j.error = :error, " +
+            "    j.finishedAt = CURRENT_TIMESTAMP " +
+            "WHERE j.id = :id " +
+            "  AND j.status = com.testtask.model.IngestJobStatus.PROCESSING " +
+            "  AND j.attempts = :attempts")
+    int fail(@Param("id") UUID id, @Param("attempts") int attempts, @Param("error") String error);
+
+    /**
+     * Возвращает задание в очередь после ошибки; забрать его можно будет не раньше чем через delaySeconds
+     * по часам БД, как и аренда в claimBatch. Как и complete, действует только в аренде с номером attempts.
+     */
+    @Modifying
+    @Query(value = """
+    UPDATE ingest_jobs
+    SET status          = 'QUEUED',
+        error           = :error,
+        next_attempt_at = CURRENT_TIMESTAMP + make_interval(secs => :delaySeconds)
+    WHERE id = :id
+      AND status = 'PROCESSING'
+      AND attempts = :attempts
+    """, nativeQuery = true)
+    int requeue(
+            @Param("id") UUID id,
+            @Param("attempts") int attempts,
+            @Param("error") String error,
+            @Param("delaySeconds") double delaySeconds);
+
+    long countByStatus(IngestJobStatus status);
+
+    @Query("SELECT MIN(j.createdAt) FROM IngestJob j WHERE j.status = com.testtask.model.IngestJobStatus.QUEUED")
+    OffsetDateTime findOldestQueuedCreatedAt();
+}
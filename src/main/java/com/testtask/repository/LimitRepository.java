@@ -17,8 +17,4 @@ public interface LimitRepository extends JpaRepository<Limit, Long> {
             OffsetDateTime datetime);
 
     List<Limit> findAllByOrderByLimitDatetimeDesc();
-
-    Optional<Limit> findFirstByCategoryAndLimitDatetimeLessThanOrderByLimitDatetimeDesc(
-            ExpenseCategory category,
-            OffsetDateTime datetime);
 }
\ No newline at end of file
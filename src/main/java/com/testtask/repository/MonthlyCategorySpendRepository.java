@@ -0,0 +1,212 @@
+package com.testtask.repository;
+
+import com.testtask.entity.MonthlyCategorySpend;
+import com.testtask.entity.MonthlyCategorySpendId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface MonthlyCategorySpendRepository extends JpaRepository<MonthlyCategorySpend, MonthlyCategorySpendId> {
+
+    @Transactional
+    @Query(value = """
+    UPDATE monthly_category_spend
+    SET usd_total     = usd_total + :amount,
+        tx_count      = tx_count + :count,
+        last_datetime = GREATEST(last_datetime, :datetime),
+        updated_at    = CURRENT_TIMESTAMP
+    WHERE category = :category
+      AND month_start = :monthStart
+    RETURNING category,
+              CAST(EXTRACT(EPOCH FROM month_start) * 1000000 AS BIGINT)   AS monthStartMicros,
+              usd_total                                                 AS usdTotal,
+              tx_count                                                  AS txCount,
+              CAST(EXTRACT(EPOCH FROM last_datetime) * 1000000 AS BIGINT) AS lastDatetimeMicros
+    """, nativeQuery = true)
+    List<SpendTotals> addSpend(
+            @Param("category") String category,
+            @Param("monthStart") OffsetDateTime monthStart,
+            @Param("datetime") OffsetDateTime datetime,
+            @Param("amount") BigDecimal amount,
+            @Param("count") long count);
+
+    /**
+     * Границы месяца считаются в смещении транзакции, поэтому одна транзакция может попадать
+     * и в строки, созданные для других смещений.
+     */
+    @Transactional
+    @Query(value = """
+    UPDATE monthly_category_spend
+    SET usd_total     = usd_total + :amount,
+        tx_count      = tx_count + 1,
+        last_datetime = GREATEST(last_datetime, :datetime),
+        updated_at    = CURRENT_TIMESTAMP
+    WHERE category = :category
+      AND month_start <> :monthStart
+      AND month_start <= :datetime
+      AND month_end > :datetime
+    RETURNING category,
+              CAST(EXTRACT(EPOCH FROM month_start) * 1000000 AS BIGINT)   AS monthStartMicros,
+              usd_total                                                 AS usdTotal,
+              tx_count                                                  AS txCount,
+              CAST(EXTRACT(EPOCH FROM last_datetime) * 1000000 AS BIGINT) AS lastDatetimeMicros
+    """, nativeQuery = true)
+    List<SpendTotals> addSpendToOverlapping(
+            @Param("category") String category,
+            @Param("monthStart") OffsetDateTime monthStart,
+            @Param("datetime") OffsetDateTime datetime,
+            @Param("amount") BigDecimal amount);
+
+    /**
+     * То же, что addSpendToOverlapping, но для уже сохранённой пачки транзакций: каждая строка
+     * другого смещения получает только те транзакции из ids, что попадают в её границы.
+     */
+    @Transactional
+    @Query(value = """
+    UPDATE monthly_category_spend s
+    SET usd_total     = s.usd_total + d.amount,
+        tx_count      = s.tx_count + d.tx_count,
+        last_datetime = GREATEST(s.last_datetime, d.last_datetime),
+        updated_at    = CURRENT_TIMESTAMP
+    FROM (
+        SELECT o.category, o.month_start,
+               SUM(t.usd_amount) AS amount,
+               COUNT(t.id)       AS tx_count,
+               MAX(t.datetime)   AS last_datetime
+        FROM monthly_category_spend o
+        JOIN transactions t
+          ON t.expense_category = o.category
+         AND t.datetime >= o.month_start
+         AND t.datetime < o.month_end
+        WHERE o.category = :category
+          AND o.month_start <> :monthStart
+          AND t.id IN (:ids)
+        GROUP BY o.category, o.month_start
+    ) d
+    WHERE s.category = d.category
+      AND s.month_start = d.month_start
+    RETURNING s.category,
+              CAST(EXTRACT(EPOCH FROM s.month_start) * 1000000 AS BIGINT)   AS monthStartMicros,
+              s.usd_total                                                   AS usdTotal,
+              s.tx_count                                                    AS txCount,
+              CAST(EXTRACT(EPOCH FROM s.last_datetime) * 1000000 AS BIGINT) AS lastDatetimeMicros
+    """, nativeQuery = true)
+    List<SpendTotals> addTransactionsToOverlapping(
+            @Param("category") String category,
+            @Param("monthStart") OffsetDateTime monthStart,
+            @Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Query(value = """
+    INSERT INTO monthly_category_spend (category, month_start, month_end, usd_total, tx_count, last_datetime)
+    SELECT :category, :monthStart, :monthEnd,
+           COALESCE(SUM(t.usd_amount), 0),
+           COUNT(t.id),
+           COALESCE(MAX(t.datetime), :monthStart)
+    FROM transactions t
+    WHERE t.expense_category = :category
+      AND t.datetime >= :monthStart
+      AND t.datetime < :monthEnd
+    ON CONFLICT (category, month_start) DO NOTHING
+    RETURNING category,
+              CAST(EXTRACT(EPOCH FROM month_start) * 1000000 AS BIGINT)   AS monthStartMicros,
+              usd_total                                                 AS usdTotal,
+              tx_count                                                  AS txCount,
+              CAST(EXTRACT(EPOCH FROM last_datetime) * 1000000 AS BIGINT) AS lastDatetimeMicros
+    """, nativeQuery = true)
+    List<SpendTotals> createFromTransactions(
+            @Param("category") String category,
+            @Param("monthStart") OffsetDateTime monthStart,
+            @Param("monthEnd") OffsetDateTime monthEnd);
+
+    @Query(value = "SELECT count(*) FROM (SELECT 1 FROM monthly_category_spend ORDER BY category, month_start FOR UPDATE) locked",
+            nativeQuery = true)
+    long lockAll();
+
+    /**
+     * Агрегаты, начинающиеся раньше retainedFrom, не пересчитываются: часть их транзакций
+     * могла уйти из transactions вместе с отсоединёнными секциями. null — пересчитать все.
+     */
+    @Query(value = """
+    WITH actual AS (
+        SELECT s.category,
+               s.month_start,
+               COALESCE(SUM(t.usd_amount), 0)      AS usd_total,
+               COUNT(t.id)                         AS tx_count,
+               COALESCE(MAX(t.datetime), s.month_start) AS last_datetime
+        FROM monthly_category_spend s
+        LEFT JOIN transactions t
+               ON t.expense_category = s.category
+              AND t.datetime >= s.month_start
+              AND t.datetime < s.month_end
+        WHERE CAST(:retainedFrom AS TIMESTAMPTZ) IS NULL
+           OR s.month_start >= CAST(:retainedFrom AS TIMESTAMPTZ)
+        GROUP BY s.category, s.month_start
+    ),
+    drift AS (
+        SELECT s.category,
+               s.month_start,
+               s.usd_total  AS recorded_total,
+               a.usd_total  AS actual_total,
+               s.tx_count   AS recorded_count,
+               a.tx_count   AS actual_count,
+               a.last_datetime
+        FROM monthly_category_spend s
+        JOIN actual a ON a.category = s.category AND a.month_start = s.month_start
+        WHERE s.usd_total <> a.usd_total
+           OR s.tx_count <> a.tx_count
+    )
+    UPDATE monthly_category_spend s
+    SET usd_total     = d.actual_total,
+        tx_count      = d.actual_count,
+        last_datetime = d.last_datetime,
+        updated_at    = CURRENT_TIMESTAMP
+    FROM drift d
+    WHERE s.category = d.category
+      AND s.month_start = d.month_start
+    RETURNING d.category          AS category,
+              d.month_start::text AS monthStart,
+              d.recorded_total AS recordedTotal,
+              d.actual_total   AS actualTotal,
+              d.recorded_count AS recordedCount,
+              d.actual_count   AS actualCount
+    """, nativeQuery = true)
+    List<SpendDrift> rebuildFromTransactions(@Param("retainedFrom") OffsetDateTime retainedFrom);
+
+    /**
+     * Состояние строки агрегата сразу после изменения; моменты времени в микросекундах эпохи.
+     */
+    interface SpendTotals {
+        String getCategory();
+
+        Long getMonthStartMicros();
+
+        BigDecimal getUsdTotal();
+
+        Long getTxCount();
+
+        Long getLastDatetimeMicros();
+    }
+
+    interface SpendDrift {
+        String getCategory();
+
+        String getMonthStart();
+
+        BigDecimal getRecordedTotal();
+
+        BigDecimal getActualTotal();
+
+        Long getRecordedCount();
+
+        Long getActualCount();
+    }
+}
@@ -0,0 +1,121 @@
+package com.testtask.repository;
+
+import com.testtask.archive.ArchivedTransaction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+
+/**
+ * Чтение и удаление строк месяца для архивации. Месяц — в UTC, как и секции transactions.
+ */
+@Repository
+public class TransactionArchiveRepository {
+
+    private static final String COLUMNS = """
+            id, account_from, account_to, currency_shortname, sum, expense_category, datetime, usd_amount,
+            limit_id, limit_exceeded, created_at, updated_at, limit_sum, limit_datetime, limit_currency
+            """;
+
+    private static final RowMapper<ArchivedTransaction> ROW = (rs, rowNum) -> new ArchivedTransaction(
+            rs.getLong("id"),
+            rs.getString("account_from"),
+            rs.getString("account_to"),
+            rs.getString("currency_shortname"),
+            rs.getBigDecimal("sum"),
+            rs.getString("expense_category"),
+            instant(rs.getObject("datetime", OffsetDateTime.class)),
+            rs.getBigDecimal("usd_amount"),
+            rs.getObject("limit_id", Long.class),
+            rs.getBoolean("limit_exceeded"),
+            instant(rs.getObject("created_at", OffsetDateTime.class)),
+            instant(rs.getObject("updated_at", OffsetDateTime.class)),
+            rs.getBigDecimal("limit_sum"),
+            instant(rs.getObject("limit_datetime", OffsetDateTime.class)),
+            rs.getString("limit_currency"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    public TransactionArchiveRepository(
+            JdbcTemplate jdbcTemplate,
+            @Value("${transaction-archive.fetch-size:1000}") int fetchSize) {
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    public Optional<YearMonth> findOldestMonth() {
+        OffsetDateTime oldest = jdbcTemplate.queryForObject("SELECT MIN(datetime) FROM transactions", OffsetDateTime.class);
+        return Optional.ofNullable(oldest).map(datetime -> YearMonth.from(datetime.withOffsetSameInstant(ZoneOffset.UTC)));
+    }
+
+    public boolean hasRows(YearMonth month) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM transactions WHERE datetime >= ? AND datetime < ?)",
+                Boolean.class, start(month), start(month.plusMonths(1))));
+    }
+
+    /**
+     * Строки месяца, которые видны через transactions, по (datetime, id) DESC. После отсоединения секции
+     * месяца это только строки секции по умолчанию, добавленные задним числом, — их немного.
+     */
+    public List<ArchivedTransaction> findRows(YearMonth month) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + """
+                        FROM transactions
+                        WHERE datetime >= ? AND datetime < ?
+                        ORDER BY datetime DESC, id DESC
+                        """,
+                ROW, start(month), start(month.plusMonths(1)));
+    }
+
+    /**
+     * Все строки отсоединённой секции месяца по (datetime, id) DESC — в порядке выдачи превысивших лимит.
+     * Вызывать внутри транзакции: иначе PostgreSQL не отдаёт строки порциями.
+     */
+    public void streamDetachedPartition(YearMonth month, Consumer<ArchivedTransaction> consumer) {
+        streamingJdbcTemplate.query("SELECT " + COLUMNS + " FROM " + TransactionPartitionRepository.partitionName(month)
+                        + " ORDER BY datetime DESC, id DESC",
+                (RowCallbackHandler) rs -> consumer.accept(ROW.mapRow(rs, rs.getRow())));
+    }
+
+    /**
+     * Удаляет отсоединённую секцию месяца. Повторный вызов ничего не делает.
+     */
+    public void dropDetachedPartition(YearMonth month) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + TransactionPartitionRepository.partitionName(month));
+    }
+
+    /**
+     * Удаляет из transactions строки месяца с указанными id. Строки, вставленные после выгрузки, остаются.
+     */
+    public void deleteRows(YearMonth month, long[] ids) {
+        if (ids.length == 0) {
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM transactions WHERE datetime >= ? AND datetime < ? AND id = ANY(?)", ps -> {
+            ps.setObject(1, start(month));
+            ps.setObject(2, start(month.plusMonths(1)));
+            ps.setArray(3, ps.getConnection().createArrayOf("bigint", LongStream.of(ids).boxed().toArray()));
+        });
+    }
+
+    public static OffsetDateTime start(YearMonth month) {
+        return month.atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC);
+    }
+
+    private static Instant instant(OffsetDateTime datetime) {
+        return datetime == null ? null : datetime.toInstant();
+    }
+}
@@ -0,0 +1,81 @@
+package com.testtask.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Месячные секции transactions. Сами операции — функции БД из V8, здесь только их вызов.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionPartitionRepository {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final String PARTITION_PREFIX = "transactions_";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Создаёт секцию месяца, если её ещё нет. Возвращает true, если секция создана.
+     */
+    public boolean createPartition(YearMonth month) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT create_transactions_partition(?)", Boolean.class, month.atDay(1)));
+    }
+
+    /**
+     * Отсоединяет секцию месяца. Возвращает true, если секция была присоединена.
+     */
+    public boolean detachPartition(YearMonth month) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT detach_transactions_partition(?)", Boolean.class, month.atDay(1)));
+    }
+
+    /**
+     * Месяцы присоединённых секций по возрастанию (без секции по умолчанию).
+     */
+    public List<YearMonth> findAttachedMonths() {
+        return jdbcTemplate.queryForList("""
+                        SELECT c.relname
+                        FROM pg_inherits i
+                        JOIN pg_class c ON c.oid = i.inhrelid
+                        WHERE i.inhparent = 'transactions'::regclass
+                          AND c.relname ~ '^transactions_[0-9]{4}_[0-9]{2}$'
+                        ORDER BY c.relname
+                        """, String.class)
+                .stream()
+                .map(TransactionPartitionRepository::monthOf)
+                .toList();
+    }
+
+    /**
+     * Месяцы отсоединённых секций, которые ещё лежат отдельными таблицами.
+     */
+    public List<YearMonth> findDetachedMonths() {
+        return jdbcTemplate.queryForList("""
+                        SELECT c.relname
+                        FROM pg_class c
+                        WHERE c.relkind = 'r'
+                          AND c.relname ~ '^transactions_[0-9]{4}_[0-9]{2}$'
+                          AND c.relnamespace = 'public'::regnamespace
+                          AND NOT EXISTS (SELECT 1 FROM pg_inherits i WHERE i.inhrelid = c.oid)
+                        ORDER BY c.relname
+                        """, String.class)
+                .stream()
+                .map(TransactionPartitionRepository::monthOf)
+                .toList();
+    }
+
+    public static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+
+    private static YearMonth monthOf(String partitionName) {
+        return YearMonth.parse(partitionName.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+    }
+}
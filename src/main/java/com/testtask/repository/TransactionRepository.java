@@ -13,7 +13,7 @@ import java.time.OffsetDateTime;
 import java.util.List;
 
 @Repository
-public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+public interface TransactionRepository extends JpaRepository<Transaction, Long>, TransactionRepositoryCustom {
 
     @Query("SELECT COALESCE(SUM(t.usdAmount), 0) " +
             "FROM Transaction t " +
@@ -25,8 +25,19 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
             @Param("limitStart") OffsetDateTime limitStart,
             @Param("transactionEnd") OffsetDateTime transactionEnd);
 
+    @Query("SELECT t.datetime AS datetime, t.usdAmount AS usdAmount " +
+            "FROM Transaction t " +
+            "WHERE t.expenseCategory = :category " +
+            "  AND t.datetime >= :from " +
+            "  AND t.datetime < :to " +
+            "ORDER BY t.datetime")
+    List<UsdAmountAt> findUsdAmountsBetween(
+            @Param("category") ExpenseCategory category,
+            @Param("from") OffsetDateTime from,
+            @Param("to") OffsetDateTime to);
+
     @Query(value = """
-    SELECT 
+    SELECT
         t.id,
         t.account_from          AS accountFrom,
         t.account_to            AS accountTo,
@@ -35,26 +46,18 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
         t.expense_category      AS expenseCategory,
         t.datetime              AS datetime,
         t.usd_amount            AS usdAmount,
-        
-        COALESCE(l.limit_sum, 1000.00)          AS limitSum,
-        COALESCE(l.limit_datetime, 
-                 date_trunc('month', t.datetime)) AS limitDatetime,
-        'USD'                                   AS limitCurrencyShortname
-        
+        t.limit_sum             AS limitSum,
+        t.limit_datetime        AS limitDatetime,
+        t.limit_currency        AS limitCurrencyShortname
     FROM transactions t
-    
-    LEFT JOIN LATERAL (
-        SELECT *
-        FROM limits l2
-        WHERE l2.category = t.expense_category
-          AND l2.limit_datetime <= t.datetime
-        ORDER BY l2.limit_datetime DESC
-        LIMIT 1
-    ) l ON true
-    
     WHERE t.limit_exceeded = true
-    
     ORDER BY t.datetime DESC
     """, nativeQuery = true)
     List<ExceededTransactionResponseDto> findAllExceededWithLimitInfo();
-}
\ No newline at end of file
+
+    interface UsdAmountAt {
+        OffsetDateTime getDatetime();
+
+        BigDecimal getUsdAmount();
+    }
+}
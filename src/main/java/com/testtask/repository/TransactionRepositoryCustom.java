@@ -0,0 +1,21 @@
+package com.testtask.repository;
+
+import com.testtask.dto.ExceededTransactionFilter;
+import com.testtask.dto.ExceededTransactionResponseDto;
+import com.testtask.model.ExceededCursor;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface TransactionRepositoryCustom {
+
+    /**
+     * До limit превысивших лимит транзакций по (datetime, id) DESC, строго после after (если задан).
+     */
+    List<ExceededTransactionResponseDto> findExceededPage(ExceededTransactionFilter filter, ExceededCursor after, int limit);
+
+    /**
+     * Все превысившие лимит транзакции по (datetime, id) DESC, построчно в consumer без накопления в памяти.
+     */
+    void streamExceeded(ExceededTransactionFilter filter, Consumer<ExceededTransactionResponseDto> consumer);
+}
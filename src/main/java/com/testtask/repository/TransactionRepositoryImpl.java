@@ -0,0 +1,123 @@
+package com.testtask.repository;
+
+import com.testtask.dto.ExceededTransactionFilter;
+import com.testtask.dto.ExceededTransactionResponseDto;
+import com.testtask.model.ExceededCursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Условия WHERE собираются только из заданных фильтров, чтобы каждая комбинация фильтров
+ * получала свой план и попадала в частичные индексы из V6, а не в общий план с "IS NULL OR".
+ */
+public class TransactionRepositoryImpl implements TransactionRepositoryCustom {
+
+    private static final String SELECT_EXCEEDED = """
+            SELECT
+                t.id,
+                t.account_from,
+                t.account_to,
+                t.currency_shortname,
+                t.sum,
+                t.expense_category,
+                t.datetime,
+                t.usd_amount,
+                t.limit_sum,
+                t.limit_datetime,
+                t.limit_currency
+            FROM transactions t
+            WHERE t.limit_exceeded = true
+            """;
+
+    private static final RowMapper<ExceededTransactionResponseDto> EXCEEDED_ROW = (rs, rowNum) ->
+            new ExceededTransactionResponseDto(
+                    rs.getLong("id"),
+                    rs.getString("account_from"),
+                    rs.getString("account_to"),
+                    rs.getString("currency_shortname"),
+                    rs.getBigDecimal("sum"),
+                    rs.getString("expense_category"),
+                    rs.getObject("datetime", OffsetDateTime.class).toInstant(),
+                    rs.getBigDecimal("usd_amount"),
+                    rs.getBigDecimal("limit_sum"),
+                    rs.getObject("limit_datetime", OffsetDateTime.class).toInstant(),
+                    rs.getString("limit_currency"));
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+
+    public TransactionRepositoryImpl(
+            NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+            @Value("${exceeded-export.fetch-size:1000}") int fetchSize) {
+
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+
+        JdbcTemplate streaming = new JdbcTemplate(namedParameterJdbcTemplate.getJdbcTemplate().getDataSource());
+        streaming.setFetchSize(fetchSize);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streaming);
+    }
+
+    @Override
+    public List<ExceededTransactionResponseDto> findExceededPage(
+            ExceededTransactionFilter filter, ExceededCursor after, int limit) {
+
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringBuilder sql = exceededQuery(filter, params);
+
+        if (after != null) {
+            sql.append("  AND (t.datetime, t.id) < (:afterDatetime, :afterId)\n");
+            params.addValue("afterDatetime", after.datetime().atOffset(ZoneOffset.UTC));
+            params.addValue("afterId", after.id());
+        }
+
+        sql.append("ORDER BY t.datetime DESC, t.id DESC\nLIMIT :limit");
+        params.addValue("limit", limit);
+
+        return namedParameterJdbcTemplate.query(sql.toString(), params, EXCEEDED_ROW);
+    }
+
+    /**
+     * PostgreSQL отдаёт строки порциями по fetch-size только внутри транзакции (autocommit выключен),
+     * поэтому вызывать нужно из транзакционного метода.
+     */
+    @Override
+    public void streamExceeded(ExceededTransactionFilter filter, Consumer<ExceededTransactionResponseDto> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringBuilder sql = exceededQuery(filter, params);
+        sql.append("ORDER BY t.datetime DESC, t.id DESC");
+
+        streamingJdbcTemplate.query(sql.toString(), params,
+                (RowCallbackHandler) rs -> consumer.accept(EXCEEDED_ROW.mapRow(rs, rs.getRow())));
+    }
+
+    private static StringBuilder exceededQuery(ExceededTransactionFilter filter, MapSqlParameterSource params) {
+        StringBuilder sql = new StringBuilder(SELECT_EXCEEDED);
+
+        if (filter.category() != null) {
+            sql.append("  AND t.expense_category = :category\n");
+            params.addValue("category", filter.category().name());
+        }
+        if (filter.from() != null) {
+            sql.append("  AND t.datetime >= :from\n");
+            params.addValue("from", filter.from());
+        }
+        if (filter.to() != null) {
+            sql.append("  AND t.datetime < :to\n");
+            params.addValue("to", filter.to());
+        }
+        if (filter.accountFrom() != null) {
+            sql.append("  AND t.account_from = :accountFrom\n");
+            params.addValue("accountFrom", filter.accountFrom());
+        }
+        return sql;
+    }
+}
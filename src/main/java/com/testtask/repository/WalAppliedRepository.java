@@ -0,0 +1,40 @@
+package com.testtask.repository;
+
+import com.testtask.entity.WalApplied;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface WalAppliedRepository extends JpaRepository<WalApplied, Long> {
+
+    @Modifying
+    @Query(value = """
+    INSERT INTO wal_applied (seq, transaction_id, error)
+    VALUES (:seq, :transactionId, :error)
+    ON CONFLICT (seq) DO NOTHING
+    """, nativeQuery = true)
+    int markApplied(@Param("seq") long seq, @Param("transactionId") Long transactionId, @Param("error") String error);
+
+    @Query("SELECT w.seq FROM WalApplied w WHERE w.seq BETWEEN :from AND :to")
+    List<Long> findAppliedSeqs(@Param("from") long from, @Param("to") long to);
+
+    @Query("SELECT MAX(w.seq) FROM WalApplied w")
+    Long findMaxSeq();
+
+    /**
+     * Удаляет отметки записей из удалённых сегментов. Отметка с наибольшим номером остаётся всегда:
+     * по ней после перезапуска продолжается нумерация, даже если все сегменты журнала удалены.
+     */
+    @Modifying
+    @Query(value = """
+    DELETE FROM wal_applied
+    WHERE seq < :seq
+      AND seq < (SELECT MAX(seq) FROM wal_applied)
+    """, nativeQuery = true)
+    int deleteBefore(@Param("seq") long seq);
+}
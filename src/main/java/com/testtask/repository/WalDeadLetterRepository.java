@@ -0,0 +1,48 @@
+package com.testtask.repository;
+
+import com.testtask.entity.WalDeadLetter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface WalDeadLetterRepository extends JpaRepository<WalDeadLetter, Long> {
+
+    /**
+     * Без ON CONFLICT: строка с тем же seq означает переиспользованный номер, и молча потерять
+     * копию записи нельзя - транзакция откатывается, и запись не отмечается проведённой.
+     */
+    @Modifying
+    @Query(value = """
+    INSERT INTO wal_dead_letters (seq, payload, error, next_attempt_at)
+    VALUES (:seq, :payload, :error, CURRENT_TIMESTAMP + make_interval(secs => :delaySeconds))
+    """, nativeQuery = true)
+    int insert(@Param("seq") long seq, @Param("payload") byte[] payload, @Param("error") String error,
+               @Param("delaySeconds") double delaySeconds);
+
+    @Query(value = """
+    SELECT *
+    FROM wal_dead_letters
+    WHERE next_attempt_at <= CURRENT_TIMESTAMP
+    ORDER BY seq
+    LIMIT :limit
+    """, nativeQuery = true)
+    List<WalDeadLetter> findDue(@Param("limit") int limit);
+
+    @Query("SELECT MAX(d.seq) FROM WalDeadLetter d")
+    Long findMaxSeq();
+
+    @Modifying
+    @Query(value = """
+    UPDATE wal_dead_letters
+    SET attempts        = attempts + 1,
+        error           = :error,
+        next_attempt_at = CURRENT_TIMESTAMP + make_interval(secs => :delaySeconds)
+    WHERE seq = :seq
+    """, nativeQuery = true)
+    int reschedule(@Param("seq") long seq, @Param("error") String error, @Param("delaySeconds") double delaySeconds);
+}
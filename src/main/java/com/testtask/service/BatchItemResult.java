@@ -0,0 +1,21 @@
+package com.testtask.service;
+
+import com.testtask.entity.Transaction;
+
+/**
+ * Результат обработки одной транзакции пачки: сохранённая транзакция или текст ошибки.
+ */
+public record BatchItemResult(Transaction transaction, String error) {
+
+    public static BatchItemResult saved(Transaction transaction) {
+        return new BatchItemResult(transaction, null);
+    }
+
+    public static BatchItemResult failed(String error) {
+        return new BatchItemResult(null, error);
+    }
+
+    public boolean isSaved() {
+        return error == null;
+    }
+}
@@ -0,0 +1,48 @@
+package com.testtask.service;
+
+import com.testtask.dto.BufferedTransactionAckDto;
+import com.testtask.dto.TransactionRequestDto;
+import com.testtask.wal.SegmentLog;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Буферизованный приём: операция дописывается в локальный журнал и подтверждается после его
+ * сброса на диск. В БД её проводит WalApplier в фоне.
+ */
+@Service
+public class BufferedIngestService {
+
+    private final SegmentLog transactionWal;
+    private final JsonMapper jsonMapper;
+    private final Timer appendTimer;
+
+    public BufferedIngestService(SegmentLog transactionWal, JsonMapper jsonMapper, MeterRegistry meterRegistry) {
+        this.transactionWal = transactionWal;
+        this.jsonMapper = jsonMapper;
+
+        this.appendTimer = Timer.builder("wal.append")
+                .description("Time to append a record to the WAL and wait for its fsync")
+                .register(meterRegistry);
+        FunctionCounter.builder("wal.flushes", transactionWal, SegmentLog::flushes)
+                .description("Group commits (one fsync each) performed by the WAL")
+                .register(meterRegistry);
+        FunctionCounter.builder("wal.flushed.records", transactionWal, SegmentLog::flushedRecords)
+                .description("Records made durable by WAL group commits")
+                .register(meterRegistry);
+    }
+
+    public BufferedTransactionAckDto accept(TransactionRequestDto dto) {
+        byte[] payload = jsonMapper.writeValueAsBytes(dto);
+
+        long seq = appendTimer.record(() -> {
+            long appended = transactionWal.append(payload);
+            transactionWal.awaitDurable(appended);
+            return appended;
+        });
+        return new BufferedTransactionAckDto(seq);
+    }
+}
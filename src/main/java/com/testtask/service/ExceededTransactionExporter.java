@@ -0,0 +1,101 @@
+package com.testtask.service;
+
+import com.testtask.dto.ExceededTransactionFilter;
+import com.testtask.dto.ExceededTransactionResponseDto;
+import com.testtask.model.ExportFormat;
+import com.testtask.repository.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Выгрузка всех превысивших лимит транзакций в NDJSON или CSV.
+ * Строки читаются курсором БД порциями по exceeded-export.fetch-size и сразу пишутся в ответ,
+ * поэтому расход памяти не зависит от числа строк. Заархивированные месяцы дочитываются из файлов архива.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExceededTransactionExporter {
+
+    private static final String CSV_HEADER = "id,accountFrom,accountTo,currencyShortname,sum,expenseCategory,datetime," +
+            "usdAmount,limitSum,limitDatetime,limitCurrencyShortname";
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionArchiveService transactionArchiveService;
+    private final JsonMapper jsonMapper;
+
+    @Transactional(readOnly = true)
+    public long export(ExceededTransactionFilter filter, ExportFormat format, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        AtomicLong rows = new AtomicLong();
+
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        try {
+            Consumer<ExceededTransactionResponseDto> write = row -> {
+                try {
+                    writer.write(format == ExportFormat.CSV ? toCsv(row) : jsonMapper.writeValueAsString(row));
+                    writer.write('\n');
+                    rows.incrementAndGet();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+            // Заархивированные месяцы старше оставшихся в БД, поэтому идут после них.
+            if (transactionArchiveService.archivedThrough().isEmpty()) {
+                transactionRepository.streamExceeded(filter, write);
+            } else {
+                transactionArchiveService.liveFilter(filter).ifPresent(live -> transactionRepository.streamExceeded(live, write));
+                transactionArchiveService.streamExceeded(filter, write);
+            }
+        } catch (UncheckedIOException e) {
+            // Клиент закрыл соединение: курсор закрывается вместе с транзакцией.
+            throw e.getCause();
+        }
+
+        writer.flush();
+        log.debug("Exported {} exceeded transactions as {}", rows.get(), format);
+        return rows.get();
+    }
+
+    private static String toCsv(ExceededTransactionResponseDto row) {
+        return String.join(",",
+                String.valueOf(row.id()),
+                csv(row.accountFrom()),
+                csv(row.accountTo()),
+                csv(row.currencyShortname()),
+                row.sum().toPlainString(),
+                csv(row.expenseCategory()),
+                row.datetime().toString(),
+                row.usdAmount() == null ? "" : row.usdAmount().toPlainString(),
+                row.limitSum().toPlainString(),
+                row.limitDatetime().toString(),
+                csv(row.limitCurrencyShortname()));
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,35 +1,54 @@
 package com.testtask.service;
 
+import com.testtask.cache.ExchangeRateCache;
+import com.testtask.client.AlphaVantageClient;
+import com.testtask.client.FxDailySeries;
 import com.testtask.entity.ExchangeRate;
+import com.testtask.exception.ExchangeRateNotFoundException;
+import com.testtask.exception.ExchangeRateProviderException;
 import com.testtask.repository.ExchangeRateRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.Comparator;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ExchangeRateService {
 
-    private final WebClient exchangeRateWebClient;
+    private final AlphaVantageClient alphaVantageClient;
     private final ExchangeRateRepository exchangeRateRepository;
+    private final ExchangeRateCache exchangeRateCache;
+    private final ProcessingMetrics processingMetrics;
+    private final Scheduler jdbcScheduler;
+    private final TransactionTemplate transactionTemplate;
 
-    @Value("${alphavantage.api-key}")
-    private String apiKey;
+    @Value("${alphavantage.bulk-ingest:true}")
+    private boolean bulkIngest;
 
     private static final String BASE_CURRENCY = "USD";
     private static final String[] TARGET_CURRENCIES = {"KZT", "RUB"};
+    private static final String RATE_SOURCE = "alphavantage.co";
+
+    private final ConcurrentMap<String, CompletableFuture<FxDailySeries>> inFlight = new ConcurrentHashMap<>();
 
     @Transactional(readOnly = true)
     public Optional<BigDecimal> getRate(String targetCurrency, LocalDate date) {
@@ -37,10 +56,21 @@ public class ExchangeRateService {
             throw new IllegalArgumentException("Unsupported currency: " + targetCurrency);
         }
 
+        Optional<BigDecimal> cached = exchangeRateCache.get(targetCurrency, date);
+        if (cached.isPresent()) {
+            processingMetrics.recordRateSource(ProcessingMetrics.RateSource.CACHE, targetCurrency);
+            return cached;
+        }
+        if (exchangeRateCache.isMissing(targetCurrency, date)) {
+            return Optional.empty();
+        }
+
         Optional<ExchangeRate> exact = exchangeRateRepository.findByBaseCurrencyAndTargetCurrencyAndRateDate(
                 BASE_CURRENCY, targetCurrency, date);
 
         if (exact.isPresent()) {
+            processingMetrics.recordRateSource(ProcessingMetrics.RateSource.DB, targetCurrency);
+            exchangeRateCache.put(targetCurrency, date, exact.get().getRate());
             return Optional.of(exact.get().getRate());
         }
 
@@ -49,12 +79,19 @@ public class ExchangeRateService {
                         BASE_CURRENCY, targetCurrency, date);
 
         if (latest.isPresent()) {
+            processingMetrics.recordRateSource(ProcessingMetrics.RateSource.DB, targetCurrency);
+            exchangeRateCache.put(targetCurrency, date, latest.get().getRate());
             return Optional.of(latest.get().getRate());
         }
 
+        exchangeRateCache.putMissing(targetCurrency, date);
         return Optional.empty();
     }
 
+    /**
+     * Загружает ряд валюты у провайдера и сохраняет курс на date. Одновременные запросы одной валюты
+     * на любые даты ждут одну загрузку ряда, и каждый берёт из него курс своего дня.
+     */
     @Transactional
     public BigDecimal fetchAndSaveRate(String targetCurrency, LocalDate date) {
         Optional<BigDecimal> existing = getRate(targetCurrency, date);
@@ -62,84 +99,44 @@ public class ExchangeRateService {
             return existing.get();
         }
 
-        return exchangeRateWebClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/query")
-                        .queryParam("function", "FX_DAILY")
-                        .queryParam("from_symbol", BASE_CURRENCY)
-                        .queryParam("to_symbol", targetCurrency)
-                        .queryParam("apikey", apiKey)
-                        .build())
-                .accept(MediaType.APPLICATION_JSON)
-                .retrieve()
-                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
-                        clientResponse -> clientResponse.bodyToMono(String.class)
-                                .map(body -> {
-                                    return new RuntimeException("Alpha Vantage error: " + clientResponse.statusCode() + " - " + body);
-                                }))
-                .bodyToMono(Map.class)
-                .flatMap(response -> {
-                    if (response.containsKey("Error Message") || response.containsKey("Note")) {
-                        String errorMsg = (String) response.getOrDefault("Error Message", response.get("Note"));
-                        return Mono.error(new RuntimeException("Alpha Vantage API error: " + errorMsg));
-                    }
-
-                    @SuppressWarnings("unchecked")
-                    Map<String, Map<String, String>> timeSeries =
-                            (Map<String, Map<String, String>>) response.get("Time Series FX (Daily)");
-
-                    if (timeSeries == null || timeSeries.isEmpty()) {
-                        return Mono.error(new RuntimeException("No time series data for USD/" + targetCurrency));
-                    }
-
-                    Map<String, String> dayData = timeSeries.get(date.toString());
-                    BigDecimal rate = null;
-
-                    if (dayData != null) {
-                        String closeStr = dayData.get("4. close");
-                        if (closeStr != null) {
-                            rate = new BigDecimal(closeStr);
-                        }
-                    }
-
-                    if (rate == null) {
-                        Optional<Map.Entry<String, Map<String, String>>> closest = timeSeries.entrySet().stream()
-                                .filter(e -> {
-                                    try {
-                                        LocalDate entryDate = LocalDate.parse(e.getKey());
-                                        return !entryDate.isAfter(date);
-                                    } catch (Exception ex) {
-                                        return false;
-                                    }
-                                })
-                                .max(Comparator.comparing(e -> LocalDate.parse(e.getKey())));
-
-                        if (closest.isPresent()) {
-                            String closestDate = closest.get().getKey();
-                            String closeStr = closest.get().getValue().get("4. close");
-                            if (closeStr != null) {
-                                rate = new BigDecimal(closeStr);
-                            }
-                        }
-                    }
+        CompletableFuture<FxDailySeries> own = new CompletableFuture<>();
+        CompletableFuture<FxDailySeries> running = inFlight.putIfAbsent(targetCurrency, own);
 
-                    if (rate == null) {
-                        return Mono.error(new RuntimeException("No suitable close rate found for or before " + date));
-                    }
+        if (running != null) {
+            log.debug("Waiting for in-flight rate fetch USD/{} for {}", targetCurrency, date);
+            FxDailySeries series;
+            try {
+                series = awaitSeries(running);
+            } catch (ExchangeRateProviderException e) {
+                return fallbackRate(targetCurrency, date, e);
+            }
+            return series == null
+                    ? getOrFetchRate(targetCurrency, date)
+                    : resolveRate(targetCurrency, date, series, false);
+        }
 
-                    ExchangeRate entity = ExchangeRate.builder()
-                            .baseCurrency(BASE_CURRENCY)
-                            .targetCurrency(targetCurrency)
-                            .rateDate(date)
-                            .rate(rate)
-                            .source("alphavantage.co")
-                            .build();
+        try {
+            Optional<BigDecimal> justFetched = justFetched(own, targetCurrency, date);
+            if (justFetched.isPresent()) {
+                return justFetched.get();
+            }
 
-                    exchangeRateRepository.save(entity);
+            FxDailySeries series;
+            try {
+                series = fetchDailySeries(targetCurrency).block();
+            } catch (ExchangeRateProviderException e) {
+                own.completeExceptionally(e);
+                return fallbackRate(targetCurrency, date, e);
+            }
 
-                    return Mono.just(rate);
-                })
-                .block();
+            own.complete(series);
+            return resolveRate(targetCurrency, date, series, true);
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(targetCurrency, own);
+        }
     }
 
     public BigDecimal getOrFetchRate(String targetCurrency, LocalDate date) {
@@ -147,6 +144,200 @@ public class ExchangeRateService {
                 .orElseGet(() -> fetchAndSaveRate(targetCurrency, date));
     }
 
+    public Mono<BigDecimal> getOrFetchRateAsync(String targetCurrency, LocalDate date) {
+        return Mono.defer(() -> {
+            Optional<BigDecimal> cached = exchangeRateCache.get(targetCurrency, date);
+            if (cached.isPresent()) {
+                processingMetrics.recordRateSource(ProcessingMetrics.RateSource.CACHE, targetCurrency);
+                return Mono.just(cached.get());
+            }
+
+            return Mono.fromCallable(() -> getRate(targetCurrency, date))
+                    .subscribeOn(jdbcScheduler)
+                    .flatMap(existing -> existing
+                            .map(Mono::just)
+                            .orElseGet(() -> fetchAndSaveRateAsync(targetCurrency, date)));
+        });
+    }
+
+    public Mono<BigDecimal> fetchAndSaveRateAsync(String targetCurrency, LocalDate date) {
+        return Mono.defer(() -> {
+            CompletableFuture<FxDailySeries> own = new CompletableFuture<>();
+            CompletableFuture<FxDailySeries> running = inFlight.putIfAbsent(targetCurrency, own);
+
+            if (running != null) {
+                log.debug("Waiting for in-flight rate fetch USD/{} for {}", targetCurrency, date);
+                return Mono.fromFuture(running, true)
+                        .publishOn(jdbcScheduler)
+                        .map(series -> transactionTemplate.execute(
+                                status -> resolveRate(targetCurrency, date, series, false)))
+                        .switchIfEmpty(Mono.defer(() -> getOrFetchRateAsync(targetCurrency, date)))
+                        .onErrorResume(ExchangeRateProviderException.class, e -> Mono
+                                .fromCallable(() -> fallbackRate(targetCurrency, date, e))
+                                .subscribeOn(jdbcScheduler));
+            }
+
+            Optional<BigDecimal> justFetched = justFetched(own, targetCurrency, date);
+            if (justFetched.isPresent()) {
+                inFlight.remove(targetCurrency, own);
+                return Mono.just(justFetched.get());
+            }
+
+            return fetchDailySeries(targetCurrency)
+                    .doOnNext(own::complete)
+                    .publishOn(jdbcScheduler)
+                    .map(series -> transactionTemplate.execute(
+                            status -> resolveRate(targetCurrency, date, series, true)))
+                    .onErrorResume(ExchangeRateProviderException.class, e -> {
+                        own.completeExceptionally(e);
+                        return Mono.fromCallable(() -> fallbackRate(targetCurrency, date, e))
+                                .subscribeOn(jdbcScheduler);
+                    })
+                    .doOnError(own::completeExceptionally)
+                    .doFinally(signal -> {
+                        if (!own.isDone()) {
+                            own.completeExceptionally(new CancellationException("Rate fetch was cancelled"));
+                        }
+                        inFlight.remove(targetCurrency, own);
+                    });
+        });
+    }
+
+    /**
+     * Курс мог появиться в кэше, пока предыдущий лидер ещё не снял свою загрузку. Тогда ряд не загружается,
+     * а успевшие присоединиться получают null и запрашивают курс своего дня заново.
+     */
+    private Optional<BigDecimal> justFetched(CompletableFuture<FxDailySeries> own, String targetCurrency,
+                                             LocalDate date) {
+        Optional<BigDecimal> cached = exchangeRateCache.get(targetCurrency, date);
+        if (cached.isPresent()) {
+            processingMetrics.recordRateSource(ProcessingMetrics.RateSource.CACHE, targetCurrency);
+            own.complete(null);
+        }
+        return cached;
+    }
+
+    /**
+     * Вызов Alpha Vantage с замером времени: вместе с ожиданием квоты и повторами, как его видит вызывающий.
+     */
+    private Mono<FxDailySeries> fetchDailySeries(String targetCurrency) {
+        return Mono.defer(() -> {
+            long started = System.nanoTime();
+            return alphaVantageClient.fetchDailySeries(targetCurrency)
+                    .doOnSuccess(series -> processingMetrics.recordProviderCall(
+                            targetCurrency, true, System.nanoTime() - started))
+                    .doOnError(e -> processingMetrics.recordProviderCall(
+                            targetCurrency, false, System.nanoTime() - started));
+        });
+    }
+
+    /**
+     * Курс дня из загруженного ряда. Ряд публикуется ожидающим до записи в БД: им не нужна строка,
+     * а ожидание записи держало бы их соединения, пока лидер ждёт своё. Поэтому ряд целиком пишет только
+     * лидер, а без bulk-ingest каждый сохраняет курс своего дня. Курс проверяется до записи: исключение
+     * откатило бы транзакцию вместе с уже записанным рядом.
+     */
+    private BigDecimal resolveRate(String targetCurrency, LocalDate date, FxDailySeries series, boolean leader) {
+        BigDecimal rate = series.floorRate(date);
+        if (rate == null) {
+            throw new ExchangeRateNotFoundException(
+                    "No USD/" + targetCurrency + " close rate found for or before " + date);
+        }
+        processingMetrics.recordRateSource(ProcessingMetrics.RateSource.PROVIDER, targetCurrency);
+        exchangeRateCache.put(targetCurrency, date, rate);
+
+        if (!bulkIngest) {
+            return saveRate(targetCurrency, date, rate);
+        }
+        if (leader) {
+            saveSeries(targetCurrency, series);
+            afterCommit(() -> exchangeRateCache.put(targetCurrency, date, rate));
+        }
+        return rate;
+    }
+
+    private BigDecimal fallbackRate(String targetCurrency, LocalDate date, ExchangeRateProviderException cause) {
+        Optional<ExchangeRate> latestKnown = exchangeRateRepository
+                .findFirstByBaseCurrencyAndTargetCurrencyOrderByRateDateDesc(BASE_CURRENCY, targetCurrency);
+
+        if (latestKnown.isEmpty()) {
+            throw cause;
+        }
+
+        processingMetrics.recordRateSource(ProcessingMetrics.RateSource.FALLBACK, targetCurrency);
+        log.warn("Alpha Vantage unavailable ({}), using latest known USD/{} rate from {} for {}",
+                cause.getMessage(), targetCurrency, latestKnown.get().getRateDate(), date);
+        return latestKnown.get().getRate();
+    }
+
+    private void saveSeries(String targetCurrency, FxDailySeries series) {
+        List<ExchangeRate> rates = new ArrayList<>(series.size());
+        BigDecimal previous = null;
+
+        for (int i = 0; i < series.size(); i++) {
+            BigDecimal rate = series.rateAt(i);
+            rates.add(ExchangeRate.builder()
+                    .baseCurrency(BASE_CURRENCY)
+                    .targetCurrency(targetCurrency)
+                    .rateDate(series.dateAt(i))
+                    .rate(rate)
+                    .previousRate(previous)
+                    .source(RATE_SOURCE)
+                    .build());
+            previous = rate;
+        }
+
+        exchangeRateRepository.upsertAll(rates);
+        afterCommit(() -> exchangeRateCache.invalidate(targetCurrency));
+        log.info("Stored {} daily rates for USD/{}", rates.size(), targetCurrency);
+    }
+
+    /**
+     * Выполняет действие с кэшем после фиксации транзакции: если сбросить кэш до неё, параллельный запрос
+     * успеет прочитать из БД ещё старые курсы и вернуть их в кэш. Вне транзакции - сразу.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private BigDecimal saveRate(String targetCurrency, LocalDate date, BigDecimal rate) {
+        int inserted = exchangeRateRepository.insertIfAbsent(
+                BASE_CURRENCY, targetCurrency, date, rate, RATE_SOURCE);
+
+        BigDecimal stored = rate;
+        if (inserted == 0) {
+            stored = exchangeRateRepository
+                    .findByBaseCurrencyAndTargetCurrencyAndRateDate(BASE_CURRENCY, targetCurrency, date)
+                    .map(ExchangeRate::getRate)
+                    .orElse(rate);
+            log.debug("Rate USD/{} on {} was stored concurrently, using {}", targetCurrency, date, stored);
+        }
+
+        exchangeRateCache.put(targetCurrency, date, stored);
+        exchangeRateCache.invalidateMissing(targetCurrency);
+        return stored;
+    }
+
+    private FxDailySeries awaitSeries(CompletableFuture<FxDailySeries> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
     private boolean isSupportedCurrency(String currency) {
         for (String supported : TARGET_CURRENCIES) {
             if (supported.equals(currency)) return true;
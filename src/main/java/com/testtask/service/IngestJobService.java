@@ -0,0 +1,44 @@
+package com.testtask.service;
+
+import com.testtask.dto.IngestJobResponseDto;
+import com.testtask.dto.TransactionRequestDto;
+import com.testtask.entity.IngestJob;
+import com.testtask.exception.ResourceNotFoundException;
+import com.testtask.mapper.AppMapper;
+import com.testtask.model.IngestJobStatus;
+import com.testtask.repository.IngestJobRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+public class IngestJobService {
+
+    private final IngestJobRepository ingestJobRepository;
+    private final AppMapper appMapper;
+
+    @Transactional
+    public IngestJobResponseDto enqueue(TransactionRequestDto dto) {
+        IngestJob job = appMapper.toJob(dto);
+        job.setId(UUID.randomUUID());
+        job.setStatus(IngestJobStatus.QUEUED);
+        job.setCreatedAt(OffsetDateTime.now());
+
+        return appMapper.toResponseDto(ingestJobRepository.save(job));
+    }
+
+    /**
+     * Статус читается из primary, а не из пула read: клиент опрашивает задание сразу после постановки,
+     * и отстающая реплика ответила бы, что его нет.
+     */
+    @Transactional
+    public IngestJobResponseDto getJob(UUID id) {
+        return ingestJobRepository.findById(id)
+                .map(appMapper::toResponseDto)
+                .orElseThrow(() -> new ResourceNotFoundException("Ingest job not found: " + id));
+    }
+}
@@ -0,0 +1,315 @@
+package com.testtask.service;
+
+import com.testtask.entity.IngestJob;
+import com.testtask.entity.Transaction;
+import com.testtask.mapper.AppMapper;
+import com.testtask.model.ExpenseCategory;
+import com.testtask.model.IngestJobStatus;
+import com.testtask.repository.IngestJobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Пул воркеров, разбирающих очередь ingest_jobs.
+ * Каждый воркер забирает пачку заданий, делит её на группы по категории и месяцу и проводит
+ * группу через TransactionService.processGroup в одной транзакции БД с записью результатов заданий.
+ * Если группа не прошла, её задания проводятся по одному, чтобы ошибка одного не задела соседей;
+ * упавшее задание возвращается в очередь с экспоненциальной задержкой до max-attempts попыток.
+ * Результат пишется только в аренде, под которой задание было забрано; если аренду за это время
+ * перехватил другой воркер, транзакция откатывается, и задание остаётся за ним.
+ */
+@Slf4j
+@Service
+public class IngestJobWorker implements SmartLifecycle {
+
+    private final IngestJobRepository ingestJobRepository;
+    private final TransactionService transactionService;
+    private final AppMapper appMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+    private final int workers;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration maxRetryBackoff;
+
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final AtomicLong oldestQueuedAgeSeconds = new AtomicLong();
+    private final Timer lag;
+    private final Counter completed;
+    private final Counter failed;
+    private final Counter retried;
+
+    private volatile boolean running;
+    private ExecutorService executor;
+
+    public IngestJobWorker(
+            IngestJobRepository ingestJobRepository,
+            TransactionService transactionService,
+            AppMapper appMapper,
+            TransactionTemplate transactionTemplate,
+            @Value("${ingest-jobs.enabled:true}") boolean enabled,
+            @Value("${ingest-jobs.workers:2}") int workers,
+            @Value("${ingest-jobs.batch-size:100}") int batchSize,
+            @Value("${ingest-jobs.poll-interval:200ms}") Duration pollInterval,
+            @Value("${ingest-jobs.lease:5m}") Duration lease,
+            @Value("${ingest-jobs.max-attempts:3}") int maxAttempts,
+            @Value("${ingest-jobs.retry-backoff:5s}") Duration retryBackoff,
+            @Value("${ingest-jobs.max-retry-backoff:5m}") Duration maxRetryBackoff,
+            MeterRegistry meterRegistry) {
+
+        this.ingestJobRepository = ingestJobRepository;
+        this.transactionService = transactionService;
+        this.appMapper = appMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.maxRetryBackoff = maxRetryBackoff;
+
+        Gauge.builder("ingest.jobs.queue.depth", queueDepth, AtomicLong::get)
+                .description("Jobs waiting in the ingest queue")
+                .register(meterRegistry);
+        Gauge.builder("ingest.jobs.queue.oldest.age", oldestQueuedAgeSeconds, AtomicLong::get)
+                .description("Age of the oldest queued job")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.lag = Timer.builder("ingest.jobs.lag")
+                .description("Time from enqueue to the job being picked up by a worker")
+                .register(meterRegistry);
+        this.completed = Counter.builder("ingest.jobs.processed").tag("outcome", "done").register(meterRegistry);
+        this.failed = Counter.builder("ingest.jobs.processed").tag("outcome", "failed").register(meterRegistry);
+        this.retried = Counter.builder("ingest.jobs.processed").tag("outcome", "retried").register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ingest-worker-", 0).factory());
+        for (int i = 0; i < workers; i++) {
+            executor.submit(this::pollLoop);
+        }
+        log.info("Started {} ingest job workers", workers);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Scheduled(fixedDelayString = "${ingest-jobs.metrics-refresh:5s}")
+    public void refreshQueueMetrics() {
+        queueDepth.set(ingestJobRepository.countByStatus(IngestJobStatus.QUEUED));
+        OffsetDateTime oldest = ingestJobRepository.findOldestQueuedCreatedAt();
+        oldestQueuedAgeSeconds.set(oldest == null ? 0 : Duration.between(oldest.toInstant(), Instant.now()).toSeconds());
+    }
+
+    private void pollLoop() {
+        while (running) {
+            try {
+                if (drainOnce() == 0) {
+                    Thread.sleep(pollInterval);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Ingest worker iteration failed", e);
+                try {
+                    Thread.sleep(pollInterval);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Забирает и обрабатывает одну пачку заданий, возвращает её размер.
+     */
+    int drainOnce() {
+        List<IngestJob> jobs = transactionTemplate.execute(status -> {
+            int abandoned = ingestJobRepository.failAbandoned(lease.toSeconds(), maxAttempts);
+            if (abandoned > 0) {
+                failed.increment(abandoned);
+                log.warn("Failed {} ingest jobs whose lease expired on the last attempt", abandoned);
+            }
+            return ingestJobRepository.claimBatch(batchSize, lease.toSeconds(), maxAttempts);
+        });
+        if (jobs == null || jobs.isEmpty()) {
+            return 0;
+        }
+
+        for (IngestJob job : jobs) {
+            lag.record(Duration.between(job.getCreatedAt(), job.getStartedAt()));
+        }
+
+        for (List<IngestJob> group : groupByCategoryAndMonth(jobs)) {
+            processGroup(group);
+        }
+        return jobs.size();
+    }
+
+    private void processGroup(List<IngestJob> group) {
+        try {
+            complete(group);
+            completed.increment(group.size());
+        } catch (LeaseLostException e) {
+            if (group.size() == 1) {
+                log.warn(e.getMessage());
+                return;
+            }
+            processOneByOne(group);
+        } catch (Exception e) {
+            if (group.size() == 1) {
+                retryLater(group.getFirst(), e);
+                return;
+            }
+
+            log.warn("Ingest group of {} jobs failed, processing one by one: {}", group.size(), e.getMessage());
+            processOneByOne(group);
+        }
+    }
+
+    private void processOneByOne(List<IngestJob> group) {
+        for (IngestJob job : group) {
+            try {
+                complete(List.of(job));
+                completed.increment();
+            } catch (LeaseLostException e) {
+                log.warn(e.getMessage());
+            } catch (Exception e) {
+                retryLater(job, e);
+            }
+        }
+    }
+
+    private void complete(List<IngestJob> jobs) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Transaction> saved = transactionService.processGroup(
+                    jobs.stream().map(appMapper::toTransaction).toList());
+
+            for (int i = 0; i < jobs.size(); i++) {
+                IngestJob job = jobs.get(i);
+                Transaction transaction = saved.get(i);
+                int updated = ingestJobRepository.complete(job.getId(), job.getAttempts(), transaction.getId(),
+                        transaction.getUsdAmount(), transaction.isLimitExceeded());
+                if (updated == 0) {
+                    throw new LeaseLostException(job);
+                }
+            }
+        });
+    }
+
+    private void retryLater(IngestJob job, Exception e) {
+        String error = String.valueOf(e.getMessage());
+        if (job.getAttempts() < maxAttempts) {
+            Duration delay = retryDelay(job.getAttempts());
+            Integer updated = transactionTemplate.execute(status ->
+                    ingestJobRepository.requeue(job.getId(), job.getAttempts(), error, delay.toMillis() / 1000.0));
+            if (updated == null || updated == 0) {
+                log.warn("Ingest job {} was reclaimed after attempt {}, not requeueing it", job.getId(), job.getAttempts());
+                return;
+            }
+            retried.increment();
+            log.warn("Ingest job {} failed (attempt {}/{}), retrying in {}: {}",
+                    job.getId(), job.getAttempts(), maxAttempts, delay, error);
+        } else {
+            Integer updated = transactionTemplate.execute(status ->
+                    ingestJobRepository.fail(job.getId(), job.getAttempts(), error));
+            if (updated == null || updated == 0) {
+                log.warn("Ingest job {} was reclaimed after attempt {}, not failing it", job.getId(), job.getAttempts());
+                return;
+            }
+            failed.increment();
+            log.warn("Ingest job {} failed after {} attempts: {}", job.getId(), job.getAttempts(), error);
+        }
+    }
+
+    /**
+     * retry-backoff, удваивающаяся с каждой попыткой, но не больше max-retry-backoff.
+     */
+    Duration retryDelay(int attempts) {
+        Duration delay = retryBackoff.multipliedBy(1L << Math.min(Math.max(attempts - 1, 0), 30));
+        return delay.compareTo(maxRetryBackoff) > 0 ? maxRetryBackoff : delay;
+    }
+
+    private static List<List<IngestJob>> groupByCategoryAndMonth(List<IngestJob> jobs) {
+        Map<GroupKey, List<IngestJob>> groups = new LinkedHashMap<>();
+        for (IngestJob job : jobs) {
+            GroupKey key = new GroupKey(job.getExpenseCategory(),
+                    TransactionService.monthStartOf(job.getDatetime()).toInstant());
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(job);
+        }
+
+        List<List<IngestJob>> result = new ArrayList<>(groups.size());
+        for (List<IngestJob> group : groups.values()) {
+            group.sort(Comparator.comparing(job -> job.getDatetime().toInstant()));
+            result.add(group);
+        }
+        return result;
+    }
+
+    private record GroupKey(ExpenseCategory category, Instant monthStart) {
+    }
+
+    /**
+     * Аренду задания перехватил другой воркер: результат этого воркера откатывается, не повторяется.
+     */
+    private static final class LeaseLostException extends RuntimeException {
+
+        LeaseLostException(IngestJob job) {
+            super("Ingest job " + job.getId() + " was reclaimed after attempt " + job.getAttempts()
+                    + ", dropping this worker's result");
+        }
+    }
+}
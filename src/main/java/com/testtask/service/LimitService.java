@@ -1,5 +1,6 @@
 package com.testtask.service;
 
+import com.testtask.cache.LimitTimeline;
 import com.testtask.dto.LimitRequestDto;
 import com.testtask.dto.LimitResponseDto;
 import com.testtask.entity.Limit;
@@ -8,8 +9,11 @@ import com.testtask.model.ExpenseCategory;
 import com.testtask.repository.LimitRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -17,10 +21,18 @@ import java.util.stream.Collectors;
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class LimitService {
+public class LimitService implements SmartInitializingSingleton {
 
     private final LimitRepository limitRepository;
     private final AppMapper appMapper;
+    private final LimitTimeline limitTimeline;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<Limit> limits = limitRepository.findAll();
+        limitTimeline.load(limits);
+        log.info("Loaded {} limits into the limit timeline", limits.size());
+    }
 
     @Transactional
     public Limit createLimit(LimitRequestDto dto) {
@@ -32,6 +44,18 @@ public class LimitService {
 
         Limit saved = limitRepository.save(limit);
 
+        // Новый лимит становится виден проверке транзакций только после коммита.
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    limitTimeline.add(saved);
+                }
+            });
+        } else {
+            limitTimeline.add(saved);
+        }
+
         return saved;
     }
 
@@ -0,0 +1,87 @@
+package com.testtask.service;
+
+import com.testtask.cache.SpendAccumulator;
+import com.testtask.repository.MonthlyCategorySpendRepository;
+import com.testtask.repository.MonthlyCategorySpendRepository.SpendDrift;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+public class MonthlySpendReconciliationService {
+
+    private final MonthlyCategorySpendRepository monthlySpendRepository;
+    private final MonthlySpendService monthlySpendService;
+    private final SpendAccumulator spendAccumulator;
+    private final TransactionPartitionMaintenance partitionMaintenance;
+    private final TransactionArchiveService archiveService;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter runs;
+    private final Counter drifts;
+
+    public MonthlySpendReconciliationService(MonthlyCategorySpendRepository monthlySpendRepository,
+                                             MonthlySpendService monthlySpendService,
+                                             SpendAccumulator spendAccumulator,
+                                             TransactionPartitionMaintenance partitionMaintenance,
+                                             TransactionArchiveService archiveService,
+                                             TransactionTemplate transactionTemplate,
+                                             MeterRegistry meterRegistry) {
+        this.monthlySpendRepository = monthlySpendRepository;
+        this.monthlySpendService = monthlySpendService;
+        this.spendAccumulator = spendAccumulator;
+        this.partitionMaintenance = partitionMaintenance;
+        this.archiveService = archiveService;
+        this.transactionTemplate = transactionTemplate;
+        this.runs = Counter.builder("monthly.spend.reconciliation.runs")
+                .register(meterRegistry);
+        this.drifts = Counter.builder("monthly.spend.reconciliation.drift")
+                .description("Aggregate rows that differed from transactions and were rebuilt")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Пересчитывает агрегаты по transactions и исправляет расхождения.
+     * Строки агрегатов блокируются до пересчёта, поэтому вставки, попавшие в эти месяцы,
+     * дождутся окончания сверки и применят свою сумму уже к исправленному значению.
+     */
+    @Scheduled(cron = "${monthly-spend.reconciliation.cron:0 30 3 * * *}")
+    public List<SpendDrift> reconcile() {
+        // Агрегаты месяцев, строк которых уже нет в transactions (отсоединены или в архиве), не пересчитываются.
+        OffsetDateTime retainedFrom = Stream.concat(
+                        partitionMaintenance.retainedFrom().stream(), archiveService.archivedThrough().stream())
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+        List<SpendDrift> found = transactionTemplate.execute(status -> {
+            monthlySpendRepository.lockAll();
+            return monthlySpendRepository.rebuildFromTransactions(retainedFrom);
+        });
+
+        if (!found.isEmpty()) {
+            // Исправленные суммы могут быть меньше учтённых в памяти, поэтому счётчики перечитываются целиком.
+            spendAccumulator.clear();
+            monthlySpendService.warmUp();
+        }
+
+        for (SpendDrift drift : found) {
+            log.warn("Monthly spend drift for {} starting {}: recorded {} USD in {} transactions, actual {} USD in {} transactions",
+                    drift.getCategory(), drift.getMonthStart(),
+                    drift.getRecordedTotal(), drift.getRecordedCount(),
+                    drift.getActualTotal(), drift.getActualCount());
+        }
+
+        runs.increment();
+        drifts.increment(found.size());
+        log.info("Monthly spend reconciliation finished, fixed {} aggregates", found.size());
+
+        return found;
+    }
+}
@@ -0,0 +1,180 @@
+package com.testtask.service;
+
+import com.testtask.cache.SpendAccumulator;
+import com.testtask.entity.MonthlyCategorySpend;
+import com.testtask.entity.MonthlyCategorySpendId;
+import com.testtask.entity.Transaction;
+import com.testtask.model.ExpenseCategory;
+import com.testtask.repository.MonthlyCategorySpendRepository;
+import com.testtask.repository.MonthlyCategorySpendRepository.SpendTotals;
+import com.testtask.repository.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MonthlySpendService implements SmartInitializingSingleton {
+
+    private final MonthlyCategorySpendRepository monthlySpendRepository;
+    private final TransactionRepository transactionRepository;
+    private final SpendAccumulator spendAccumulator;
+
+    /**
+     * Прогрев выполняется до старта веб-сервера, поэтому первые транзакции уже проверяются по памяти.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        warmUp();
+    }
+
+    public void warmUp() {
+        List<MonthlyCategorySpend> rows = monthlySpendRepository.findAll();
+        for (MonthlyCategorySpend row : rows) {
+            spendAccumulator.apply(row.getCategory(), row.getMonthStart().toInstant(),
+                    row.getUsdTotal(), row.getTxCount(), row.getLastDatetime().toInstant());
+        }
+        log.info("Loaded {} monthly spend aggregates into memory", rows.size());
+    }
+
+    /**
+     * Сумма расходов категории с начала месяца до момента транзакции по агрегату.
+     * Агрегат годится, только если все учтённые в нём транзакции строго раньше txDateTime,
+     * иначе вызывающий должен посчитать сумму по transactions.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Optional<BigDecimal> spentBefore(ExpenseCategory category,
+                                            OffsetDateTime monthStart,
+                                            OffsetDateTime txDateTime) {
+        Optional<BigDecimal> inMemory = spendAccumulator.spentBefore(
+                category, monthStart.toInstant(), txDateTime.toInstant());
+        if (inMemory.isPresent()) {
+            return inMemory;
+        }
+
+        return monthlySpendRepository.findById(new MonthlyCategorySpendId(category, monthStart))
+                .filter(spend -> spend.getLastDatetime().isBefore(txDateTime)
+                        || spend.getTxCount() == 0)
+                .map(MonthlyCategorySpend::getUsdTotal);
+    }
+
+    /**
+     * Учитывает сохранённую транзакцию в агрегатах в той же транзакции БД, что и вставка.
+     * Счётчики в памяти обновляются только после коммита.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordSpend(ExpenseCategory category,
+                            OffsetDateTime monthStart,
+                            OffsetDateTime txDateTime,
+                            BigDecimal usdAmount) {
+        String categoryName = category.name();
+
+        List<SpendTotals> changed = new ArrayList<>(
+                monthlySpendRepository.addSpendToOverlapping(categoryName, monthStart, txDateTime, usdAmount));
+
+        List<SpendTotals> own = monthlySpendRepository.addSpend(categoryName, monthStart, txDateTime, usdAmount, 1);
+
+        if (own.isEmpty()) {
+            // Строки за месяц ещё нет: строим её по transactions, включая только что вставленную транзакцию.
+            transactionRepository.flush();
+            own = monthlySpendRepository.createFromTransactions(
+                    categoryName, monthStart, monthStart.plusMonths(1));
+
+            if (own.isEmpty()) {
+                // Строку успела создать параллельная транзакция, нашу вставку она не видела.
+                own = monthlySpendRepository.addSpend(categoryName, monthStart, txDateTime, usdAmount, 1);
+            } else {
+                log.debug("Created monthly spend aggregate for {} starting {}", category, monthStart);
+            }
+        }
+        changed.addAll(own);
+
+        applyAfterCommit(changed);
+    }
+
+    /**
+     * Учитывает пачку уже сохранённых транзакций одной категории и месяца одним изменением строки агрегата.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordSpend(ExpenseCategory category,
+                            OffsetDateTime monthStart,
+                            List<Transaction> saved) {
+        if (saved.isEmpty()) {
+            return;
+        }
+
+        String categoryName = category.name();
+        BigDecimal amount = BigDecimal.ZERO;
+        OffsetDateTime lastDatetime = saved.get(0).getDatetime();
+        List<Long> ids = new ArrayList<>(saved.size());
+        for (Transaction transaction : saved) {
+            amount = amount.add(transaction.getUsdAmount());
+            if (transaction.getDatetime().isAfter(lastDatetime)) {
+                lastDatetime = transaction.getDatetime();
+            }
+            ids.add(transaction.getId());
+        }
+
+        transactionRepository.flush();
+
+        List<SpendTotals> changed = new ArrayList<>(
+                monthlySpendRepository.addTransactionsToOverlapping(categoryName, monthStart, ids));
+
+        List<SpendTotals> own = monthlySpendRepository.addSpend(
+                categoryName, monthStart, lastDatetime, amount, saved.size());
+
+        if (own.isEmpty()) {
+            own = monthlySpendRepository.createFromTransactions(
+                    categoryName, monthStart, monthStart.plusMonths(1));
+
+            if (own.isEmpty()) {
+                own = monthlySpendRepository.addSpend(
+                        categoryName, monthStart, lastDatetime, amount, saved.size());
+            }
+        }
+        changed.addAll(own);
+
+        applyAfterCommit(changed);
+    }
+
+    private void applyAfterCommit(List<SpendTotals> changed) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            changed.forEach(this::apply);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                changed.forEach(MonthlySpendService.this::apply);
+            }
+        });
+    }
+
+    private void apply(SpendTotals totals) {
+        spendAccumulator.apply(
+                ExpenseCategory.valueOf(totals.getCategory()),
+                fromMicros(totals.getMonthStartMicros()),
+                totals.getUsdTotal(),
+                totals.getTxCount(),
+                fromMicros(totals.getLastDatetimeMicros()));
+    }
+
+    private static Instant fromMicros(long micros) {
+        return Instant.EPOCH.plus(micros, ChronoUnit.MICROS);
+    }
+}
@@ -0,0 +1,93 @@
+package com.testtask.service;
+
+import com.testtask.model.ExpenseCategory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики обработки транзакции: время этапов processAndSave, результат проверки лимита,
+ * источник курса и время обращения к Alpha Vantage. Таймеры публикуют гистограммы,
+ * поэтому перцентили считаются на стороне Prometheus по всем экземплярам.
+ * Теги — валюта и категория: обе из короткого фиксированного списка.
+ */
+@Component
+public class ProcessingMetrics {
+
+    public enum Stage {
+        FX_LOOKUP("fx_lookup"),
+        LIMIT_LOOKUP("limit_lookup"),
+        SPENT_LOOKUP("spent_lookup"),
+        SAVE("save");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    public enum RateSource {
+        CACHE("cache"),
+        DB("db"),
+        PROVIDER("provider"),
+        FALLBACK("fallback");
+
+        private final String tag;
+
+        RateSource(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final Meter.MeterProvider<Timer> stages;
+    private final Meter.MeterProvider<Counter> limitChecks;
+    private final Meter.MeterProvider<Counter> rateLookups;
+    private final Meter.MeterProvider<Timer> providerCalls;
+
+    public ProcessingMetrics(MeterRegistry meterRegistry) {
+        this.stages = Timer.builder("transaction.process.stage")
+                .description("Time spent in each stage of processing a single transaction")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(50_000))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .withRegistry(meterRegistry);
+        this.limitChecks = Counter.builder("transaction.limit.checks")
+                .description("Transactions checked against the monthly limit")
+                .withRegistry(meterRegistry);
+        this.rateLookups = Counter.builder("exchange.rate.lookups")
+                .description("Exchange rate lookups by where the rate came from")
+                .withRegistry(meterRegistry);
+        this.providerCalls = Timer.builder("alphavantage.fetch")
+                .description("Alpha Vantage FX_DAILY calls including quota waits and retries")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(2))
+                .withRegistry(meterRegistry);
+    }
+
+    public void recordStage(Stage stage, String currency, ExpenseCategory category, long nanos) {
+        stages.withTags(Tags.of("stage", stage.tag, "currency", currency, "category", category.name()))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordLimitCheck(String currency, ExpenseCategory category, boolean exceeded) {
+        limitChecks.withTags(Tags.of("exceeded", Boolean.toString(exceeded), "currency", currency, "category", category.name()))
+                .increment();
+    }
+
+    public void recordRateSource(RateSource source, String currency) {
+        rateLookups.withTags(Tags.of("source", source.tag, "currency", currency)).increment();
+    }
+
+    public void recordProviderCall(String currency, boolean success, long nanos) {
+        providerCalls.withTags(Tags.of("currency", currency, "outcome", success ? "success" : "error"))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
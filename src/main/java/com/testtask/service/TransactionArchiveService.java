@@ -0,0 +1,187 @@
+package com.testtask.service;
+
+import com.testtask.archive.ArchiveManifest;
+import com.testtask.archive.ArchivedTransaction;
+import com.testtask.archive.ColumnarArchiveReader;
+import com.testtask.dto.ExceededTransactionFilter;
+import com.testtask.dto.ExceededTransactionResponseDto;
+import com.testtask.model.ExceededCursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Чтение заархивированных месяцев transactions. Месяцы архивируются по возрастанию, поэтому архив
+ * покрывает всё до archivedThrough(), а БД — всё начиная с него; выборки склеивают обе части.
+ */
+@Service
+public class TransactionArchiveService {
+
+    private final Path directory;
+    private final JsonMapper jsonMapper;
+
+    private volatile ArchiveManifest manifest;
+
+    public TransactionArchiveService(
+            @Value("${transaction-archive.dir:data/archive}") Path directory,
+            JsonMapper jsonMapper) throws IOException {
+
+        this.directory = directory;
+        this.jsonMapper = jsonMapper;
+        this.manifest = ArchiveManifest.load(directory, jsonMapper);
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    public ArchiveManifest manifest() {
+        return manifest;
+    }
+
+    /**
+     * Добавляет месяц в manifest. С этого момента его строки читаются из архива, а не из БД.
+     */
+    public synchronized void register(ArchiveManifest.Entry entry) throws IOException {
+        ArchiveManifest updated = manifest.with(entry);
+        Files.createDirectories(directory);
+        updated.save(directory, jsonMapper);
+        manifest = updated;
+    }
+
+    /**
+     * Конец последнего заархивированного месяца; пусто, если архив пуст.
+     */
+    public Optional<OffsetDateTime> archivedThrough() {
+        List<ArchiveManifest.Entry> entries = manifest.entries();
+        return entries.isEmpty()
+                ? Optional.empty()
+                : Optional.of(entries.getLast().month().plusMonths(1).atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC));
+    }
+
+    /**
+     * Фильтр для части выборки, которая читается из БД: from поднимается до archivedThrough().
+     * Пусто, если весь интервал фильтра лежит в архиве.
+     */
+    public Optional<ExceededTransactionFilter> liveFilter(ExceededTransactionFilter filter) {
+        Optional<OffsetDateTime> through = archivedThrough();
+        if (through.isEmpty()) {
+            return Optional.of(filter);
+        }
+        if (filter.to() != null && !filter.to().isAfter(through.get())) {
+            return Optional.empty();
+        }
+        if (filter.from() != null && !filter.from().isBefore(through.get())) {
+            return Optional.of(filter);
+        }
+        return Optional.of(new ExceededTransactionFilter(filter.category(), through.get(), filter.to(), filter.accountFrom()));
+    }
+
+    /**
+     * До limit превысивших лимит транзакций из архива по (datetime, id) DESC, строго после after (если задан).
+     */
+    public List<ExceededTransactionResponseDto> findExceededPage(ExceededTransactionFilter filter, ExceededCursor after, int limit) {
+        List<ExceededTransactionResponseDto> rows = new ArrayList<>();
+        if (limit > 0) {
+            readExceeded(filter, after, row -> {
+                rows.add(row);
+                return rows.size() < limit;
+            });
+        }
+        return rows;
+    }
+
+    /**
+     * Все превысившие лимит транзакции из архива по (datetime, id) DESC, построчно в consumer.
+     */
+    public void streamExceeded(ExceededTransactionFilter filter, Consumer<ExceededTransactionResponseDto> consumer) {
+        readExceeded(filter, null, row -> {
+            consumer.accept(row);
+            return true;
+        });
+    }
+
+    private void readExceeded(ExceededTransactionFilter filter, ExceededCursor after,
+                              Predicate<ExceededTransactionResponseDto> consumer) {
+
+        Instant from = filter.from() == null ? null : filter.from().toInstant();
+        Instant to = filter.to() == null ? null : filter.to().toInstant();
+
+        // Месяцы от новых к старым, внутри файла строки уже лежат по (datetime, id) DESC.
+        for (ArchiveManifest.Entry entry : manifest.entries().reversed()) {
+            if (from != null && entry.maxDatetime().isBefore(from)) {
+                return;
+            }
+            if (entry.exceededRows() == 0
+                    || (to != null && !entry.minDatetime().isBefore(to))
+                    || (after != null && entry.minDatetime().isAfter(after.datetime()))) {
+                continue;
+            }
+
+            boolean more;
+            try {
+                more = ColumnarArchiveReader.read(directory.resolve(entry.file()), true, row -> {
+                    if (!matches(row, filter, from, to, after)) {
+                        return true;
+                    }
+                    return consumer.test(toDto(row));
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read transactions archive for " + entry.month(), e);
+            }
+            if (!more) {
+                return;
+            }
+        }
+    }
+
+    private static boolean matches(ArchivedTransaction row, ExceededTransactionFilter filter,
+                                   Instant from, Instant to, ExceededCursor after) {
+
+        if (filter.category() != null && !filter.category().name().equals(row.expenseCategory())) {
+            return false;
+        }
+        if (filter.accountFrom() != null && !filter.accountFrom().equals(row.accountFrom())) {
+            return false;
+        }
+        if (from != null && row.datetime().isBefore(from)) {
+            return false;
+        }
+        if (to != null && !row.datetime().isBefore(to)) {
+            return false;
+        }
+        if (after == null) {
+            return true;
+        }
+        int byDatetime = row.datetime().compareTo(after.datetime());
+        return byDatetime < 0 || (byDatetime == 0 && row.id() < after.id());
+    }
+
+    private static ExceededTransactionResponseDto toDto(ArchivedTransaction row) {
+        return new ExceededTransactionResponseDto(
+                row.id(),
+                row.accountFrom(),
+                row.accountTo(),
+                row.currencyShortname(),
+                row.sum(),
+                row.expenseCategory(),
+                row.datetime(),
+                row.usdAmount(),
+                row.limitSum(),
+                row.limitDatetime(),
+                row.limitCurrency());
+    }
+}
@@ -0,0 +1,262 @@
+package com.testtask.service;
+
+import com.testtask.archive.ArchiveManifest;
+import com.testtask.archive.ArchivedTransaction;
+import com.testtask.archive.ColumnarArchiveReader;
+import com.testtask.archive.ColumnarArchiveWriter;
+import com.testtask.repository.TransactionArchiveRepository;
+import com.testtask.repository.TransactionPartitionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Переносит закрытые месяцы старше after-months из transactions в файлы архива.
+ * <p>
+ * Порядок для месяца: секция месяца отсоединяется, и её строки больше не меняются; вставки задним числом
+ * попадают в секцию по умолчанию. Файл пишется во временный из отсоединённой секции и строк секции по умолчанию,
+ * сбрасывается на диск и переименовывается, затем перечитывается и сверяется с числом строк и SHA-256, затем месяц
+ * попадает в manifest и только после этого удаляются секция и выгруженные строки по id. Сбой на любом шаге
+ * оставляет строки в БД. Строки уже заархивированного месяца, появившиеся в БД позже, дописываются в новый файл
+ * месяца вместе со строками старого и удаляются из БД так же. Месяцы обрабатываются по возрастанию и до первой ошибки.
+ */
+@Slf4j
+@Service
+public class TransactionArchiver {
+
+    private static final String FILE_PREFIX = "transactions-";
+    private static final String FILE_SUFFIX = ".txa.gz";
+    private static final Comparator<ArchivedTransaction> ORDER = Comparator
+            .comparing(ArchivedTransaction::datetime)
+            .thenComparingLong(ArchivedTransaction::id)
+            .reversed();
+
+    private final TransactionArchiveRepository archiveRepository;
+    private final TransactionPartitionRepository partitionRepository;
+    private final TransactionArchiveService archiveService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int afterMonths;
+    private final int groupSize;
+    private final Counter archivedMonths;
+    private final Counter archivedRows;
+    private final Counter failures;
+
+    public TransactionArchiver(
+            TransactionArchiveRepository archiveRepository,
+            TransactionPartitionRepository partitionRepository,
+            TransactionArchiveService archiveService,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${transaction-archive.enabled:false}") boolean enabled,
+            @Value("${transaction-archive.after-months:24}") int afterMonths,
+            @Value("${transaction-archive.row-group-size:10000}") int groupSize) {
+
+        this.archiveRepository = archiveRepository;
+        this.partitionRepository = partitionRepository;
+        this.archiveService = archiveService;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.afterMonths = afterMonths;
+        this.groupSize = groupSize;
+        this.archivedMonths = Counter.builder("transaction.archive.months").register(meterRegistry);
+        this.archivedRows = Counter.builder("transaction.archive.rows").register(meterRegistry);
+        this.failures = Counter.builder("transaction.archive.failures").register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${transaction-archive.cron:0 0 4 * * *}")
+    public void archive() {
+        if (!enabled) {
+            return;
+        }
+        archive(YearMonth.now(ZoneOffset.UTC));
+    }
+
+    void archive(YearMonth current) {
+        YearMonth cutoff = current.minusMonths(afterMonths);
+        List<YearMonth> detached = partitionRepository.findDetachedMonths();
+        Optional<YearMonth> oldest = Stream.concat(archiveRepository.findOldestMonth().stream(), detached.stream())
+                .min(Comparator.naturalOrder());
+        if (oldest.isEmpty()) {
+            return;
+        }
+
+        for (YearMonth month = oldest.get(); month.isBefore(cutoff); month = month.plusMonths(1)) {
+            boolean hasDetached = detached.contains(month);
+            try {
+                if (!hasDetached && !archiveRepository.hasRows(month)) {
+                    continue;
+                }
+                hasDetached |= partitionRepository.detachPartition(month);
+                List<ArchivedTransaction> live = archiveRepository.findRows(month);
+
+                Optional<ArchiveManifest.Entry> archived = archiveService.manifest().find(month);
+                if (archived.isEmpty()) {
+                    boolean fromPartition = hasDetached;
+                    YearMonth exported = month;
+                    ArchiveManifest.Entry entry = writeMonth(month, FILE_PREFIX + month + FILE_SUFFIX, live, consumer -> {
+                        if (fromPartition) {
+                            // Курсор PostgreSQL отдаёт строки порциями только внутри транзакции.
+                            transactionTemplate.executeWithoutResult(
+                                    status -> archiveRepository.streamDetachedPartition(exported, consumer));
+                        }
+                    });
+                    archiveService.register(entry);
+                    archivedMonths.increment();
+                    archivedRows.increment(entry.rows());
+                    log.info("Archived {} transactions of {} to {}", entry.rows(), month, entry.file());
+                } else if (!live.isEmpty()) {
+                    // Отсоединённая секция уже в файле: она замораживается до выгрузки. Дописываются только строки из БД.
+                    ArchiveManifest.Entry previous = archived.get();
+                    Path previousFile = archiveService.directory().resolve(previous.file());
+                    String fileName = FILE_PREFIX + month + "." + Instant.now().toEpochMilli() + FILE_SUFFIX;
+                    ArchiveManifest.Entry entry = writeMonth(month, fileName, live, consumer ->
+                            ColumnarArchiveReader.read(previousFile, false, row -> {
+                                consumer.accept(row);
+                                return true;
+                            }));
+                    archiveService.register(entry);
+                    Files.deleteIfExists(previousFile);
+                    archivedRows.increment(entry.rows() - previous.rows());
+                    log.info("Re-archived {} late transactions of {} to {}", live.size(), month, entry.file());
+                }
+                purge(month, hasDetached, live);
+            } catch (IOException | RuntimeException e) {
+                failures.increment();
+                log.error("Failed to archive transactions of {}, will retry on the next run", month, e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Пишет файл месяца из source и строк live, сохраняя порядок (datetime, id) DESC.
+     * Строка source с тем же id, что и в live, заменяется версией из live.
+     */
+    private ArchiveManifest.Entry writeMonth(YearMonth month, String fileName, List<ArchivedTransaction> live,
+                                             RowSource source) throws IOException {
+
+        Path directory = archiveService.directory();
+        Files.createDirectories(directory);
+        Path target = directory.resolve(fileName);
+        Path temp = directory.resolve(fileName + ".tmp");
+
+        Set<Long> liveIds = live.stream().map(ArchivedTransaction::id).collect(Collectors.toSet());
+        MessageDigest digest = sha256();
+        ColumnarArchiveWriter writer;
+        try (OutputStream output = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+            writer = new ColumnarArchiveWriter(output, groupSize);
+            try (writer) {
+                int[] next = {0};
+                source.forEach(row -> {
+                    if (liveIds.contains(row.id())) {
+                        return;
+                    }
+                    while (next[0] < live.size() && ORDER.compare(live.get(next[0]), row) < 0) {
+                        write(writer, live.get(next[0]++));
+                    }
+                    write(writer, row);
+                });
+                while (next[0] < live.size()) {
+                    write(writer, live.get(next[0]++));
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        verify(temp, writer.rows(), sha256);
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        return new ArchiveManifest.Entry(month, fileName, writer.rows(), writer.exceededRows(),
+                writer.minDatetime(), writer.maxDatetime(), sha256, Instant.now());
+    }
+
+    private static void write(ColumnarArchiveWriter writer, ArchivedTransaction row) {
+        try {
+            writer.write(row);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Перечитывает записанный файл целиком: строки из БД удаляются, только если файл читается и совпадает.
+     */
+    private static void verify(Path file, long expectedRows, String expectedSha256) throws IOException {
+        MessageDigest digest = sha256();
+        AtomicLong rows = new AtomicLong();
+        try (InputStream input = new DigestInputStream(Files.newInputStream(file), digest)) {
+            ColumnarArchiveReader.read(input, file.getFileName().toString(), false, row -> {
+                rows.incrementAndGet();
+                return true;
+            });
+            input.transferTo(OutputStream.nullOutputStream());
+        }
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        if (rows.get() != expectedRows || !sha256.equals(expectedSha256)) {
+            throw new IOException("Archive " + file + " does not match the exported rows: "
+                    + rows.get() + " of " + expectedRows + " rows read");
+        }
+    }
+
+    /**
+     * Удаляет из БД отсоединённую секцию и только выгруженные строки секции по умолчанию.
+     */
+    private void purge(YearMonth month, boolean hasDetached, List<ArchivedTransaction> exported) {
+        long[] ids = exported.stream().mapToLong(ArchivedTransaction::id).toArray();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (hasDetached) {
+                archiveRepository.dropDetachedPartition(month);
+            }
+            archiveRepository.deleteRows(month, ids);
+        });
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowSource {
+        void forEach(Consumer<ArchivedTransaction> consumer) throws IOException;
+    }
+}
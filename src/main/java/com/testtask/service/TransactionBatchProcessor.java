@@ -0,0 +1,198 @@
+package com.testtask.service;
+
+import com.testtask.entity.Transaction;
+import com.testtask.exception.BatchTimeoutException;
+import com.testtask.model.ExpenseCategory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Обработка пачки транзакций на виртуальных потоках.
+ * Одновременно в БД уходит не больше групп, чем соединений в пуле, остальные ждут разрешения.
+ */
+@Slf4j
+@Service
+public class TransactionBatchProcessor {
+
+    private final TransactionService transactionService;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final Duration timeout;
+    private final Timer queueWait;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public TransactionBatchProcessor(
+            TransactionService transactionService,
+            @Qualifier("transactionBatchExecutor") ExecutorService executor,
+            @Value("${transaction-batch.max-concurrency:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrency,
+            @Value("${transaction-batch.timeout:60s}") Duration timeout,
+            MeterRegistry meterRegistry) {
+
+        this.transactionService = transactionService;
+        this.executor = executor;
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.timeout = timeout;
+
+        this.queueWait = Timer.builder("transaction.batch.queue.wait")
+                .description("Time a batch group waited for a database permit")
+                .register(meterRegistry);
+        Gauge.builder("transaction.batch.in.flight", inFlight, AtomicInteger::get)
+                .description("Batch items currently being processed")
+                .register(meterRegistry);
+        Gauge.builder("transaction.batch.permits.available", permits, Semaphore::availablePermits)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Обрабатывает все транзакции и возвращает результаты в исходном порядке.
+     * Транзакции группируются по категории и месяцу: группы обрабатываются параллельно,
+     * внутри группы - последовательно по datetime, так что лимит проверяется с учётом соседей по пачке.
+     * При первой ошибке или по истечении таймаута оставшиеся группы отменяются.
+     */
+    public List<Transaction> processAll(List<Transaction> transactions) {
+        ExecutorCompletionService<List<Indexed>> completion = new ExecutorCompletionService<>(executor);
+        List<Future<List<Indexed>>> futures = new ArrayList<>(submitGroups(transactions, completion).keySet());
+
+        Transaction[] results = new Transaction[transactions.size()];
+        long deadline = System.nanoTime() + timeout.toNanos();
+        boolean completed = false;
+
+        try {
+            for (int done = 0; done < futures.size(); done++) {
+                Future<List<Indexed>> next = completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    throw new BatchTimeoutException("Batch of " + transactions.size()
+                            + " transactions did not finish within " + timeout + ", "
+                            + done + " of " + futures.size() + " groups processed");
+                }
+                for (Indexed result : next.get()) {
+                    results[result.index()] = result.transaction();
+                }
+            }
+            completed = true;
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Не удалось обработать одну из транзакций", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Batch processing was interrupted", e);
+        } finally {
+            if (!completed) {
+                futures.forEach(future -> future.cancel(true));
+                log.warn("Cancelled remaining groups of a batch of {} transactions", transactions.size());
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Как processAll, но ошибка группы не отменяет остальные: результат каждой транзакции возвращается
+     * отдельно. Группы, не успевшие за таймаут, отменяются и получают ошибку.
+     */
+    public List<BatchItemResult> processAllSettled(List<Transaction> transactions) {
+        ExecutorCompletionService<List<Indexed>> completion = new ExecutorCompletionService<>(executor);
+        Map<Future<List<Indexed>>, List<Indexed>> pending = submitGroups(transactions, completion);
+
+        BatchItemResult[] results = new BatchItemResult[transactions.size()];
+        long deadline = System.nanoTime() + timeout.toNanos();
+
+        try {
+            while (!pending.isEmpty()) {
+                Future<List<Indexed>> next = completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+                List<Indexed> group = pending.remove(next);
+                try {
+                    for (Indexed result : next.get()) {
+                        results[result.index()] = BatchItemResult.saved(result.transaction());
+                    }
+                } catch (ExecutionException e) {
+                    String error = String.valueOf(e.getCause().getMessage());
+                    group.forEach(item -> results[item.index()] = BatchItemResult.failed(error));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.keySet().forEach(future -> future.cancel(true));
+            throw new RuntimeException("Batch processing was interrupted", e);
+        }
+
+        String timedOut = "Not processed within " + timeout;
+        pending.forEach((future, group) -> {
+            future.cancel(true);
+            group.forEach(item -> results[item.index()] = BatchItemResult.failed(timedOut));
+        });
+
+        return Arrays.asList(results);
+    }
+
+    private Map<Future<List<Indexed>>, List<Indexed>> submitGroups(
+            List<Transaction> transactions, ExecutorCompletionService<List<Indexed>> completion) {
+
+        Map<GroupKey, List<Indexed>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            GroupKey key = new GroupKey(transaction.getExpenseCategory(),
+                    TransactionService.monthStartOf(transaction.getDatetime()).toInstant());
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(new Indexed(i, transaction));
+        }
+
+        Map<Future<List<Indexed>>, List<Indexed>> submitted = new LinkedHashMap<>();
+        for (List<Indexed> group : groups.values()) {
+            group.sort(Comparator.comparing(item -> item.transaction().getDatetime().toInstant()));
+            long enqueuedAt = System.nanoTime();
+            submitted.put(completion.submit(() -> process(group, enqueuedAt)), group);
+        }
+        return submitted;
+    }
+
+    private List<Indexed> process(List<Indexed> group, long enqueuedAt) throws InterruptedException {
+        permits.acquire();
+        try {
+            queueWait.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+            inFlight.addAndGet(group.size());
+            try {
+                List<Transaction> saved = transactionService.processGroup(
+                        group.stream().map(Indexed::transaction).toList());
+
+                List<Indexed> results = new ArrayList<>(group.size());
+                for (int i = 0; i < group.size(); i++) {
+                    results.add(new Indexed(group.get(i).index(), saved.get(i)));
+                }
+                return results;
+            } finally {
+                inFlight.addAndGet(-group.size());
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private record GroupKey(ExpenseCategory category, Instant monthStart) {
+    }
+
+    private record Indexed(int index, Transaction transaction) {
+    }
+}
@@ -0,0 +1,83 @@
+package com.testtask.service;
+
+import com.testtask.repository.TransactionPartitionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Обслуживание месячных секций transactions: заранее создаёт секции на months-ahead месяцев вперёд
+ * и, если задан detach-after-months, отсоединяет секции старше этого числа месяцев.
+ * Отсоединённая секция остаётся отдельной таблицей, но её строки больше не видны запросам к transactions.
+ */
+@Slf4j
+@Service
+public class TransactionPartitionMaintenance implements SmartInitializingSingleton {
+
+    private final TransactionPartitionRepository partitionRepository;
+    private final int monthsAhead;
+    private final int detachAfterMonths;
+
+    public TransactionPartitionMaintenance(
+            TransactionPartitionRepository partitionRepository,
+            @Value("${transaction-partitions.months-ahead:3}") int monthsAhead,
+            @Value("${transaction-partitions.detach-after-months:0}") int detachAfterMonths) {
+
+        this.partitionRepository = partitionRepository;
+        this.monthsAhead = monthsAhead;
+        this.detachAfterMonths = detachAfterMonths;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${transaction-partitions.maintenance-cron:0 0 2 * * *}")
+    public void maintain() {
+        maintain(YearMonth.now(ZoneOffset.UTC));
+    }
+
+    void maintain(YearMonth current) {
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            if (partitionRepository.createPartition(month)) {
+                log.info("Created transactions partition for {}", month);
+            }
+        }
+
+        if (detachAfterMonths <= 0) {
+            return;
+        }
+
+        YearMonth oldestKept = current.minusMonths(detachAfterMonths);
+        List<YearMonth> attached = partitionRepository.findAttachedMonths();
+        for (YearMonth month : attached) {
+            if (month.isBefore(oldestKept) && partitionRepository.detachPartition(month)) {
+                log.info("Detached transactions partition for {}", month);
+            }
+        }
+    }
+
+    /**
+     * С какого момента transactions содержит все строки: начало самой ранней присоединённой секции,
+     * если секции отсоединяются, иначе пусто (вся история на месте).
+     */
+    public Optional<OffsetDateTime> retainedFrom() {
+        if (detachAfterMonths <= 0) {
+            return Optional.empty();
+        }
+        List<YearMonth> attached = partitionRepository.findAttachedMonths();
+        return attached.isEmpty()
+                ? Optional.empty()
+                : Optional.of(attached.getFirst().atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC));
+    }
+}
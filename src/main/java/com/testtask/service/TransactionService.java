@@ -1,21 +1,33 @@
 package com.testtask.service;
 
+import com.testtask.cache.LimitTimeline;
+import com.testtask.dto.ExceededTransactionFilter;
+import com.testtask.dto.ExceededTransactionPageDto;
 import com.testtask.dto.ExceededTransactionResponseDto;
 import com.testtask.entity.Limit;
 import com.testtask.entity.Transaction;
+import com.testtask.exception.InvalidRequestException;
+import com.testtask.model.ExceededCursor;
 import com.testtask.model.ExpenseCategory;
+import com.testtask.model.Money;
 import com.testtask.repository.LimitRepository;
 import com.testtask.repository.TransactionRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.OffsetDateTime;
 import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Slf4j
 @Service
@@ -23,72 +35,250 @@ import java.util.List;
 public class TransactionService {
 
     private static final BigDecimal DEFAULT_LIMIT_SUM = new BigDecimal("1000.00");
+    private static final String DEFAULT_LIMIT_CURRENCY = "USD";
+    private static final int MAX_PAGE_SIZE = 500;
 
     private final TransactionRepository transactionRepository;
     private final LimitRepository limitRepository;
     private final ExchangeRateService exchangeRateService;
+    private final MonthlySpendService monthlySpendService;
+    private final LimitTimeline limitTimeline;
+    private final TransactionArchiveService transactionArchiveService;
+    private final ProcessingMetrics processingMetrics;
+    private final Scheduler jdbcScheduler;
+    private final TransactionTemplate transactionTemplate;
 
     @Transactional
     public Transaction processAndSave(Transaction transaction) {
-        ExpenseCategory category = transaction.getExpenseCategory();
-        OffsetDateTime txDateTime = transaction.getDatetime();
-
+        long started = System.nanoTime();
         BigDecimal rate = exchangeRateService.getOrFetchRate(
                 transaction.getCurrencyShortname(),
-                txDateTime.toLocalDate()
+                transaction.getDatetime().toLocalDate()
         );
-        BigDecimal usdAmount = transaction.getSum()
-                .divide(rate, 2, RoundingMode.HALF_UP);
-        transaction.setUsdAmount(usdAmount);
+        recordStage(ProcessingMetrics.Stage.FX_LOOKUP, transaction, started);
 
-        Limit applicableLimit = limitRepository
-                .findFirstByCategoryAndLimitDatetimeLessThanEqualOrderByLimitDatetimeDesc(
-                        category, txDateTime)
-                .orElse(null);
-        transaction.setLimit(applicableLimit);
+        return applyRateAndSave(transaction, rate);
+    }
 
-        OffsetDateTime monthStart = txDateTime
-                .with(TemporalAdjusters.firstDayOfMonth())
-                .withHour(0).withMinute(0).withSecond(0).withNano(0);
+    public Mono<Transaction> processAndSaveAsync(Transaction transaction) {
+        return Mono.defer(() -> {
+                    long started = System.nanoTime();
+                    return exchangeRateService.getOrFetchRateAsync(
+                                    transaction.getCurrencyShortname(),
+                                    transaction.getDatetime().toLocalDate())
+                            .doOnNext(rate -> recordStage(ProcessingMetrics.Stage.FX_LOOKUP, transaction, started));
+                })
+                .publishOn(jdbcScheduler)
+                .map(rate -> transactionTemplate.execute(status -> applyRateAndSave(transaction, rate)));
+    }
 
-        BigDecimal effectiveLimitSum;
-        OffsetDateTime limitEffectiveFrom;
+    private Transaction applyRateAndSave(Transaction transaction, BigDecimal rate) {
+        ExpenseCategory category = transaction.getExpenseCategory();
+        OffsetDateTime txDateTime = transaction.getDatetime();
+        long started = System.nanoTime();
 
-        if (applicableLimit != null) {
-            effectiveLimitSum = applicableLimit.getLimitSum();
-            Limit previousLimit = limitRepository
-                    .findFirstByCategoryAndLimitDatetimeLessThanOrderByLimitDatetimeDesc(
-                            category, applicableLimit.getLimitDatetime())
-                    .orElse(null);
-
-            if (previousLimit != null) {
-                limitEffectiveFrom = previousLimit.getLimitDatetime();
-            } else {
-                limitEffectiveFrom = applicableLimit.getLimitDatetime()
-                        .with(TemporalAdjusters.firstDayOfMonth())
-                        .withHour(0).withMinute(0).withSecond(0).withNano(0);
-            }
-        } else {
-            effectiveLimitSum = DEFAULT_LIMIT_SUM;
-            limitEffectiveFrom = monthStart;
-        }
+        Money usdAmount = Money.convert(transaction.getSum(), rate);
+        transaction.setUsdAmount(usdAmount.toBigDecimal());
 
-        BigDecimal spentInMonth = transactionRepository.sumUsdAfterLimit(
-                category,
-                monthStart,
-                txDateTime
-        );
+        Limit applicableLimit = findApplicableLimit(category, txDateTime)
+                .orElse(null);
+        OffsetDateTime monthStart = monthStartOf(txDateTime);
+        applyLimit(transaction, applicableLimit, monthStart);
+
+        BigDecimal effectiveLimitSum = applicableLimit != null ? applicableLimit.getLimitSum() : DEFAULT_LIMIT_SUM;
+        started = recordStage(ProcessingMetrics.Stage.LIMIT_LOOKUP, transaction, started);
+
+        BigDecimal spentInMonth = monthlySpendService.spentBefore(category, monthStart, txDateTime)
+                .orElseGet(() -> transactionRepository.sumUsdAfterLimit(
+                        category,
+                        monthStart,
+                        txDateTime
+                ));
 
-        boolean exceeded = spentInMonth.add(usdAmount).compareTo(effectiveLimitSum) > 0;
+        started = recordStage(ProcessingMetrics.Stage.SPENT_LOOKUP, transaction, started);
+
+        boolean exceeded = Money.of(spentInMonth).plus(usdAmount).isGreaterThan(Money.of(effectiveLimitSum));
         transaction.setLimitExceeded(exceeded);
+        processingMetrics.recordLimitCheck(transaction.getCurrencyShortname(), category, exceeded);
 
         Transaction saved = transactionRepository.save(transaction);
+        monthlySpendService.recordSpend(category, monthStart, txDateTime, transaction.getUsdAmount());
+        recordStage(ProcessingMetrics.Stage.SAVE, transaction, started);
+
+        return saved;
+    }
+
+    /**
+     * Записывает время этапа от started и возвращает момент его окончания — начало следующего этапа.
+     */
+    private long recordStage(ProcessingMetrics.Stage stage, Transaction transaction, long started) {
+        long now = System.nanoTime();
+        processingMetrics.recordStage(stage, transaction.getCurrencyShortname(), transaction.getExpenseCategory(), now - started);
+        return now;
+    }
+
+    /**
+     * Обрабатывает транзакции одной категории и одного месяца (в порядке datetime) в одной транзакции БД.
+     * Сумма расходов до начала группы читается один раз, дальше каждая транзакция видит все более ранние:
+     * уже сохранённые и предыдущие из группы. Транзакции с одинаковым datetime друг друга не учитывают,
+     * как и при поштучной обработке (sumUsdAfterLimit считает строго до момента транзакции).
+     */
+    @Transactional
+    public List<Transaction> processGroup(List<Transaction> group) {
+        if (group.isEmpty()) {
+            return group;
+        }
+
+        ExpenseCategory category = group.get(0).getExpenseCategory();
+        OffsetDateTime monthStart = monthStartOf(group.get(0).getDatetime());
+        OffsetDateTime first = group.get(0).getDatetime();
+        OffsetDateTime last = group.get(group.size() - 1).getDatetime();
+
+        Optional<BigDecimal> spentFromAggregate = monthlySpendService.spentBefore(category, monthStart, first);
+        Money spent = Money.of(spentFromAggregate
+                .orElseGet(() -> transactionRepository.sumUsdAfterLimit(category, monthStart, first)));
+
+        // Агрегат отвечает, только если сохранённых транзакций с этого момента ещё нет,
+        // иначе их нужно подмешивать по ходу прохода.
+        List<TransactionRepository.UsdAmountAt> stored = spentFromAggregate.isPresent()
+                ? List.of()
+                : transactionRepository.findUsdAmountsBetween(category, first, last);
+        int storedIndex = 0;
+
+        Map<String, BigDecimal> rates = new HashMap<>();
+
+        int runStart = 0;
+        while (runStart < group.size()) {
+            OffsetDateTime runDateTime = group.get(runStart).getDatetime();
+
+            while (storedIndex < stored.size() && stored.get(storedIndex).getDatetime().isBefore(runDateTime)) {
+                spent = spent.plus(Money.of(stored.get(storedIndex++).getUsdAmount()));
+            }
+
+            Limit applicableLimit = findApplicableLimit(category, runDateTime).orElse(null);
+            Money effectiveLimitSum = Money.of(applicableLimit != null ? applicableLimit.getLimitSum() : DEFAULT_LIMIT_SUM);
+
+            Money runTotal = Money.ZERO;
+            int runEnd = runStart;
+            while (runEnd < group.size() && group.get(runEnd).getDatetime().isEqual(runDateTime)) {
+                Transaction transaction = group.get(runEnd);
+
+                BigDecimal rate = rates.computeIfAbsent(
+                        transaction.getCurrencyShortname() + ":" + runDateTime.toLocalDate(),
+                        key -> exchangeRateService.getOrFetchRate(
+                                transaction.getCurrencyShortname(), runDateTime.toLocalDate()));
+
+                Money usdAmount = Money.convert(transaction.getSum(), rate);
+                transaction.setUsdAmount(usdAmount.toBigDecimal());
+                applyLimit(transaction, applicableLimit, monthStart);
+                boolean exceeded = spent.plus(usdAmount).isGreaterThan(effectiveLimitSum);
+                transaction.setLimitExceeded(exceeded);
+                processingMetrics.recordLimitCheck(transaction.getCurrencyShortname(), category, exceeded);
+
+                runTotal = runTotal.plus(usdAmount);
+                runEnd++;
+            }
+
+            spent = spent.plus(runTotal);
+            runStart = runEnd;
+        }
+
+        List<Transaction> saved = transactionRepository.saveAll(group);
+        monthlySpendService.recordSpend(category, monthStart, saved);
 
         return saved;
     }
 
+    /**
+     * Сохраняет на транзакции лимит, с которым она сравнивается, чтобы выборка превысивших
+     * не искала его заново по таблице limits.
+     */
+    private static void applyLimit(Transaction transaction, Limit applicableLimit, OffsetDateTime monthStart) {
+        transaction.setLimit(applicableLimit);
+        if (applicableLimit != null) {
+            transaction.setLimitSum(applicableLimit.getLimitSum());
+            transaction.setLimitDatetime(applicableLimit.getLimitDatetime());
+            transaction.setLimitCurrency(applicableLimit.getCurrency());
+        } else {
+            transaction.setLimitSum(DEFAULT_LIMIT_SUM);
+            transaction.setLimitDatetime(monthStart);
+            transaction.setLimitCurrency(DEFAULT_LIMIT_CURRENCY);
+        }
+    }
+
+    /**
+     * Начало месяца лимита в смещении самой транзакции: лимит считается по календарному месяцу клиента.
+     * Секции transactions нарезаны по месяцам UTC, поэтому при ненулевом смещении месяц клиента задевает
+     * две секции, и sumUsdAfterLimit читает обе (по индексу (expense_category, datetime), только нужный
+     * диапазон). Границы в UTC сузили бы запрос до одной секции, но перенесли бы в соседний месяц
+     * транзакции первых и последних часов месяца клиента, то есть изменили бы, какие траты идут в лимит.
+     */
+    static OffsetDateTime monthStartOf(OffsetDateTime datetime) {
+        return datetime
+                .with(TemporalAdjusters.firstDayOfMonth())
+                .withHour(0).withMinute(0).withSecond(0).withNano(0);
+    }
+
+    private Optional<Limit> findApplicableLimit(ExpenseCategory category, OffsetDateTime datetime) {
+        if (limitTimeline.isLoaded()) {
+            return limitTimeline.applicableAt(category, datetime);
+        }
+        return limitRepository.findFirstByCategoryAndLimitDatetimeLessThanEqualOrderByLimitDatetimeDesc(
+                category, datetime);
+    }
+
     @Transactional(readOnly = true)
     public List<ExceededTransactionResponseDto> getExceededTransactions() {
-        return transactionRepository.findAllExceededWithLimitInfo();
+        if (transactionArchiveService.archivedThrough().isEmpty()) {
+            return transactionRepository.findAllExceededWithLimitInfo();
+        }
+
+        // Заархивированные месяцы старше всего, что осталось в БД, поэтому их строки идут следом.
+        ExceededTransactionFilter all = new ExceededTransactionFilter(null, null, null, null);
+        List<ExceededTransactionResponseDto> rows = new ArrayList<>();
+        transactionArchiveService.liveFilter(all).ifPresent(live -> transactionRepository.streamExceeded(live, rows::add));
+        transactionArchiveService.streamExceeded(all, rows::add);
+        return rows;
+    }
+
+    @Transactional(readOnly = true)
+    public ExceededTransactionPageDto getExceededTransactionsPage(
+            ExceededTransactionFilter filter, String cursor, int size) {
+
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new InvalidRequestException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (filter.from() != null && filter.to() != null && !filter.from().isBefore(filter.to())) {
+            throw new InvalidRequestException("'from' must be before 'to'");
+        }
+
+        ExceededCursor after = cursor == null || cursor.isBlank() ? null : ExceededCursor.decode(cursor);
+
+        // Лишняя строка показывает, есть ли следующая страница, без отдельного COUNT.
+        List<ExceededTransactionResponseDto> rows = findExceededRows(filter, after, size + 1);
+        if (rows.size() <= size) {
+            return new ExceededTransactionPageDto(rows, null);
+        }
+
+        List<ExceededTransactionResponseDto> page = rows.subList(0, size);
+        ExceededTransactionResponseDto last = page.getLast();
+        return new ExceededTransactionPageDto(List.copyOf(page), new ExceededCursor(last.datetime(), last.id()).encode());
+    }
+
+    /**
+     * Сначала строки из БД, затем, если их не хватило, из архива: заархивированные месяцы старше оставшихся в БД.
+     */
+    private List<ExceededTransactionResponseDto> findExceededRows(ExceededTransactionFilter filter, ExceededCursor after, int limit) {
+        if (transactionArchiveService.archivedThrough().isEmpty()) {
+            return transactionRepository.findExceededPage(filter, after, limit);
+        }
+
+        List<ExceededTransactionResponseDto> rows = new ArrayList<>(limit);
+        transactionArchiveService.liveFilter(filter)
+                .ifPresent(live -> rows.addAll(transactionRepository.findExceededPage(live, after, limit)));
+        if (rows.size() < limit) {
+            rows.addAll(transactionArchiveService.findExceededPage(filter, after, limit - rows.size()));
+        }
+        return rows;
     }
-}
\ No newline at end of file
+}
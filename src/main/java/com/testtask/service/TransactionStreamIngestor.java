@@ -0,0 +1,179 @@
+package com.testtask.service;
+
+import com.testtask.dto.TransactionRequestDto;
+import com.testtask.dto.TransactionStreamResultDto;
+import com.testtask.entity.Transaction;
+import com.testtask.mapper.AppMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Потоковый приём транзакций в формате NDJSON: одна транзакция на строку.
+ * Строки читаются и обрабатываются кусками фиксированного размера, результат по каждой строке
+ * сразу пишется в ответ, поэтому расход памяти не зависит от размера входа.
+ */
+@Slf4j
+@Service
+public class TransactionStreamIngestor {
+
+    private static final byte NEWLINE = '\n';
+
+    private final TransactionBatchProcessor transactionBatchProcessor;
+    private final AppMapper appMapper;
+    private final Validator validator;
+    private final JsonMapper jsonMapper;
+    private final int chunkSize;
+    private final int maxLineLength;
+
+    public TransactionStreamIngestor(
+            TransactionBatchProcessor transactionBatchProcessor,
+            AppMapper appMapper,
+            Validator validator,
+            JsonMapper jsonMapper,
+            @Value("${transaction-stream.chunk-size:500}") int chunkSize,
+            @Value("${transaction-stream.max-line-length:8192}") int maxLineLength) {
+
+        this.transactionBatchProcessor = transactionBatchProcessor;
+        this.appMapper = appMapper;
+        this.validator = validator;
+        this.jsonMapper = jsonMapper;
+        this.chunkSize = chunkSize;
+        this.maxLineLength = maxLineLength;
+    }
+
+    public void ingest(InputStream input, OutputStream output) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+        List<Long> lines = new ArrayList<>(chunkSize);
+        List<Transaction> chunk = new ArrayList<>(chunkSize);
+        long lineNumber = 0;
+        long accepted = 0;
+        long rejected = 0;
+
+        RawLine line;
+        while ((line = readLine(reader)) != null) {
+            lineNumber++;
+            if (!line.tooLong() && line.text().isBlank()) {
+                continue;
+            }
+
+            String error;
+            if (line.tooLong()) {
+                error = "Line is longer than " + maxLineLength + " characters";
+            } else {
+                try {
+                    TransactionRequestDto dto = jsonMapper.readValue(line.text(), TransactionRequestDto.class);
+                    error = validate(dto);
+                    if (error == null) {
+                        lines.add(lineNumber);
+                        chunk.add(appMapper.toEntity(dto));
+                    }
+                } catch (JacksonException e) {
+                    error = "Malformed JSON: " + e.getOriginalMessage();
+                }
+            }
+
+            if (error != null) {
+                rejected++;
+                write(output, TransactionStreamResultDto.failed(lineNumber, error));
+            }
+
+            if (chunk.size() == chunkSize) {
+                rejected += flushChunk(lines, chunk, output);
+                accepted += lines.size();
+                lines.clear();
+                chunk.clear();
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            rejected += flushChunk(lines, chunk, output);
+            accepted += lines.size();
+        }
+        output.flush();
+
+        log.info("NDJSON ingest finished: {} lines, {} processed, {} rejected", lineNumber, accepted, rejected);
+    }
+
+    private long flushChunk(List<Long> lines, List<Transaction> chunk, OutputStream output) throws IOException {
+        List<BatchItemResult> results = transactionBatchProcessor.processAllSettled(chunk);
+
+        long failed = 0;
+        for (int i = 0; i < results.size(); i++) {
+            BatchItemResult result = results.get(i);
+            if (result.isSaved()) {
+                Transaction saved = result.transaction();
+                write(output, TransactionStreamResultDto.saved(
+                        lines.get(i), saved.getId(), saved.getUsdAmount(), saved.isLimitExceeded()));
+            } else {
+                failed++;
+                write(output, TransactionStreamResultDto.failed(lines.get(i), result.error()));
+            }
+        }
+        output.flush();
+        return failed;
+    }
+
+    private String validate(TransactionRequestDto dto) {
+        Set<ConstraintViolation<TransactionRequestDto>> violations = validator.validate(dto);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private void write(OutputStream output, TransactionStreamResultDto result) throws IOException {
+        output.write(jsonMapper.writeValueAsBytes(result));
+        output.write(NEWLINE);
+    }
+
+    /**
+     * Читает строку, не накапливая в памяти больше maxLineLength символов: остаток слишком длинной
+     * строки пропускается, а сама строка помечается как ошибочная.
+     */
+    private RawLine readLine(BufferedReader reader) throws IOException {
+        StringBuilder line = new StringBuilder();
+        boolean tooLong = false;
+        int ch;
+        while ((ch = reader.read()) != -1) {
+            if (ch == '\n') {
+                break;
+            }
+            if (line.length() < maxLineLength) {
+                line.append((char) ch);
+            } else {
+                tooLong = true;
+            }
+        }
+        if (ch == -1 && line.isEmpty() && !tooLong) {
+            return null;
+        }
+        int end = line.length();
+        if (end > 0 && line.charAt(end - 1) == '\r') {
+            line.setLength(end - 1);
+        }
+        return new RawLine(line.toString(), tooLong);
+    }
+
+    private record RawLine(String text, boolean tooLong) {
+    }
+}
@@ -0,0 +1,340 @@
+package com.testtask.service;
+
+import com.testtask.dto.TransactionRequestDto;
+import com.testtask.entity.Transaction;
+import com.testtask.mapper.AppMapper;
+import com.testtask.model.ExpenseCategory;
+import com.testtask.entity.WalDeadLetter;
+import com.testtask.repository.WalAppliedRepository;
+import com.testtask.repository.WalDeadLetterRepository;
+import com.testtask.wal.SegmentLog;
+import com.testtask.wal.WalRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Фоновый проводник журнала буферизованного приёма в БД.
+ * <p>
+ * Читает долговечные записи журнала по порядку пачками, делит пачку на группы по категории и месяцу
+ * и проводит группу через TransactionService.processGroup в одной транзакции БД с отметкой записей
+ * в wal_applied. После старта чтение начинается с первой сохранившейся записи, уже отмеченные
+ * записи пропускаются — так проигрывается всё, что не дошло до transactions до сбоя.
+ * <p>
+ * Группа, не прошедшая за max-attempts попыток, проводится по одной записи, чтобы ошибка одной не задела
+ * соседей. Запись, не прошедшая и отдельно, копируется в wal_dead_letters в одной транзакции с отметкой
+ * в wal_applied и оттуда повторяется по расписанию с нарастающей задержкой. Поэтому сегменты, все записи
+ * которых отмечены, можно удалять: подтверждённая запись остаётся либо в transactions, либо в wal_dead_letters.
+ */
+@Slf4j
+@Service
+public class WalApplier implements SmartLifecycle {
+
+    private final SegmentLog transactionWal;
+    private final WalAppliedRepository walAppliedRepository;
+    private final WalDeadLetterRepository walDeadLetterRepository;
+    private final TransactionService transactionService;
+    private final AppMapper appMapper;
+    private final JsonMapper jsonMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration deadLetterRetryInterval;
+    private final Duration deadLetterMaxRetryInterval;
+
+    private final AtomicLong deadLetters = new AtomicLong();
+    private final Counter applied;
+    private final Counter skipped;
+    private final Counter failed;
+    private final Counter redriven;
+
+    private volatile boolean running;
+    private volatile long position;
+    private Thread thread;
+
+    public WalApplier(
+            SegmentLog transactionWal,
+            WalAppliedRepository walAppliedRepository,
+            WalDeadLetterRepository walDeadLetterRepository,
+            TransactionService transactionService,
+            AppMapper appMapper,
+            JsonMapper jsonMapper,
+            TransactionTemplate transactionTemplate,
+            @Value("${transaction-wal.apply.batch-size:500}") int batchSize,
+            @Value("${transaction-wal.apply.poll-interval:200ms}") Duration pollInterval,
+            @Value("${transaction-wal.apply.max-attempts:3}") int maxAttempts,
+            @Value("${transaction-wal.apply.retry-backoff:1s}") Duration retryBackoff,
+            @Value("${transaction-wal.dead-letter.retry-interval:1m}") Duration deadLetterRetryInterval,
+            @Value("${transaction-wal.dead-letter.max-retry-interval:1h}") Duration deadLetterMaxRetryInterval,
+            MeterRegistry meterRegistry) {
+
+        this.transactionWal = transactionWal;
+        this.walAppliedRepository = walAppliedRepository;
+        this.walDeadLetterRepository = walDeadLetterRepository;
+        this.transactionService = transactionService;
+        this.appMapper = appMapper;
+        this.jsonMapper = jsonMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.deadLetterRetryInterval = deadLetterRetryInterval;
+        this.deadLetterMaxRetryInterval = deadLetterMaxRetryInterval;
+
+        Gauge.builder("wal.backlog", this, applier -> transactionWal.durableSeq() - applier.position + 1)
+                .description("Durable WAL records not yet applied to the database")
+                .register(meterRegistry);
+        this.applied = Counter.builder("wal.applied").tag("outcome", "done").register(meterRegistry);
+        this.skipped = Counter.builder("wal.applied").tag("outcome", "replayed").register(meterRegistry);
+        this.failed = Counter.builder("wal.applied").tag("outcome", "failed").register(meterRegistry);
+        this.redriven = Counter.builder("wal.applied").tag("outcome", "redriven").register(meterRegistry);
+        Gauge.builder("wal.dead.letters", deadLetters, AtomicLong::get)
+                .description("WAL records waiting in wal_dead_letters for another attempt")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        thread = Thread.ofVirtual().name("wal-applier").start(this::applyLoop);
+        log.info("Started WAL applier from seq {} (durable through {})", transactionWal.firstSeq(), transactionWal.durableSeq());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void applyLoop() {
+        SegmentLog.Reader reader = transactionWal.reader(transactionWal.firstSeq());
+        position = reader.position();
+        List<WalRecord> batch = List.of();
+
+        while (running) {
+            try {
+                if (batch.isEmpty()) {
+                    batch = reader.next(batchSize);
+                }
+                if (batch.isEmpty()) {
+                    transactionWal.awaitDurableAfter(reader.position() - 1, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                    continue;
+                }
+
+                applyBatch(batch);
+                position = reader.position();
+                batch = List.of();
+                releaseApplied(reader.position());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Пачка остаётся той же: уже проведённые группы отмечены в wal_applied и будут пропущены.
+                log.error("WAL apply iteration failed, retrying", e);
+                try {
+                    Thread.sleep(retryBackoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Проводит пачку записей, пропуская уже отмеченные. Бросает исключение, только если
+     * записи не удалось ни провести, ни отметить как ошибочные.
+     */
+    void applyBatch(List<WalRecord> batch) throws InterruptedException {
+        long from = batch.getFirst().seq();
+        long to = batch.getLast().seq();
+        Set<Long> done = new HashSet<>(walAppliedRepository.findAppliedSeqs(from, to));
+
+        List<Entry> pending = new ArrayList<>(batch.size());
+        for (WalRecord record : batch) {
+            if (done.contains(record.seq())) {
+                skipped.increment();
+                continue;
+            }
+            Transaction transaction;
+            try {
+                transaction = decode(record.payload());
+            } catch (RuntimeException e) {
+                // Нечитаемая запись (например, после несовместимого изменения DTO) не должна останавливать журнал
+                deadLetter(record.seq(), record.payload(), "Cannot decode WAL record: " + e.getMessage());
+                continue;
+            }
+            pending.add(new Entry(record.seq(), record.payload(), transaction));
+        }
+
+        for (List<Entry> group : groupByCategoryAndMonth(pending)) {
+            applyGroup(group);
+        }
+    }
+
+    private void applyGroup(List<Entry> group) throws InterruptedException {
+        RuntimeException lastError = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                apply(group);
+                applied.increment(group.size());
+                return;
+            } catch (RuntimeException e) {
+                lastError = e;
+                log.warn("WAL group of {} records failed (attempt {}/{}): {}", group.size(), attempt, maxAttempts, e.getMessage());
+                if (attempt < maxAttempts) {
+                    Thread.sleep(retryBackoff.multipliedBy(attempt));
+                }
+            }
+        }
+
+        if (group.size() == 1) {
+            deadLetter(group.getFirst().seq(), group.getFirst().payload(), String.valueOf(lastError.getMessage()));
+            return;
+        }
+        for (Entry entry : group) {
+            try {
+                apply(List.of(entry));
+                applied.increment();
+            } catch (RuntimeException e) {
+                deadLetter(entry.seq(), entry.payload(), String.valueOf(e.getMessage()));
+            }
+        }
+    }
+
+    private void apply(List<Entry> entries) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Transaction> saved = transactionService.processGroup(
+                    entries.stream().map(Entry::transaction).toList());
+
+            for (int i = 0; i < entries.size(); i++) {
+                walAppliedRepository.markApplied(entries.get(i).seq(), saved.get(i).getId(), null);
+            }
+        });
+    }
+
+    /**
+     * Сохраняет копию записи в wal_dead_letters и отмечает её в wal_applied одной транзакцией:
+     * после этого сегмент с записью можно удалять. Если БД недоступна, исключение уходит в цикл
+     * проведения, и пачка повторяется целиком.
+     */
+    private void deadLetter(long seq, byte[] payload, String error) {
+        transactionTemplate.executeWithoutResult(status -> {
+            walDeadLetterRepository.insert(seq, payload, error, seconds(deadLetterRetryInterval));
+            walAppliedRepository.markApplied(seq, null, error);
+        });
+        failed.increment();
+        log.error("WAL record {} could not be applied, moved to wal_dead_letters: {}", seq, error);
+    }
+
+    /**
+     * Повторно проводит записи из wal_dead_letters, у которых подошло время. Проведённая запись удаляется
+     * из wal_dead_letters в той же транзакции; отметка в wal_applied остаётся, поэтому при проигрывании
+     * ещё не удалённого сегмента запись не будет проведена второй раз.
+     */
+    @Scheduled(fixedDelayString = "${transaction-wal.dead-letter.retry-interval:1m}")
+    public void retryDeadLetters() {
+        List<WalDeadLetter> due = walDeadLetterRepository.findDue(batchSize);
+        for (WalDeadLetter deadLetter : due) {
+            try {
+                Transaction transaction = decode(deadLetter.getPayload());
+                transactionTemplate.executeWithoutResult(status -> {
+                    transactionService.processGroup(List.of(transaction));
+                    walDeadLetterRepository.deleteById(deadLetter.getSeq());
+                });
+                redriven.increment();
+                log.info("WAL record {} applied from wal_dead_letters", deadLetter.getSeq());
+            } catch (RuntimeException e) {
+                Duration delay = deadLetterDelay(deadLetter.getAttempts() + 1);
+                transactionTemplate.executeWithoutResult(status ->
+                        walDeadLetterRepository.reschedule(deadLetter.getSeq(), String.valueOf(e.getMessage()), seconds(delay)));
+                log.warn("WAL record {} from wal_dead_letters failed again, next attempt in {}: {}",
+                        deadLetter.getSeq(), delay, e.getMessage());
+            }
+        }
+        deadLetters.set(walDeadLetterRepository.count());
+    }
+
+    /**
+     * retry-interval, удваивающийся с каждой повторной попыткой, но не больше max-retry-interval.
+     */
+    Duration deadLetterDelay(int attempts) {
+        Duration delay = deadLetterRetryInterval.multipliedBy(1L << Math.min(attempts, 30));
+        return delay.compareTo(deadLetterMaxRetryInterval) > 0 ? deadLetterMaxRetryInterval : delay;
+    }
+
+    private Transaction decode(byte[] payload) {
+        return appMapper.toEntity(jsonMapper.readValue(payload, TransactionRequestDto.class));
+    }
+
+    private static double seconds(Duration duration) {
+        return duration.toMillis() / 1000.0;
+    }
+
+    /**
+     * Все записи до nextSeq проведены: удаляет их сегменты и ставшие ненужными отметки.
+     */
+    private void releaseApplied(long nextSeq) {
+        transactionWal.deleteThrough(nextSeq - 1);
+        long firstRetained = transactionWal.firstSeq();
+        transactionTemplate.executeWithoutResult(status -> walAppliedRepository.deleteBefore(firstRetained));
+    }
+
+    private static List<List<Entry>> groupByCategoryAndMonth(List<Entry> entries) {
+        Map<GroupKey, List<Entry>> groups = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            Transaction transaction = entry.transaction();
+            GroupKey key = new GroupKey(transaction.getExpenseCategory(),
+                    TransactionService.monthStartOf(transaction.getDatetime()).toInstant());
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+        }
+
+        List<List<Entry>> result = new ArrayList<>(groups.size());
+        for (List<Entry> group : groups.values()) {
+            group.sort(Comparator.comparing(entry -> entry.transaction().getDatetime().toInstant()));
+            result.add(group);
+        }
+        return result;
+    }
+
+    private record Entry(long seq, byte[] payload, Transaction transaction) {
+    }
+
+    private record GroupKey(ExpenseCategory category, Instant monthStart) {
+    }
+}
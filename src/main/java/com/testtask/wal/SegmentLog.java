@@ -0,0 +1,426 @@
+package com.testtask.wal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал с добавлением в конец из сегментов фиксированного размера, отображённых в память.
+ * <p>
+ * Запись: длина полезной нагрузки (int), CRC32C от seq и нагрузки (int), seq (long), нагрузка.
+ * Нулевая длина означает конец записанных данных сегмента. Номера записей идут подряд, новый сегмент
+ * начинается со следующего номера и называется по нему.
+ * <p>
+ * Добавление только пишет байты в отображённый буфер. Долговечность обеспечивает awaitDurable:
+ * первый ожидающий сбрасывает на диск всё добавленное к этому моменту одним force, остальные
+ * ожидающие получают результат того же сброса (group commit).
+ */
+@Slf4j
+public class SegmentLog implements Closeable {
+
+    static final int HEADER_SIZE = Integer.BYTES * 2 + Long.BYTES;
+    private static final String SUFFIX = ".wal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ReentrantLock durableLock = new ReentrantLock();
+    private final Condition durableAdvanced = durableLock.newCondition();
+
+    private Segment active;
+    private long nextSeq;
+    private volatile long appendedSeq;
+    private volatile long durableSeq;
+    private volatile long flushes;
+    private volatile long flushedRecords;
+
+    private SegmentLog(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Открывает журнал, проверяя записи существующих сегментов. Всё после первой повреждённой записи
+     * (оборванная запись при сбое) отбрасывается, добавление продолжается в новом сегменте.
+     * minNextSeq не даёт переиспользовать номера, если каталог журнала был потерян.
+     */
+    public static SegmentLog open(Path directory, int segmentSize, long minNextSeq) throws IOException {
+        Files.createDirectories(directory);
+        SegmentLog log = new SegmentLog(directory, segmentSize);
+
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+
+        long lastSeq = 0;
+        for (Path file : files) {
+            Segment segment = Segment.map(file, firstSeqOf(file), segmentSize);
+            boolean continuous = lastSeq == 0 || segment.firstSeq == lastSeq + 1;
+            int records = continuous ? segment.recover() : 0;
+            if (records == 0) {
+                segment.close();
+                Files.delete(file);
+                continue;
+            }
+            log.segments.put(segment.firstSeq, segment);
+            lastSeq = segment.lastSeq;
+        }
+
+        log.nextSeq = Math.max(lastSeq + 1, minNextSeq);
+        log.appendedSeq = log.nextSeq - 1;
+        log.durableSeq = log.nextSeq - 1;
+        log.active = log.createSegment(log.nextSeq);
+
+        SegmentLog.log.info("Opened WAL in {}: {} segments, next seq {}", directory, log.segments.size() - 1, log.nextSeq);
+        return log;
+    }
+
+    /**
+     * Добавляет запись и возвращает её номер. Запись становится долговечной только после awaitDurable.
+     */
+    public long append(byte[] payload) {
+        int size = HEADER_SIZE + payload.length;
+        if (size > segmentSize) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes does not fit a WAL segment");
+        }
+
+        appendLock.lock();
+        try {
+            if (active.position + size > segmentSize) {
+                active = createSegment(nextSeq);
+            }
+            long seq = nextSeq++;
+            active.write(seq, payload);
+            appendedSeq = seq;
+            return seq;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Ждёт, пока запись seq не будет сброшена на диск.
+     */
+    public void awaitDurable(long seq) {
+        if (durableSeq >= seq) {
+            return;
+        }
+
+        flushLock.lock();
+        try {
+            if (durableSeq >= seq) {
+                return;
+            }
+
+            long target;
+            List<Segment> dirty = new ArrayList<>();
+            List<Integer> positions = new ArrayList<>();
+            appendLock.lock();
+            try {
+                target = appendedSeq;
+                for (Segment segment : segments.values()) {
+                    if (segment.forcedPosition < segment.position) {
+                        dirty.add(segment);
+                        positions.add(segment.position);
+                    }
+                }
+            } finally {
+                appendLock.unlock();
+            }
+
+            for (int i = 0; i < dirty.size(); i++) {
+                dirty.get(i).force(positions.get(i));
+            }
+
+            flushes++;
+            flushedRecords += target - durableSeq;
+            durableSeq = target;
+        } finally {
+            flushLock.unlock();
+        }
+
+        durableLock.lock();
+        try {
+            durableAdvanced.signalAll();
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    /**
+     * Ждёт, пока долговечными не станут записи после seq, не дольше timeout.
+     */
+    public boolean awaitDurableAfter(long seq, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        durableLock.lock();
+        try {
+            while (durableSeq <= seq) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = durableAdvanced.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    /**
+     * Курсор для последовательного чтения долговечных записей, начиная с номера fromSeq
+     * (или с первой сохранившейся записи, если fromSeq уже удалён).
+     */
+    public Reader reader(long fromSeq) {
+        return new Reader(Math.max(fromSeq, segments.firstKey()));
+    }
+
+    /**
+     * Удаляет сегменты, все записи которых не старше seq. Активный сегмент не удаляется.
+     */
+    public void deleteThrough(long seq) {
+        appendLock.lock();
+        try {
+            for (Segment segment : new ArrayList<>(segments.values())) {
+                if (segment == active || segment.lastSeq > seq || segment.lastSeq < segment.firstSeq) {
+                    continue;
+                }
+                segments.remove(segment.firstSeq);
+                segment.close();
+                Files.deleteIfExists(segment.file);
+                log.debug("Deleted WAL segment {}", segment.file.getFileName());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    public long firstSeq() {
+        return segments.firstKey();
+    }
+
+    public long durableSeq() {
+        return durableSeq;
+    }
+
+    public long appendedSeq() {
+        return appendedSeq;
+    }
+
+    public long flushes() {
+        return flushes;
+    }
+
+    public long flushedRecords() {
+        return flushedRecords;
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            for (Segment segment : segments.values()) {
+                segment.force(segment.position);
+                segment.close();
+            }
+            segments.clear();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private Segment createSegment(long firstSeq) {
+        try {
+            Path file = directory.resolve(String.format("%020d%s", firstSeq, SUFFIX));
+            Segment segment = Segment.map(file, firstSeq, segmentSize);
+            segments.put(firstSeq, segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long firstSeqOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    private static int crc(long seq, byte[] payload) {
+        CRC32C crc = new CRC32C();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (seq >>> shift));
+        }
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    public final class Reader {
+
+        private long seq;
+        private Segment segment;
+        private int offset = -1;
+
+        private Reader(long seq) {
+            this.seq = seq;
+        }
+
+        public long position() {
+            return seq;
+        }
+
+        /**
+         * Читает подряд до max долговечных записей.
+         */
+        public List<WalRecord> next(int max) {
+            List<WalRecord> records = new ArrayList<>();
+            long durable = durableSeq;
+            if (segment == null && seq <= durable) {
+                segment = segments.floorEntry(seq).getValue();
+                offset = segment.offsetOf(seq);
+            }
+
+            while (records.size() < max && seq <= durable) {
+                if (offset < 0 || !segment.hasRecordAt(offset)) {
+                    segment = segments.get(seq);
+                    if (segment == null) {
+                        throw new IllegalStateException("WAL segment starting at " + seq + " is missing");
+                    }
+                    offset = 0;
+                }
+                WalRecord record = segment.read(offset);
+                records.add(record);
+                offset += HEADER_SIZE + record.payload().length;
+                seq++;
+            }
+            return records;
+        }
+    }
+
+    private static final class Segment {
+
+        private final Path file;
+        private final long firstSeq;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+
+        private int position;
+        private int forcedPosition;
+        private long lastSeq;
+
+        private Segment(Path file, long firstSeq, FileChannel channel, MappedByteBuffer buffer) {
+            this.file = file;
+            this.firstSeq = firstSeq;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.lastSeq = firstSeq - 1;
+        }
+
+        static Segment map(Path file, long firstSeq, int size) throws IOException {
+            FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long mapSize = Math.max(size, channel.size());
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, mapSize);
+            return new Segment(file, firstSeq, channel, buffer);
+        }
+
+        /**
+         * Проверяет записи сегмента подряд и возвращает число целых записей.
+         */
+        int recover() {
+            int offset = 0;
+            long expected = firstSeq;
+            while (offset + HEADER_SIZE <= buffer.capacity()) {
+                int length = buffer.getInt(offset);
+                if (length <= 0 || offset + HEADER_SIZE + length > buffer.capacity()) {
+                    break;
+                }
+                long seq = buffer.getLong(offset + 8);
+                byte[] payload = new byte[length];
+                buffer.get(offset + HEADER_SIZE, payload);
+                if (seq != expected || buffer.getInt(offset + 4) != crc(seq, payload)) {
+                    SegmentLog.log.warn("WAL segment {} is truncated at offset {} (seq {})", file.getFileName(), offset, expected);
+                    break;
+                }
+                offset += HEADER_SIZE + length;
+                expected++;
+            }
+            position = offset;
+            forcedPosition = offset;
+            lastSeq = expected - 1;
+            return (int) (expected - firstSeq);
+        }
+
+        void write(long seq, byte[] payload) {
+            buffer.put(position + HEADER_SIZE, payload);
+            buffer.putLong(position + 8, seq);
+            buffer.putInt(position + 4, crc(seq, payload));
+            buffer.putInt(position, payload.length);
+            position += HEADER_SIZE + payload.length;
+            lastSeq = seq;
+        }
+
+        boolean hasRecordAt(int offset) {
+            return offset + HEADER_SIZE <= buffer.capacity() && buffer.getInt(offset) > 0;
+        }
+
+        WalRecord read(int offset) {
+            int length = buffer.getInt(offset);
+            long seq = buffer.getLong(offset + 8);
+            byte[] payload = new byte[length];
+            buffer.get(offset + HEADER_SIZE, payload);
+            if (buffer.getInt(offset + 4) != crc(seq, payload)) {
+                throw new IllegalStateException("WAL record " + seq + " in " + file.getFileName() + " is corrupted");
+            }
+            return new WalRecord(seq, payload);
+        }
+
+        /**
+         * Смещение записи seq в сегменте или -1, если её здесь нет.
+         */
+        int offsetOf(long seq) {
+            int offset = 0;
+            for (long current = firstSeq; current < seq; current++) {
+                if (!hasRecordAt(offset)) {
+                    return -1;
+                }
+                offset += HEADER_SIZE + buffer.getInt(offset);
+            }
+            return offset;
+        }
+
+        void force(int upTo) {
+            if (upTo > forcedPosition) {
+                buffer.force(forcedPosition, upTo - forcedPosition);
+                forcedPosition = upTo;
+            }
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package com.testtask.wal;
+
+public record WalRecord(long seq, byte[] payload) {
+}
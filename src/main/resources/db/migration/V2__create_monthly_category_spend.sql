@@ -0,0 +1,19 @@
+-- Агрегаты расходов в USD по категории за месяц.
+-- Строка покрывает транзакции с datetime в [month_start, month_end); границы месяца
+-- вычисляются приложением так же, как в TransactionService.
+CREATE TABLE monthly_category_spend (
+    category        VARCHAR(20) NOT NULL CHECK (category IN ('PRODUCT', 'SERVICE')),
+    month_start     TIMESTAMP WITH TIME ZONE NOT NULL,
+    month_end       TIMESTAMP WITH TIME ZONE NOT NULL,
+    usd_total       DECIMAL(17,2) NOT NULL DEFAULT 0,
+    tx_count        BIGINT NOT NULL DEFAULT 0,
+    last_datetime   TIMESTAMP WITH TIME ZONE NOT NULL,
+
+    updated_at      TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT pk_monthly_category_spend PRIMARY KEY (category, month_start)
+);
+
+CREATE INDEX idx_monthly_category_spend_range ON monthly_category_spend (category, month_start, month_end);
+
+CREATE INDEX idx_transactions_category_datetime ON transactions (expense_category, datetime);
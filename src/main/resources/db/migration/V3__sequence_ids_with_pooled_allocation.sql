@@ -0,0 +1,12 @@
+-- Идентификаторы выдаются блоками по 50 значений (pooled optimizer Hibernate),
+-- чтобы вставки можно было отправлять в БД JDBC-пачками.
+-- Значение последовательности - верхняя граница блока, поэтому следующий блок
+-- начинается сразу после текущего максимального id.
+ALTER SEQUENCE exchange_rates_id_seq INCREMENT BY 50;
+SELECT setval('exchange_rates_id_seq', COALESCE((SELECT MAX(id) FROM exchange_rates), 0) + 50, false);
+
+ALTER SEQUENCE limits_id_seq INCREMENT BY 50;
+SELECT setval('limits_id_seq', COALESCE((SELECT MAX(id) FROM limits), 0) + 50, false);
+
+ALTER SEQUENCE transactions_id_seq INCREMENT BY 50;
+SELECT setval('transactions_id_seq', COALESCE((SELECT MAX(id) FROM transactions), 0) + 50, false);
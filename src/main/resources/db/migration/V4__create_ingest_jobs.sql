@@ -0,0 +1,33 @@
+-- Очередь асинхронного приёма транзакций: одна строка на принятую операцию.
+-- Воркеры забирают задания пачками через FOR UPDATE SKIP LOCKED; результат записывается
+-- в ту же строку в одной транзакции БД со вставкой в transactions.
+-- datetime_offset хранит смещение клиента в секундах: от него зависят границы месяца при проверке лимита.
+-- next_attempt_at - не раньше какого момента повторять задание после ошибки (NULL - сразу).
+CREATE TABLE ingest_jobs (
+    id                  UUID PRIMARY KEY,
+    status              VARCHAR(20) NOT NULL CHECK (status IN ('QUEUED', 'PROCESSING', 'DONE', 'FAILED')),
+
+    account_from        VARCHAR(20) NOT NULL,
+    account_to          VARCHAR(20) NOT NULL,
+    currency_shortname  VARCHAR(3) NOT NULL,
+    sum                 DECIMAL(15,2) NOT NULL,
+    expense_category    VARCHAR(20) NOT NULL CHECK (expense_category IN ('PRODUCT', 'SERVICE')),
+    datetime            TIMESTAMP WITH TIME ZONE NOT NULL,
+    datetime_offset     INT NOT NULL,
+
+    attempts            INT NOT NULL DEFAULT 0,
+    next_attempt_at     TIMESTAMP WITH TIME ZONE,
+    transaction_id      BIGINT,
+    usd_amount          DECIMAL(15,2),
+    limit_exceeded      BOOLEAN,
+    error               TEXT,
+
+    created_at          TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    started_at          TIMESTAMP WITH TIME ZONE,
+    finished_at         TIMESTAMP WITH TIME ZONE,
+
+    CONSTRAINT fk_ingest_jobs_transaction FOREIGN KEY (transaction_id) REFERENCES transactions(id)
+);
+
+CREATE INDEX idx_ingest_jobs_queued     ON ingest_jobs (created_at) WHERE status = 'QUEUED';
+CREATE INDEX idx_ingest_jobs_processing ON ingest_jobs (started_at) WHERE status = 'PROCESSING';
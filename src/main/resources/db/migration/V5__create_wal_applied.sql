@@ -0,0 +1,27 @@
+-- Записи локального журнала буферизованного приёма (WAL), уже проведённые в БД.
+-- Строка вставляется в одной транзакции со вставкой в transactions, поэтому при повторном
+-- проигрывании журнала после сбоя по ней видно, какие записи применять не нужно.
+-- Записи, которые не удалось обработать, сохраняются с error и transaction_id = NULL и копируются в wal_dead_letters.
+-- Строки удаляются вместе с сегментами журнала, в которых лежали их записи, кроме строки с наибольшим seq:
+-- по ней продолжается нумерация после перезапуска.
+CREATE TABLE wal_applied (
+    seq             BIGINT PRIMARY KEY,
+    transaction_id  BIGINT,
+    error           TEXT,
+    applied_at      TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT fk_wal_applied_transaction FOREIGN KEY (transaction_id) REFERENCES transactions(id)
+);
+
+-- Записи журнала, которые не удалось провести: копия записи хранится здесь, поэтому сегмент можно удалять.
+-- Строки не удаляются вместе с сегментами - только после успешного повторного проведения.
+CREATE TABLE wal_dead_letters (
+    seq             BIGINT PRIMARY KEY,
+    payload         BYTEA NOT NULL,
+    error           TEXT,
+    attempts        INT NOT NULL DEFAULT 0,
+    failed_at       TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    next_attempt_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX idx_wal_dead_letters_next_attempt ON wal_dead_letters (next_attempt_at);
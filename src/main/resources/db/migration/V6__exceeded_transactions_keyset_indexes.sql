@@ -0,0 +1,15 @@
+-- Индексы для постраничной выдачи превысивших лимит транзакций по ключу (datetime, id) DESC.
+-- Частичные: превысивших лимит обычно немного, и индексы не растут вместе со всей таблицей.
+-- Ведущая колонка совпадает с фильтром, поэтому при любом из фильтров страница читается
+-- одним проходом по индексу без сортировки и без OFFSET.
+CREATE INDEX idx_transactions_exceeded_datetime_id
+    ON transactions (datetime DESC, id DESC)
+    WHERE limit_exceeded = true;
+
+CREATE INDEX idx_transactions_exceeded_category_datetime_id
+    ON transactions (expense_category, datetime DESC, id DESC)
+    WHERE limit_exceeded = true;
+
+CREATE INDEX idx_transactions_exceeded_account_datetime_id
+    ON transactions (account_from, datetime DESC, id DESC)
+    WHERE limit_exceeded = true;
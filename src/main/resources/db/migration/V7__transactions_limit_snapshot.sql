@@ -0,0 +1,21 @@
+-- Лимит, с которым транзакция сравнивалась при сохранении, хранится прямо в строке transactions:
+-- выборка превысивших лимит больше не ищет его по limits для каждой строки (LATERAL).
+-- Для существующих строк берётся лимит из limit_id (его и выбирал processAndSave),
+-- без лимита — дефолтные 1000 USD с начала месяца транзакции.
+ALTER TABLE transactions
+    ADD COLUMN limit_sum       DECIMAL(15,2),
+    ADD COLUMN limit_datetime  TIMESTAMP WITH TIME ZONE,
+    ADD COLUMN limit_currency  VARCHAR(3);
+
+UPDATE transactions t
+SET limit_sum      = COALESCE(l.limit_sum, 1000.00),
+    limit_datetime = COALESCE(l.limit_datetime, date_trunc('month', t.datetime)),
+    limit_currency = COALESCE(l.currency, 'USD')
+FROM transactions src
+LEFT JOIN limits l ON l.id = src.limit_id
+WHERE src.id = t.id;
+
+ALTER TABLE transactions
+    ALTER COLUMN limit_sum      SET NOT NULL,
+    ALTER COLUMN limit_datetime SET NOT NULL,
+    ALTER COLUMN limit_currency SET NOT NULL;
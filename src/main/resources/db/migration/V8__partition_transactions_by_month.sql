@@ -0,0 +1,129 @@
+-- Секционирование transactions по месяцам datetime (границы месяцев в UTC).
+-- Все горячие запросы ограничены месяцем или интервалом дат, поэтому PostgreSQL отсекает лишние секции,
+-- а VACUUM и индексы работают с секцией месяца, а не со всей историей.
+--
+-- Первичный ключ секционированной таблицы обязан включать ключ секционирования, поэтому он (id, datetime);
+-- id по-прежнему выдаётся одной последовательностью и уникален. Внешние ключи на transactions(id)
+-- из ingest_jobs и wal_applied без уникального id невозможны и удаляются.
+--
+-- Существующие строки переносятся в секции одной транзакцией: на большой таблице миграция
+-- займёт время, пропорциональное её размеру.
+
+ALTER TABLE ingest_jobs DROP CONSTRAINT fk_ingest_jobs_transaction;
+ALTER TABLE wal_applied DROP CONSTRAINT fk_wal_applied_transaction;
+ALTER SEQUENCE transactions_id_seq OWNED BY NONE;
+
+ALTER TABLE transactions RENAME TO transactions_unpartitioned;
+
+CREATE TABLE transactions (
+    id                  BIGINT NOT NULL DEFAULT nextval('transactions_id_seq'),
+    account_from        VARCHAR(20) NOT NULL,
+    account_to          VARCHAR(20) NOT NULL,
+    currency_shortname  VARCHAR(3) NOT NULL,
+    sum                 DECIMAL(15,2) NOT NULL,
+    expense_category    VARCHAR(20) NOT NULL CHECK (expense_category IN ('PRODUCT', 'SERVICE')),
+    datetime            TIMESTAMP WITH TIME ZONE NOT NULL,
+    usd_amount          DECIMAL(15,2),
+    limit_id            BIGINT,
+    limit_exceeded      BOOLEAN NOT NULL DEFAULT FALSE,
+
+    created_at          TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at          TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    limit_sum           DECIMAL(15,2) NOT NULL,
+    limit_datetime      TIMESTAMP WITH TIME ZONE NOT NULL,
+    limit_currency      VARCHAR(3) NOT NULL,
+
+    CONSTRAINT pk_transactions PRIMARY KEY (id, datetime),
+    CONSTRAINT fk_transactions_limit FOREIGN KEY (limit_id) REFERENCES limits(id)
+) PARTITION BY RANGE (datetime);
+
+ALTER SEQUENCE transactions_id_seq OWNED BY transactions.id;
+
+-- Строки вне созданных месяцев (далёкое прошлое или будущее) попадают сюда, а не в ошибку вставки.
+CREATE TABLE transactions_default PARTITION OF transactions DEFAULT;
+
+-- Создаёт секцию месяца. Строки этого месяца, успевшие попасть в секцию по умолчанию, переносятся в неё,
+-- иначе ATTACH не пройдёт. Возвращает false, если секция уже есть.
+CREATE FUNCTION create_transactions_partition(month_start DATE) RETURNS BOOLEAN AS $$
+DECLARE
+    from_ts   TIMESTAMPTZ := date_trunc('month', month_start::timestamp) AT TIME ZONE 'UTC';
+    to_ts     TIMESTAMPTZ := (date_trunc('month', month_start::timestamp) + INTERVAL '1 month') AT TIME ZONE 'UTC';
+    part_name TEXT        := 'transactions_' || to_char(month_start, 'YYYY_MM');
+BEGIN
+    IF to_regclass(part_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    EXECUTE format('CREATE TABLE %I (LIKE transactions INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', part_name);
+    EXECUTE format('WITH moved AS (DELETE FROM transactions_default WHERE datetime >= %L AND datetime < %L RETURNING *) '
+                   'INSERT INTO %I SELECT * FROM moved', from_ts, to_ts, part_name);
+    EXECUTE format('ALTER TABLE transactions ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)', part_name, from_ts, to_ts);
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Отсоединяет секцию месяца: строки остаются в отдельной таблице, но пропадают из запросов к transactions.
+-- Возвращает false, если такой присоединённой секции нет.
+CREATE FUNCTION detach_transactions_partition(month_start DATE) RETURNS BOOLEAN AS $$
+DECLARE
+    part_name TEXT := 'transactions_' || to_char(month_start, 'YYYY_MM');
+BEGIN
+    IF NOT EXISTS (SELECT 1
+                   FROM pg_inherits
+                   WHERE inhparent = 'transactions'::regclass
+                     AND inhrelid = to_regclass(part_name)) THEN
+        RETURN FALSE;
+    END IF;
+
+    EXECUTE format('ALTER TABLE transactions DETACH PARTITION %I', part_name);
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Секции от месяца самой ранней транзакции до трёх месяцев вперёд; дальше их создаёт
+-- TransactionPartitionMaintenance.
+DO $$
+DECLARE
+    next_month DATE := date_trunc('month', COALESCE(
+                           (SELECT MIN(datetime) FROM transactions_unpartitioned),
+                           CURRENT_TIMESTAMP) AT TIME ZONE 'UTC')::date;
+    last_month DATE := (date_trunc('month', CURRENT_TIMESTAMP AT TIME ZONE 'UTC') + INTERVAL '3 months')::date;
+BEGIN
+    WHILE next_month <= last_month LOOP
+        PERFORM create_transactions_partition(next_month);
+        next_month := (next_month + INTERVAL '1 month')::date;
+    END LOOP;
+END;
+$$;
+
+INSERT INTO transactions (id, account_from, account_to, currency_shortname, sum, expense_category, datetime,
+                          usd_amount, limit_id, limit_exceeded, created_at, updated_at,
+                          limit_sum, limit_datetime, limit_currency)
+SELECT id, account_from, account_to, currency_shortname, sum, expense_category, datetime,
+       usd_amount, limit_id, limit_exceeded, created_at, updated_at,
+       limit_sum, limit_datetime, limit_currency
+FROM transactions_unpartitioned;
+
+DROP TABLE transactions_unpartitioned;
+
+-- Индексы на секционированной таблице создаются в каждой секции, в том числе в будущих.
+CREATE INDEX idx_transactions_datetime          ON transactions (datetime);
+CREATE INDEX idx_transactions_expense_category  ON transactions (expense_category);
+CREATE INDEX idx_transactions_limit_exceeded    ON transactions (limit_exceeded);
+CREATE INDEX idx_transactions_account_from      ON transactions (account_from);
+CREATE INDEX idx_transactions_limit_id          ON transactions (limit_id);
+CREATE INDEX idx_transactions_created_at        ON transactions (created_at);
+CREATE INDEX idx_transactions_category_datetime ON transactions (expense_category, datetime);
+
+CREATE INDEX idx_transactions_exceeded_datetime_id
+    ON transactions (datetime DESC, id DESC)
+    WHERE limit_exceeded = true;
+
+CREATE INDEX idx_transactions_exceeded_category_datetime_id
+    ON transactions (expense_category, datetime DESC, id DESC)
+    WHERE limit_exceeded = true;
+
+CREATE INDEX idx_transactions_exceeded_account_datetime_id
+    ON transactions (account_from, datetime DESC, id DESC)
+    WHERE limit_exceeded = true;
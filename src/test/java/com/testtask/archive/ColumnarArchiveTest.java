@@ -0,0 +1,93 @@
+package com.testtask.archive;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ColumnarArchiveTest {
+
+    private static final Instant START = Instant.parse("2024-01-31T23:59:59.123456Z");
+
+    @Test
+    void readsBackEveryColumnAcrossRowGroups() throws Exception {
+        List<ArchivedTransaction> rows = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            rows.add(row(100 - i, START.minusSeconds(i), i % 3 == 0, i % 2 == 0 ? null : 5L));
+        }
+
+        byte[] archive = write(rows, 3);
+        List<ArchivedTransaction> read = new ArrayList<>();
+        boolean completed = ColumnarArchiveReader.read(new ByteArrayInputStream(archive), "test", false, read::add);
+
+        assertThat(completed).isTrue();
+        assertThat(read).containsExactlyElementsOf(rows);
+    }
+
+    @Test
+    void returnsOnlyExceededRowsAndStopsOnRequest() throws Exception {
+        List<ArchivedTransaction> rows = List.of(
+                row(3, START, false, null),
+                row(2, START.minusSeconds(1), true, 1L),
+                row(1, START.minusSeconds(2), true, 1L));
+
+        byte[] archive = write(rows, 1);
+        List<Long> read = new ArrayList<>();
+        boolean completed = ColumnarArchiveReader.read(new ByteArrayInputStream(archive), "test", true, row -> {
+            read.add(row.id());
+            return false;
+        });
+
+        assertThat(completed).isFalse();
+        assertThat(read).containsExactly(2L);
+    }
+
+    @Test
+    void rejectsRowGroupWithBrokenChecksum() throws Exception {
+        byte[] archive = write(List.of(row(1, START, true, null)), 10);
+
+        // Портим байт тела группы внутри GZIP, чтобы сработала проверка CRC32C, а не GZIP.
+        byte[] raw;
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(archive))) {
+            raw = input.readAllBytes();
+        }
+        int headerSize = Integer.BYTES + Short.BYTES + 2 * Integer.BYTES + 2 * Long.BYTES + Integer.BYTES;
+        raw[headerSize + 3] ^= 0x01;
+        ByteArrayOutputStream corrupted = new ByteArrayOutputStream();
+        try (GZIPOutputStream output = new GZIPOutputStream(corrupted)) {
+            output.write(raw);
+        }
+
+        assertThatThrownBy(() -> ColumnarArchiveReader.read(
+                new ByteArrayInputStream(corrupted.toByteArray()), "test", false, row -> true))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Corrupted row group");
+    }
+
+    private static byte[] write(List<ArchivedTransaction> rows, int groupSize) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ColumnarArchiveWriter writer = new ColumnarArchiveWriter(bytes, groupSize)) {
+            for (ArchivedTransaction row : rows) {
+                writer.write(row);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ArchivedTransaction row(long id, Instant datetime, boolean exceeded, Long limitId) {
+        return new ArchivedTransaction(id, "0000000123", "9999999999", "KZT", new BigDecimal("500000.00"),
+                "PRODUCT", datetime, limitId == null ? null : new BigDecimal("1063.83"), limitId, exceeded,
+                datetime.plusSeconds(1), datetime.plusSeconds(2), new BigDecimal("1000.00"),
+                Instant.parse("2024-01-01T00:00:00Z"), "USD");
+    }
+}
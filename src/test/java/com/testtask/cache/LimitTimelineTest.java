@@ -0,0 +1,63 @@
+package com.testtask.cache;
+
+import com.testtask.entity.Limit;
+import com.testtask.model.ExpenseCategory;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LimitTimelineTest {
+
+    private static final OffsetDateTime JANUARY = OffsetDateTime.of(2026, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    private static final OffsetDateTime MID_JANUARY = OffsetDateTime.of(2026, 1, 15, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private final LimitTimeline timeline = new LimitTimeline();
+
+    @Test
+    void notLoadedUntilFullLoad() {
+        assertThat(timeline.isLoaded()).isFalse();
+
+        timeline.load(List.of());
+
+        assertThat(timeline.isLoaded()).isTrue();
+        assertThat(timeline.applicableAt(ExpenseCategory.PRODUCT, MID_JANUARY)).isEmpty();
+    }
+
+    @Test
+    void findsApplicableLimits() {
+        Limit first = limit(ExpenseCategory.PRODUCT, JANUARY, "1000.00");
+        Limit second = limit(ExpenseCategory.PRODUCT, MID_JANUARY, "2000.00");
+        Limit service = limit(ExpenseCategory.SERVICE, JANUARY, "500.00");
+        timeline.load(List.of(second, service, first));
+
+        assertThat(timeline.applicableAt(ExpenseCategory.PRODUCT, MID_JANUARY.minusSeconds(1))).contains(first);
+        assertThat(timeline.applicableAt(ExpenseCategory.PRODUCT, MID_JANUARY)).contains(second);
+        assertThat(timeline.applicableAt(ExpenseCategory.SERVICE, MID_JANUARY)).contains(service);
+    }
+
+    @Test
+    void comparesInstantsAcrossOffsets() {
+        Limit limit = limit(ExpenseCategory.PRODUCT, JANUARY, "1000.00");
+        timeline.load(List.of());
+        timeline.add(limit);
+
+        OffsetDateTime sameInstant = JANUARY.withOffsetSameInstant(ZoneOffset.ofHours(5));
+
+        assertThat(timeline.applicableAt(ExpenseCategory.PRODUCT, sameInstant)).contains(limit);
+        assertThat(timeline.applicableAt(ExpenseCategory.PRODUCT, sameInstant.minusNanos(1))).isEmpty();
+    }
+
+    private static Limit limit(ExpenseCategory category, OffsetDateTime datetime, String sum) {
+        return Limit.builder()
+                .category(category)
+                .limitDatetime(datetime)
+                .limitSum(new BigDecimal(sum))
+                .currency("USD")
+                .build();
+    }
+}
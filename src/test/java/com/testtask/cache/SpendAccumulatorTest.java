@@ -0,0 +1,81 @@
+package com.testtask.cache;
+
+import com.testtask.model.ExpenseCategory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpendAccumulatorTest {
+
+    private static final Instant JANUARY = Instant.parse("2026-01-01T00:00:00Z");
+
+    private SpendAccumulator accumulator;
+
+    @BeforeEach
+    void setUp() {
+        accumulator = new SpendAccumulator(4, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void unknownMonthIsNotAnswered() {
+        assertThat(accumulator.spentBefore(ExpenseCategory.PRODUCT, JANUARY, JANUARY.plusSeconds(60)))
+                .isEmpty();
+    }
+
+    @Test
+    void answersOnlyForTransactionsAfterLastRecorded() {
+        Instant last = Instant.parse("2026-01-10T12:00:00Z");
+        accumulator.apply(ExpenseCategory.PRODUCT, JANUARY, new BigDecimal("250.75"), 3, last);
+
+        assertThat(accumulator.spentBefore(ExpenseCategory.PRODUCT, JANUARY, last.plusSeconds(1)))
+                .hasValueSatisfying(total -> assertThat(total).isEqualByComparingTo("250.75"));
+        assertThat(accumulator.spentBefore(ExpenseCategory.PRODUCT, JANUARY, last)).isEmpty();
+        assertThat(accumulator.spentBefore(ExpenseCategory.SERVICE, JANUARY, last.plusSeconds(1))).isEmpty();
+    }
+
+    @Test
+    void keepsTotalsWithHighestTransactionCount() {
+        Instant last = Instant.parse("2026-01-10T12:00:00Z");
+        accumulator.apply(ExpenseCategory.PRODUCT, JANUARY, new BigDecimal("300.00"), 4, last);
+        accumulator.apply(ExpenseCategory.PRODUCT, JANUARY, new BigDecimal("200.00"), 3, last);
+
+        assertThat(accumulator.spentBefore(ExpenseCategory.PRODUCT, JANUARY, last.plusSeconds(1)))
+                .hasValueSatisfying(total -> assertThat(total).isEqualByComparingTo("300.00"));
+        assertThat(accumulator.size()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentCommitsInAnyOrderLeaveLatestTotals() throws Exception {
+        int commits = 2_000;
+        CountDownLatch start = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 1; i <= commits; i++) {
+                int count = i;
+                ExpenseCategory category = i % 2 == 0 ? ExpenseCategory.PRODUCT : ExpenseCategory.SERVICE;
+                executor.submit(() -> {
+                    start.await();
+                    accumulator.apply(category, JANUARY, BigDecimal.valueOf(count, 2), count,
+                            JANUARY.plusSeconds(count));
+                    return null;
+                });
+            }
+            start.countDown();
+        }
+
+        Instant afterAll = JANUARY.plusSeconds(commits + 1);
+        assertThat(accumulator.spentBefore(ExpenseCategory.PRODUCT, JANUARY, afterAll))
+                .hasValueSatisfying(total -> assertThat(total).isEqualByComparingTo("20.00"));
+        assertThat(accumulator.spentBefore(ExpenseCategory.SERVICE, JANUARY, afterAll))
+                .hasValueSatisfying(total -> assertThat(total).isEqualByComparingTo("19.99"));
+        assertThat(accumulator.lockAcquisitions()).isGreaterThanOrEqualTo(commits);
+    }
+}
@@ -0,0 +1,140 @@
+package com.testtask.client;
+
+import com.testtask.exception.ExchangeRateProviderException;
+import com.testtask.support.StubFxServer;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.util.retry.Retry;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AlphaVantageClientTest {
+
+    private StubFxServer stub;
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        stub = StubFxServer.start()
+                .withGeneratedSeries("KZT", LocalDate.of(2025, 9, 1), LocalDate.of(2026, 1, 30), new BigDecimal("500"));
+        circuitBreaker = CircuitBreaker.of("test", CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .failureRateThreshold(50)
+                .waitDurationInOpenState(Duration.ofMinutes(1))
+                .ignoreException(e -> e instanceof ExchangeRateProviderException p && !p.isRetryable())
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void fetchDailySeriesReturnsSortedCloses() {
+        AlphaVantageClient client = client(new TokenBucket(5, Duration.ofSeconds(1)), 3);
+
+        FxDailySeries series = client.fetchDailySeries("KZT").block();
+
+        assertThat(series).isNotNull();
+        assertThat(series.size()).isEqualTo(100);
+        assertThat(series.lastDate()).isEqualTo(LocalDate.of(2026, 1, 30));
+        assertThat(stub.requestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void throttledResponseIsRetriedThenSurfacedAsProviderError() {
+        stub.mode(StubFxServer.Mode.THROTTLED);
+        AlphaVantageClient client = client(new TokenBucket(10, Duration.ofSeconds(1)), 3);
+
+        assertThatThrownBy(() -> client.fetchDailySeries("KZT").block())
+                .isInstanceOf(ExchangeRateProviderException.class)
+                .hasMessageContaining("throttled");
+        assertThat(stub.requestCount()).isEqualTo(3);
+    }
+
+    @Test
+    void invalidSymbolIsNotRetried() {
+        stub.mode(StubFxServer.Mode.INVALID_SYMBOL);
+        AlphaVantageClient client = client(new TokenBucket(10, Duration.ofSeconds(1)), 3);
+
+        assertThatThrownBy(() -> client.fetchDailySeries("KZT").block())
+                .isInstanceOf(ExchangeRateProviderException.class)
+                .hasMessageContaining("Invalid API call");
+        assertThat(stub.requestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void slowProviderTimesOut() {
+        stub.latency(Duration.ofMillis(800));
+        AlphaVantageClient client = client(new TokenBucket(10, Duration.ofSeconds(1)), 1);
+
+        assertThatThrownBy(() -> client.fetchDailySeries("KZT").block())
+                .isInstanceOf(ExchangeRateProviderException.class)
+                .hasMessageContaining("unreachable");
+    }
+
+    @Test
+    void circuitBreakerOpensAfterRepeatedFailures() {
+        stub.mode(StubFxServer.Mode.SERVER_ERROR);
+        AlphaVantageClient client = client(new TokenBucket(10, Duration.ofSeconds(1)), 1);
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> client.fetchDailySeries("KZT").block())
+                    .isInstanceOf(ExchangeRateProviderException.class);
+        }
+        int callsBeforeOpen = stub.requestCount();
+
+        assertThatThrownBy(() -> client.fetchDailySeries("KZT").block())
+                .isInstanceOf(ExchangeRateProviderException.class)
+                .hasMessageContaining("circuit breaker is open");
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(stub.requestCount()).isEqualTo(callsBeforeOpen);
+    }
+
+    @Test
+    void exhaustedQuotaFailsFastWithoutCallingProvider() {
+        AlphaVantageClient client = client(new TokenBucket(1, Duration.ofHours(1)), 1);
+
+        client.fetchDailySeries("KZT").block();
+
+        assertThatThrownBy(() -> client.fetchDailySeries("KZT").block())
+                .isInstanceOf(ExchangeRateProviderException.class)
+                .hasMessageContaining("quota");
+        assertThat(stub.requestCount()).isEqualTo(1);
+    }
+
+    private AlphaVantageClient client(TokenBucket bucket, int maxAttempts) {
+        HttpClient httpClient = HttpClient.create().responseTimeout(Duration.ofMillis(300));
+        WebClient webClient = WebClient.builder()
+                .baseUrl(stub.baseUrl())
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+
+        Retry retry = Retry.backoff(maxAttempts - 1L, Duration.ofMillis(10))
+                .jitter(0.5)
+                .filter(e -> e instanceof ExchangeRateProviderException p && p.isRetryable())
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+
+        AlphaVantageClient client = new AlphaVantageClient(webClient, circuitBreaker, bucket, retry);
+        ReflectionTestUtils.setField(client, "apiKey", "test");
+        ReflectionTestUtils.setField(client, "outputSize", "compact");
+        ReflectionTestUtils.setField(client, "maxRateLimitWait", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(client, "maxResponseSize", DataSize.ofMegabytes(4));
+        return client;
+    }
+}
@@ -0,0 +1,114 @@
+package com.testtask.client;
+
+import com.testtask.exception.ExchangeRateProviderException;
+import com.testtask.support.StubFxServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.NavigableMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FxDailyParserTest {
+
+    @Test
+    void parsesDescendingPayloadIntoAscendingSeries() {
+        NavigableMap<LocalDate, BigDecimal> closes = StubFxServer.generateSeries(
+                "KZT", LocalDate.of(2005, 1, 1), LocalDate.of(2025, 12, 31), new BigDecimal("130"));
+
+        FxDailySeries series = FxDailyParser.parse(json(StubFxServer.dailyPayload("KZT", closes, true)), "KZT");
+
+        assertThat(series.size()).isEqualTo(closes.size());
+        for (int i = 0; i < series.size(); i++) {
+            assertThat(series.dateAt(i)).isEqualTo(closes.keySet().toArray()[i]);
+        }
+        closes.forEach((day, close) -> assertThat(series.floorRate(day)).isEqualByComparingTo(close));
+    }
+
+    @Test
+    void floorRateUsesClosestEarlierTradingDay() {
+        FxDailySeries series = FxDailyParser.parse(json("""
+                {
+                  "Meta Data": {"2. From Symbol": "USD"},
+                  "Time Series FX (Daily)": {
+                    "2026-01-23": {"1. open": "505.1", "4. close": "505.12345678"},
+                    "2026-01-26": {"1. open": "507.0", "4. close": "507.5"},
+                    "2026-01-22": {"4. close": "503.000000005"},
+                    "2026-01-23": {"4. close": "999"}
+                  }
+                }
+                """), "KZT");
+
+        assertThat(series.size()).isEqualTo(3);
+        assertThat(series.floorRate(LocalDate.of(2026, 1, 21))).isNull();
+        assertThat(series.floorRate(LocalDate.of(2026, 1, 22))).isEqualByComparingTo("503.00000001");
+        assertThat(series.floorRate(LocalDate.of(2026, 1, 25))).isEqualByComparingTo("505.12345678");
+        assertThat(series.floorRate(LocalDate.of(2026, 2, 1))).isEqualByComparingTo("507.5");
+        assertThat(series.rateAt(2).scale()).isEqualTo(FxDailySeries.RATE_SCALE);
+    }
+
+    @Test
+    void malformedEntriesAreSkipped() {
+        FxDailySeries series = FxDailyParser.parse(json("""
+                {"Time Series FX (Daily)": {
+                    "2026-01-23": {"4. close": "505.1"},
+                    "2026-13-40": {"4. close": "1.0"},
+                    "2026-01-24": {"4. close": "n/a"},
+                    "2026-01-25": {"1. open": "500"}
+                }}
+                """), "KZT");
+
+        assertThat(series.size()).isEqualTo(1);
+        assertThat(series.lastDate()).isEqualTo(LocalDate.of(2026, 1, 23));
+    }
+
+    @Test
+    void throttleNoteIsRetryableProviderError() {
+        assertThatThrownBy(() -> FxDailyParser.parse(json("""
+                {"Note": "Our standard API call frequency is 5 calls per minute."}
+                """), "KZT"))
+                .isInstanceOfSatisfying(ExchangeRateProviderException.class,
+                        e -> assertThat(e.isRetryable()).isTrue());
+    }
+
+    @Test
+    void errorMessageIsNotRetryable() {
+        assertThatThrownBy(() -> FxDailyParser.parse(json("""
+                {"Error Message": "Invalid API call."}
+                """), "XXX"))
+                .isInstanceOfSatisfying(ExchangeRateProviderException.class,
+                        e -> assertThat(e.isRetryable()).isFalse());
+    }
+
+    @Test
+    void missingTimeSeriesIsReported() {
+        assertThatThrownBy(() -> FxDailyParser.parse(json("{\"Meta Data\": {}}"), "KZT"))
+                .isInstanceOf(ExchangeRateProviderException.class)
+                .hasMessageContaining("No time series data");
+    }
+
+    @Test
+    void parseScaledRoundsHalfUpToEightDigits() {
+        assertThat(scaled("1")).isEqualTo(100_000_000L);
+        assertThat(scaled("0.5")).isEqualTo(50_000_000L);
+        assertThat(scaled("470.12345678")).isEqualTo(47_012_345_678L);
+        assertThat(scaled("470.123456785")).isEqualTo(47_012_345_679L);
+        assertThat(scaled("470.123456784999")).isEqualTo(47_012_345_678L);
+        assertThat(scaled("1.2.3")).isEqualTo(-1);
+        assertThat(scaled("-1")).isEqualTo(-1);
+        assertThat(scaled("")).isEqualTo(-1);
+    }
+
+    private static long scaled(String text) {
+        return FxDailyParser.parseScaled(text.toCharArray(), 0, text.length());
+    }
+
+    private static InputStream json(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
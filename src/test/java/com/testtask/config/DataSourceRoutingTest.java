@@ -0,0 +1,91 @@
+package com.testtask.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataSourceRoutingTest {
+
+    private static final String REPLICA_URL = "jdbc:postgresql://replica:5432/testtask";
+
+    private DriverManagerDataSource primary;
+    private DriverManagerDataSource read;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        read = database("read");
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(primary).execute("SHUTDOWN");
+        new JdbcTemplate(read).execute("SHUTDOWN");
+    }
+
+    @Test
+    void readOnlyTransactionsUseReadPoolWhenNoReplicaConfigured() {
+        ReplicaLagGuard guard = new ReplicaLagGuard(read, meterRegistry, "", Duration.ofSeconds(10));
+        DataSource dataSource = new DataSourceConfig().dataSource(primary, read, guard);
+
+        assertThat(nodeOf(dataSource, true)).isEqualTo("read");
+        assertThat(nodeOf(dataSource, false)).isEqualTo("primary");
+    }
+
+    @Test
+    void laggingReplicaSendsReadsToPrimary() {
+        ReplicaLagGuard guard = new ReplicaLagGuard(read, meterRegistry, REPLICA_URL, Duration.ofSeconds(10));
+        DataSource dataSource = new DataSourceConfig().dataSource(primary, read, guard);
+
+        assertThat(nodeOf(dataSource, true)).as("before the first check").isEqualTo("primary");
+
+        guard.update(0.5);
+        assertThat(nodeOf(dataSource, true)).isEqualTo("read");
+        assertThat(nodeOf(dataSource, false)).isEqualTo("primary");
+
+        guard.update(30.0);
+        assertThat(nodeOf(dataSource, true)).isEqualTo("primary");
+        assertThat(meterRegistry.get("datasource.replica.lag").gauge().value()).isEqualTo(30.0);
+        assertThat(meterRegistry.get("datasource.replica.fallbacks").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void failedLagCheckKeepsReadsOnPrimary() {
+        ReplicaLagGuard guard = new ReplicaLagGuard(read, meterRegistry, REPLICA_URL, Duration.ofSeconds(10));
+        guard.update(0.0);
+
+        // в H2 нет pg_is_in_recovery(): проверка падает, и отставание считается неизвестным
+        guard.check();
+
+        assertThat(guard.isReplicaUsable()).isFalse();
+        assertThat(meterRegistry.get("datasource.replica.lag").gauge().value()).isNaN();
+        assertThat(meterRegistry.get("datasource.replica.usable").gauge().value()).isZero();
+    }
+
+    private static String nodeOf(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate template = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        template.setReadOnly(readOnly);
+        return template.execute(status -> new JdbcTemplate(dataSource).queryForObject("SELECT name FROM node", String.class));
+    }
+
+    private static DriverManagerDataSource database(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE node (name VARCHAR(16))");
+        jdbcTemplate.update("INSERT INTO node VALUES (?)", name);
+        return dataSource;
+    }
+}
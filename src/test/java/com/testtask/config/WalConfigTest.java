@@ -0,0 +1,41 @@
+package com.testtask.config;
+
+import com.testtask.repository.WalAppliedRepository;
+import com.testtask.repository.WalDeadLetterRepository;
+import com.testtask.wal.SegmentLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WalConfigTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void continuesNumberingAfterDeadLettersWhenSegmentsAndMarksAreGone() throws Exception {
+        WalAppliedRepository applied = mock(WalAppliedRepository.class);
+        WalDeadLetterRepository deadLetters = mock(WalDeadLetterRepository.class);
+        when(applied.findMaxSeq()).thenReturn(30L);
+        when(deadLetters.findMaxSeq()).thenReturn(41L);
+
+        try (SegmentLog log = new WalConfig().transactionWal(directory, DataSize.ofKilobytes(4), applied, deadLetters)) {
+            assertThat(log.append("next".getBytes(StandardCharsets.UTF_8))).isEqualTo(42);
+        }
+    }
+
+    @Test
+    void startsFromOneOnEmptyDatabase() throws Exception {
+        try (SegmentLog log = new WalConfig().transactionWal(directory, DataSize.ofKilobytes(4),
+                mock(WalAppliedRepository.class), mock(WalDeadLetterRepository.class))) {
+            assertThat(log.append("first".getBytes(StandardCharsets.UTF_8))).isEqualTo(1);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.testtask.load;
+
+import com.testtask.dto.TransactionRequestDto;
+import com.testtask.model.ExpenseCategory;
+import com.testtask.support.OpenLoadGenerator;
+import com.testtask.support.StubFxServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.LongFunction;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Нагрузочный прогон всего приложения: PostgreSQL в Testcontainers, Alpha Vantage — StubFxServer.
+ * По умолчанию не запускается (тег load), запуск: {@code mvn test -Pload-test}.
+ * <p>
+ * Частоты и длительности задаются системными свойствами: load.rate, load.batch-rate, load.batch-size,
+ * load.read-rate (запросов в секунду), load.warmup, load.duration (ISO-8601, например PT30S).
+ * По каждому сценарию в target/load-reports пишутся распределение задержек (.hgrm) и сводка
+ * с числом запросов к БД по pg_stat_statements.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class TransactionLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionLoadTest.class);
+
+    private static final Path REPORTS = Path.of("target", "load-reports");
+    private static final LocalDate TODAY = LocalDate.now(ZoneOffset.UTC);
+    private static final int HISTORY_DAYS = 90;
+
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withCommand("postgres", "-c", "shared_preload_libraries=pg_stat_statements", "-c", "max_connections=200");
+
+    private static final StubFxServer FX = StubFxServer.start()
+            .withGeneratedSeries("KZT", TODAY.minusYears(1), TODAY, new BigDecimal("470.5"))
+            .withGeneratedSeries("RUB", TODAY.minusYears(1), TODAY, new BigDecimal("92.3"));
+
+    static {
+        POSTGRES.start();
+    }
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws IOException {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.jpa.show-sql", () -> "false");
+        registry.add("alphavantage.base-url", FX::baseUrl);
+        registry.add("alphavantage.api-key", () -> "load-test");
+        registry.add("alphavantage.output-size", () -> "full");
+        registry.add("alphavantage.rate-limit.capacity", () -> "1000");
+        registry.add("transaction-wal.dir", Files.createTempDirectory("load-wal")::toString);
+        registry.add("transaction-archive.dir", Files.createTempDirectory("load-archive")::toString);
+    }
+
+    private final Duration warmup = Duration.parse(System.getProperty("load.warmup", "PT10S"));
+    private final Duration duration = Duration.parse(System.getProperty("load.duration", "PT30S"));
+    private final double rate = Double.parseDouble(System.getProperty("load.rate", "50"));
+    private final double batchRate = Double.parseDouble(System.getProperty("load.batch-rate", "5"));
+    private final int batchSize = Integer.getInteger("load.batch-size", 50);
+    private final double readRate = Double.parseDouble(System.getProperty("load.read-rate", "10"));
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final OpenLoadGenerator generator = new OpenLoadGenerator(client);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void enableStatementStats() {
+        jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_stat_statements");
+    }
+
+    @AfterAll
+    static void stopStub() {
+        FX.close();
+    }
+
+    @Test
+    @Order(1)
+    void singleTransactions() throws IOException {
+        SplittableRandom random = new SplittableRandom(1);
+        run("single", rate, i -> post("/api/transactions", randomTransaction(random)));
+    }
+
+    @Test
+    @Order(2)
+    void batches() throws IOException {
+        SplittableRandom random = new SplittableRandom(2);
+        run("batch", batchRate, i -> post("/api/transactions/batch",
+                IntStream.range(0, batchSize).mapToObj(n -> randomTransaction(random)).toList()));
+    }
+
+    @Test
+    @Order(3)
+    void exceededTransactions() throws IOException {
+        run("exceeded", readRate, i -> HttpRequest.newBuilder(uri("/api/transactions/exceeded")).GET().build());
+    }
+
+    private void run(String scenario, double ratePerSecond, LongFunction<HttpRequest> requests) throws IOException {
+        generator.run(scenario + "-warmup", ratePerSecond, warmup, requests);
+
+        jdbcTemplate.queryForList("SELECT pg_stat_statements_reset()");
+        OpenLoadGenerator.Result result = generator.run(scenario, ratePerSecond, duration, requests);
+        long queries = countQueries();
+        List<Map<String, Object>> topQueries = topQueries();
+
+        StringBuilder summary = new StringBuilder(result.summary())
+                .append(String.format(" dbQueries=%d dbQueriesPerRequest=%.2f%n", queries, (double) queries / result.sent()));
+        for (Map<String, Object> query : topQueries) {
+            summary.append(String.format("  %8d  %s%n", ((Number) query.get("calls")).longValue(), query.get("query")));
+        }
+        log.info("Load scenario finished\n{}", summary);
+
+        Files.createDirectories(REPORTS);
+        Files.writeString(REPORTS.resolve(scenario + ".txt"), summary);
+        Files.writeString(REPORTS.resolve(scenario + ".hgrm"), result.percentileDistribution());
+
+        assertThat(result.errors()).as("failed requests in %s", scenario).isZero();
+    }
+
+    private long countQueries() {
+        Long calls = jdbcTemplate.queryForObject("""
+                SELECT COALESCE(SUM(calls), 0)
+                FROM pg_stat_statements
+                WHERE dbid = (SELECT oid FROM pg_database WHERE datname = current_database())
+                  AND query NOT ILIKE '%pg_stat_statements%'
+                """, Long.class);
+        return calls == null ? 0 : calls;
+    }
+
+    private List<Map<String, Object>> topQueries() {
+        return jdbcTemplate.queryForList("""
+                SELECT calls, LEFT(REGEXP_REPLACE(query, '\\s+', ' ', 'g'), 120) AS query
+                FROM pg_stat_statements
+                WHERE dbid = (SELECT oid FROM pg_database WHERE datname = current_database())
+                  AND query NOT ILIKE '%pg_stat_statements%'
+                ORDER BY calls DESC
+                LIMIT 5
+                """);
+    }
+
+    private TransactionRequestDto randomTransaction(SplittableRandom random) {
+        return TransactionRequestDto.builder()
+                .accountFrom(String.format("%010d", random.nextInt(1_000)))
+                .accountTo(String.format("%010d", random.nextInt(1_000_000)))
+                .currencyShortname(random.nextBoolean() ? "KZT" : "RUB")
+                .sum(BigDecimal.valueOf(random.nextLong(1_000, 50_000_000), 2))
+                .expenseCategory(random.nextBoolean() ? ExpenseCategory.PRODUCT : ExpenseCategory.SERVICE)
+                .datetime(OffsetDateTime.now(ZoneOffset.UTC).minusSeconds(random.nextLong(60, HISTORY_DAYS * 86_400L)))
+                .build();
+    }
+
+    private HttpRequest post(String path, Object body) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(jsonMapper.writeValueAsBytes(body)))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
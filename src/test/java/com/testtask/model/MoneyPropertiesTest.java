@@ -0,0 +1,97 @@
+package com.testtask.model;
+
+import net.jqwik.api.Arbitraries;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.Example;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
+import net.jqwik.api.constraints.LongRange;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Сверка фиксированной точки с прежними BigDecimal-вычислениями на границах колонок:
+ * суммы DECIMAL(15,2), курсы DECIMAL(18,8).
+ */
+class MoneyPropertiesTest {
+
+    private static final long MAX_SUM_CENTS = 999_999_999_999_999L;
+    private static final long MAX_RATE_UNITS = 999_999_999_999_999_999L;
+
+    @Property(tries = 5000)
+    void divideMatchesBigDecimalHalfUp(@ForAll("sums") long cents, @ForAll("rates") long units) {
+        BigDecimal sum = BigDecimal.valueOf(cents, Money.SCALE);
+        BigDecimal rate = BigDecimal.valueOf(units, FxRate.SCALE);
+        BigDecimal expected = sum.divide(rate, Money.SCALE, RoundingMode.HALF_UP);
+
+        if (expected.unscaledValue().bitLength() < Long.SIZE) {
+            assertThat(Money.convert(sum, rate).toBigDecimal()).isEqualTo(expected);
+            assertThat(new Money(cents).divide(new FxRate(units)).toBigDecimal()).isEqualTo(expected);
+        } else {
+            assertThatThrownBy(() -> Money.convert(sum, rate)).isInstanceOf(ArithmeticException.class);
+        }
+    }
+
+    @Property(tries = 2000)
+    void exactHalvesRoundAwayFromZero(@ForAll @LongRange(min = 1, max = 5_000) long halfRate,
+                                      @ForAll @LongRange(min = 0, max = 1_000_000) long usdCents) {
+        // курс 2k и сумма k * (2q + 1) центов дают ровно q + 0.5 цента
+        long cents = halfRate * (2 * usdCents + 1);
+        FxRate rate = new FxRate(2 * halfRate * 100_000_000L);
+
+        assertThat(new Money(cents).divide(rate)).isEqualTo(new Money(usdCents + 1));
+        assertThat(new Money(-cents).divide(rate)).isEqualTo(new Money(-usdCents - 1));
+        assertThat(BigDecimal.valueOf(cents, Money.SCALE).divide(rate.toBigDecimal(), Money.SCALE, RoundingMode.HALF_UP))
+                .isEqualTo(new Money(usdCents + 1).toBigDecimal());
+    }
+
+    @Property
+    void limitComparisonMatchesBigDecimal(@ForAll("sums") long spent, @ForAll("sums") long usd,
+                                          @ForAll("sums") long limit) {
+        boolean expected = BigDecimal.valueOf(spent, Money.SCALE)
+                .add(BigDecimal.valueOf(usd, Money.SCALE))
+                .compareTo(BigDecimal.valueOf(limit, Money.SCALE)) > 0;
+
+        assertThat(new Money(spent).plus(new Money(usd)).isGreaterThan(new Money(limit))).isEqualTo(expected);
+    }
+
+    @Property
+    void roundTripsThroughBigDecimal(@ForAll("sums") long cents) {
+        Money money = new Money(cents);
+
+        assertThat(Money.of(money.toBigDecimal())).isEqualTo(money);
+        assertThat(Money.of(money.toBigDecimal().setScale(Money.SCALE + 3))).isEqualTo(money);
+    }
+
+    @Example
+    void rejectsAmountsWithMoreThanTwoDecimals() {
+        assertThatThrownBy(() -> Money.of(new BigDecimal("1.005"))).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> FxRate.of(new BigDecimal("470.123456789"))).isInstanceOf(ArithmeticException.class);
+        assertThat(Money.of(new BigDecimal("1000"))).isEqualTo(new Money(100_000));
+    }
+
+    @Example
+    void divisionByZeroRateFails() {
+        assertThatThrownBy(() -> new Money(100).divide(new FxRate(0))).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Provide
+    Arbitrary<Long> sums() {
+        return Arbitraries.oneOf(
+                Arbitraries.longs().between(-MAX_SUM_CENTS, MAX_SUM_CENTS),
+                Arbitraries.longs().between(1, 10_000_000));
+    }
+
+    @Provide
+    Arbitrary<Long> rates() {
+        return Arbitraries.oneOf(
+                Arbitraries.longs().between(1, MAX_RATE_UNITS),
+                // реальные курсы KZT/RUB/EUR к USD
+                Arbitraries.longs().between(50_000_000L, 100_000_000_000L));
+    }
+}
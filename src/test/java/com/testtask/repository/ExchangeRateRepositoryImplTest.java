@@ -0,0 +1,83 @@
+package com.testtask.repository;
+
+import com.testtask.entity.ExchangeRate;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Upsert курсов на настоящем PostgreSQL (ON CONFLICT ... DO UPDATE). Без Docker пропускается.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ExchangeRateRepositoryImplTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2026, 1, 5);
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static JdbcTemplate jdbcTemplate;
+    private static ExchangeRateRepositoryImpl repository;
+
+    @BeforeAll
+    static void migrate() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        repository = new ExchangeRateRepositoryImpl(jdbcTemplate);
+    }
+
+    @Test
+    void overlappingWindowKeepsPreviousRateOfItsFirstDay() {
+        // окна 5..8 и 7..9 января: первый день второго окна (7-е) приходит без previous_rate
+        repository.upsertAll(window(MONDAY, "470.10", "471.20", "472.30", "473.40"));
+        repository.upsertAll(window(MONDAY.plusDays(2), "472.35", "473.45", "474.50"));
+
+        assertThat(previousRate(MONDAY.plusDays(2))).isEqualByComparingTo("471.20");
+        assertThat(rate(MONDAY.plusDays(2))).isEqualByComparingTo("472.35");
+        assertThat(previousRate(MONDAY.plusDays(3))).isEqualByComparingTo("472.35");
+        assertThat(previousRate(MONDAY.plusDays(4))).isEqualByComparingTo("473.45");
+        assertThat(previousRate(MONDAY)).isNull();
+    }
+
+    private static List<ExchangeRate> window(LocalDate from, String... rates) {
+        List<ExchangeRate> result = new ArrayList<>(rates.length);
+        BigDecimal previous = null;
+        for (int i = 0; i < rates.length; i++) {
+            BigDecimal rate = new BigDecimal(rates[i]);
+            result.add(ExchangeRate.builder()
+                    .baseCurrency("USD")
+                    .targetCurrency("KZT")
+                    .rateDate(from.plusDays(i))
+                    .rate(rate)
+                    .previousRate(previous)
+                    .source("test")
+                    .build());
+            previous = rate;
+        }
+        return result;
+    }
+
+    private static BigDecimal rate(LocalDate date) {
+        return jdbcTemplate.queryForObject(
+                "SELECT rate FROM exchange_rates WHERE target_currency = 'KZT' AND rate_date = ?", BigDecimal.class, date);
+    }
+
+    private static BigDecimal previousRate(LocalDate date) {
+        return jdbcTemplate.queryForObject(
+                "SELECT previous_rate FROM exchange_rates WHERE target_currency = 'KZT' AND rate_date = ?", BigDecimal.class, date);
+    }
+}
@@ -0,0 +1,113 @@
+package com.testtask.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Миграции V1..V8 на настоящем PostgreSQL: месячные секции, маршрутизация строк по UTC-месяцу
+ * и отсечение секций для месяца клиента. Без Docker пропускается.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class TransactionPartitionMigrationTest {
+
+    private static final Pattern PARTITION = Pattern.compile("transactions_\\d{4}_\\d{2}");
+    private static final ZoneOffset CLIENT_OFFSET = ZoneOffset.ofHours(6);
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionPartitionRepository partitionRepository;
+
+    @BeforeAll
+    static void migrate() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        partitionRepository = new TransactionPartitionRepository(jdbcTemplate);
+    }
+
+    @Test
+    void createsPartitionsFromCurrentMonthThreeMonthsAhead() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+
+        assertThat(partitionRepository.findAttachedMonths())
+                .containsSubsequence(current, current.plusMonths(1), current.plusMonths(2), current.plusMonths(3));
+    }
+
+    @Test
+    void clientMonthReadsTwoUtcPartitions() {
+        YearMonth month = YearMonth.now(ZoneOffset.UTC).plusMonths(2);
+        OffsetDateTime clientMonthStart = month.atDay(1).atStartOfDay().atOffset(CLIENT_OFFSET);
+        insert(clientMonthStart.plusHours(1));
+
+        assertThat(partitionOf(clientMonthStart.plusHours(1)))
+                .isEqualTo(TransactionPartitionRepository.partitionName(month.minusMonths(1)));
+
+        List<String> plan = jdbcTemplate.queryForList("""
+                        EXPLAIN SELECT COALESCE(SUM(usd_amount), 0)
+                        FROM transactions
+                        WHERE expense_category = 'PRODUCT' AND datetime >= ? AND datetime < ?
+                        """, String.class, clientMonthStart, clientMonthStart.plusMonths(1));
+        TreeSet<String> scanned = new TreeSet<>();
+        for (String line : plan) {
+            Matcher matcher = PARTITION.matcher(line);
+            while (matcher.find()) {
+                scanned.add(matcher.group());
+            }
+        }
+
+        assertThat(scanned).containsExactly(
+                TransactionPartitionRepository.partitionName(month.minusMonths(1)),
+                TransactionPartitionRepository.partitionName(month));
+    }
+
+    @Test
+    void detachedPartitionKeepsRowsOutsideTransactions() {
+        YearMonth month = YearMonth.of(2020, 5);
+        assertThat(partitionRepository.createPartition(month)).isTrue();
+        OffsetDateTime datetime = month.atDay(10).atStartOfDay().atOffset(ZoneOffset.UTC);
+        insert(datetime);
+
+        assertThat(partitionRepository.detachPartition(month)).isTrue();
+
+        assertThat(partitionRepository.findDetachedMonths()).contains(month);
+        assertThat(count("transactions WHERE datetime = ?", datetime)).isZero();
+        assertThat(count(TransactionPartitionRepository.partitionName(month) + " WHERE datetime = ?", datetime)).isOne();
+        assertThat(partitionRepository.detachPartition(month)).isFalse();
+    }
+
+    private static void insert(OffsetDateTime datetime) {
+        jdbcTemplate.update("""
+                        INSERT INTO transactions (account_from, account_to, currency_shortname, sum, expense_category,
+                                                  datetime, usd_amount, limit_sum, limit_datetime, limit_currency)
+                        VALUES ('0000000123', '9999999999', 'USD', 10.00, 'PRODUCT', ?, 10.00, 1000.00, ?, 'USD')
+                        """, datetime, datetime);
+    }
+
+    private static String partitionOf(OffsetDateTime datetime) {
+        return jdbcTemplate.queryForObject(
+                "SELECT tableoid::regclass::text FROM transactions WHERE datetime = ?", String.class, datetime);
+    }
+
+    private static long count(String from, OffsetDateTime datetime) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + from, Long.class, datetime);
+    }
+}
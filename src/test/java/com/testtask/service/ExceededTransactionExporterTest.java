@@ -0,0 +1,85 @@
+package com.testtask.service;
+
+import com.testtask.dto.ExceededTransactionFilter;
+import com.testtask.dto.ExceededTransactionResponseDto;
+import com.testtask.model.ExportFormat;
+import com.testtask.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class ExceededTransactionExporterTest {
+
+    private static final ExceededTransactionFilter NO_FILTER = new ExceededTransactionFilter(null, null, null, null);
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private TransactionArchiveService transactionArchiveService;
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    private ExceededTransactionExporter exporter;
+
+    @BeforeEach
+    void setUp() {
+        exporter = new ExceededTransactionExporter(transactionRepository, transactionArchiveService, jsonMapper);
+
+        doAnswer(invocation -> {
+            Consumer<ExceededTransactionResponseDto> consumer = invocation.getArgument(1);
+            consumer.accept(row(2L, "000,123"));
+            consumer.accept(row(1L, "0000000123"));
+            return null;
+        }).when(transactionRepository).streamExceeded(eq(NO_FILTER), any());
+    }
+
+    @Test
+    void writesCsvWithHeaderAndQuotedFields() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long rows = exporter.export(NO_FILTER, ExportFormat.CSV, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(rows).isEqualTo(2);
+        assertThat(lines).hasSize(3);
+        assertThat(lines[0]).startsWith("id,accountFrom,");
+        assertThat(lines[1]).startsWith("2,\"000,123\",9999999999,KZT,500000.00,PRODUCT,2026-01-20T10:00:00Z,");
+        assertThat(lines[2]).endsWith(",1000.00,2026-01-01T00:00:00Z,USD");
+    }
+
+    @Test
+    void writesOneJsonObjectPerLine() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        exporter.export(NO_FILTER, ExportFormat.NDJSON, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        JsonNode first = jsonMapper.readTree(lines[0]);
+        assertThat(first.get("id").asLong()).isEqualTo(2L);
+        assertThat(first.get("accountFrom").asString()).isEqualTo("000,123");
+    }
+
+    private static ExceededTransactionResponseDto row(long id, String accountFrom) {
+        return new ExceededTransactionResponseDto(id, accountFrom, "9999999999", "KZT", new BigDecimal("500000.00"),
+                "PRODUCT", Instant.parse("2026-01-20T10:00:00Z"), new BigDecimal("1001.00"),
+                new BigDecimal("1000.00"), Instant.parse("2026-01-01T00:00:00Z"), "USD");
+    }
+}
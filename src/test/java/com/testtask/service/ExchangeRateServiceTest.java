@@ -0,0 +1,204 @@
+package com.testtask.service;
+
+import com.testtask.cache.ExchangeRateCache;
+import com.testtask.client.AlphaVantageClient;
+import com.testtask.client.FxDailyParser;
+import com.testtask.client.FxDailySeries;
+import com.testtask.entity.ExchangeRate;
+import com.testtask.exception.ExchangeRateNotFoundException;
+import com.testtask.exception.ExchangeRateProviderException;
+import com.testtask.repository.ExchangeRateRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ExchangeRateServiceTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2026, 1, 26);
+
+    @Mock
+    private AlphaVantageClient alphaVantageClient;
+
+    @Mock
+    private ExchangeRateRepository exchangeRateRepository;
+
+    private ExchangeRateCache exchangeRateCache;
+
+    private ExchangeRateService service;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        exchangeRateCache = new ExchangeRateCache(100, Duration.ofHours(1), Duration.ofMinutes(5), meterRegistry);
+        service = new ExchangeRateService(alphaVantageClient, exchangeRateRepository, exchangeRateCache,
+                new ProcessingMetrics(meterRegistry), Schedulers.immediate(),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(service, "bulkIngest", true);
+    }
+
+    @Test
+    void missingFloorFailsBeforeTheSeriesIsStored() {
+        when(alphaVantageClient.fetchDailySeries("KZT")).thenReturn(Mono.just(series()));
+
+        assertThatThrownBy(() -> service.fetchAndSaveRate("KZT", MONDAY.minusDays(10)))
+                .isInstanceOf(ExchangeRateNotFoundException.class)
+                .hasMessageContaining("USD/KZT");
+
+        verify(exchangeRateRepository, never()).upsertAll(any());
+        assertThat(exchangeRateCache.get("KZT", MONDAY.minusDays(10))).isEmpty();
+    }
+
+    @Test
+    void cacheIsInvalidatedOnlyAfterCommit() {
+        when(alphaVantageClient.fetchDailySeries("KZT")).thenReturn(Mono.just(series()));
+        exchangeRateCache.put("KZT", MONDAY.minusDays(1), new BigDecimal("1.0"));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertThat(service.fetchAndSaveRate("KZT", MONDAY)).isEqualByComparingTo("507.5");
+
+            verify(exchangeRateRepository).upsertAll(any());
+            assertThat(exchangeRateCache.get("KZT", MONDAY.minusDays(1))).contains(new BigDecimal("1.0"));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(exchangeRateCache.get("KZT", MONDAY.minusDays(1))).isEmpty();
+        assertThat(exchangeRateCache.get("KZT", MONDAY)).contains(new BigDecimal("507.50000000"));
+    }
+
+    @Test
+    void concurrentRequestsForDifferentDatesShareOneFetch() {
+        Sinks.One<FxDailySeries> response = Sinks.one();
+        when(alphaVantageClient.fetchDailySeries("KZT")).thenReturn(response.asMono());
+
+        CompletableFuture<BigDecimal> monday = service.getOrFetchRateAsync("KZT", MONDAY).toFuture();
+        CompletableFuture<BigDecimal> sunday = service.getOrFetchRateAsync("KZT", MONDAY.minusDays(1)).toFuture();
+        response.tryEmitValue(series());
+
+        assertThat(monday.join()).isEqualByComparingTo("507.5");
+        assertThat(sunday.join()).isEqualByComparingTo("505.12345678");
+        verify(alphaVantageClient).fetchDailySeries("KZT");
+        verify(exchangeRateRepository).upsertAll(any());
+    }
+
+    @Test
+    void asyncCacheHitTouchesNeitherDatabaseNorProvider() {
+        exchangeRateCache.put("KZT", MONDAY, new BigDecimal("507.5"));
+
+        assertThat(service.getOrFetchRateAsync("KZT", MONDAY).block()).isEqualByComparingTo("507.5");
+
+        verifyNoInteractions(alphaVantageClient, exchangeRateRepository);
+    }
+
+    @Test
+    void waitersAreCompletedBeforeTheLeaderPersists() throws Exception {
+        Sinks.One<FxDailySeries> response = Sinks.one();
+        when(alphaVantageClient.fetchDailySeries("KZT")).thenReturn(response.asMono());
+        CountDownLatch persisting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            persisting.countDown();
+            release.await();
+            return null;
+        }).when(exchangeRateRepository).upsertAll(any());
+
+        CompletableFuture<BigDecimal> leader = service.getOrFetchRateAsync("KZT", MONDAY).toFuture();
+        CompletableFuture<BigDecimal> waiter = service.getOrFetchRateAsync("KZT", MONDAY.minusDays(1)).toFuture();
+        Thread.ofVirtual().start(() -> response.tryEmitValue(series()));
+
+        assertThat(waiter.get(5, TimeUnit.SECONDS)).isEqualByComparingTo("505.12345678");
+        assertThat(persisting.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(leader).isNotDone();
+
+        release.countDown();
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualByComparingTo("507.5");
+        verify(alphaVantageClient).fetchDailySeries("KZT");
+    }
+
+    @Test
+    void providerFailureFallsBackToLatestKnownRateForEveryCaller() {
+        Sinks.One<FxDailySeries> response = Sinks.one();
+        when(alphaVantageClient.fetchDailySeries("KZT")).thenReturn(response.asMono());
+        when(exchangeRateRepository.findFirstByBaseCurrencyAndTargetCurrencyOrderByRateDateDesc("USD", "KZT"))
+                .thenReturn(Optional.of(ExchangeRate.builder()
+                        .rateDate(MONDAY.minusDays(30))
+                        .rate(new BigDecimal("480.00000000"))
+                        .build()));
+
+        CompletableFuture<BigDecimal> leader = service.getOrFetchRateAsync("KZT", MONDAY).toFuture();
+        CompletableFuture<BigDecimal> waiter = service.getOrFetchRateAsync("KZT", MONDAY.minusDays(1)).toFuture();
+        response.tryEmitError(new ExchangeRateProviderException("Alpha Vantage is down", true));
+
+        assertThat(leader.join()).isEqualByComparingTo("480");
+        assertThat(waiter.join()).isEqualByComparingTo("480");
+        verify(exchangeRateRepository, never()).upsertAll(any());
+    }
+
+    @Test
+    void cancelledLeaderReleasesWaitersAndTheNextCallFetchesAgain() {
+        when(alphaVantageClient.fetchDailySeries("KZT"))
+                .thenReturn(Sinks.<FxDailySeries>one().asMono())
+                .thenReturn(Mono.just(series()));
+
+        Disposable leader = service.getOrFetchRateAsync("KZT", MONDAY).subscribe();
+        CompletableFuture<BigDecimal> waiter = service.getOrFetchRateAsync("KZT", MONDAY.minusDays(1)).toFuture();
+        leader.dispose();
+
+        assertThat(waiter).failsWithin(Duration.ofSeconds(5))
+                .withThrowableThat()
+                .isInstanceOf(CancellationException.class)
+                .withMessage("Rate fetch was cancelled");
+        assertThat(service.getOrFetchRateAsync("KZT", MONDAY).block()).isEqualByComparingTo("507.5");
+        verify(alphaVantageClient, times(2)).fetchDailySeries("KZT");
+    }
+
+    private static FxDailySeries series() {
+        return FxDailyParser.parse(new ByteArrayInputStream("""
+                {
+                  "Meta Data": {"2. From Symbol": "USD"},
+                  "Time Series FX (Daily)": {
+                    "2026-01-23": {"4. close": "505.12345678"},
+                    "2026-01-26": {"4. close": "507.5"}
+                  }
+                }
+                """.getBytes(StandardCharsets.UTF_8)), "KZT");
+    }
+}
@@ -0,0 +1,209 @@
+package com.testtask.service;
+
+import com.testtask.entity.IngestJob;
+import com.testtask.entity.Transaction;
+import com.testtask.mapper.AppMapperImpl;
+import com.testtask.model.ExpenseCategory;
+import com.testtask.model.IngestJobStatus;
+import com.testtask.repository.IngestJobRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IngestJobWorkerTest {
+
+    private static final OffsetDateTime JANUARY = OffsetDateTime.of(2026, 1, 1, 0, 0, 0, 0, ZoneOffset.ofHours(3));
+
+    @Mock
+    private IngestJobRepository ingestJobRepository;
+
+    @Mock
+    private TransactionService transactionService;
+
+    private IngestJobWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        worker = new IngestJobWorker(ingestJobRepository, transactionService, new AppMapperImpl(),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                false, 1, 10, Duration.ofMillis(10), Duration.ofMinutes(5), 3,
+                Duration.ofSeconds(5), Duration.ofMinutes(5), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void completesJobsGroupedByCategoryAndMonth() {
+        IngestJob late = job(ExpenseCategory.PRODUCT, JANUARY.plusDays(9), 1);
+        IngestJob early = job(ExpenseCategory.PRODUCT, JANUARY.plusDays(2), 1);
+        IngestJob service = job(ExpenseCategory.SERVICE, JANUARY.plusDays(5), 1);
+
+        when(ingestJobRepository.claimBatch(anyInt(), anyLong(), anyInt())).thenReturn(List.of(late, early, service));
+        when(ingestJobRepository.complete(any(), anyInt(), any(), any(), anyBoolean())).thenReturn(1);
+
+        AtomicLong ids = new AtomicLong();
+        when(transactionService.processGroup(any())).thenAnswer(invocation -> {
+            List<Transaction> group = invocation.getArgument(0);
+            group.forEach(transaction -> {
+                transaction.setId(ids.incrementAndGet());
+                transaction.setUsdAmount(BigDecimal.ONE);
+            });
+            return group;
+        });
+
+        assertThat(worker.drainOnce()).isEqualTo(3);
+
+        verify(ingestJobRepository).complete(eq(early.getId()), eq(1), eq(1L), any(), eq(false));
+        verify(ingestJobRepository).complete(eq(late.getId()), eq(1), eq(2L), any(), eq(false));
+        verify(ingestJobRepository).complete(eq(service.getId()), eq(1), eq(3L), any(), eq(false));
+    }
+
+    @Test
+    void keepsClientOffsetForMonthBoundaries() {
+        IngestJob job = job(ExpenseCategory.PRODUCT, JANUARY, 1);
+        when(ingestJobRepository.claimBatch(anyInt(), anyLong(), anyInt())).thenReturn(List.of(job));
+        when(ingestJobRepository.complete(any(), anyInt(), any(), any(), anyBoolean())).thenReturn(1);
+        when(transactionService.processGroup(any())).thenAnswer(invocation -> {
+            List<Transaction> group = invocation.getArgument(0);
+            assertThat(group.get(0).getDatetime()).isEqualTo(JANUARY);
+            group.get(0).setId(1L);
+            return group;
+        });
+
+        worker.drainOnce();
+
+        verify(ingestJobRepository).complete(eq(job.getId()), eq(1), eq(1L), any(), eq(false));
+    }
+
+    @Test
+    void requeuesFailedJobsWithBackoffUntilAttemptsRunOut() {
+        IngestJob retried = job(ExpenseCategory.PRODUCT, JANUARY.plusDays(1), 2);
+        IngestJob exhausted = job(ExpenseCategory.PRODUCT, JANUARY.plusDays(2), 3);
+
+        when(ingestJobRepository.claimBatch(anyInt(), anyLong(), anyInt())).thenReturn(List.of(retried, exhausted));
+        when(transactionService.processGroup(any())).thenThrow(new IllegalStateException("provider down"));
+
+        worker.drainOnce();
+
+        verify(ingestJobRepository).requeue(retried.getId(), 2, "provider down", 10.0);
+        verify(ingestJobRepository).fail(exhausted.getId(), 3, "provider down");
+        verify(ingestJobRepository, never()).requeue(eq(exhausted.getId()), anyInt(), any(), anyDouble());
+    }
+
+    @Test
+    void failedGroupIsRetriedOneByOneSoValidNeighboursComplete() {
+        IngestJob first = job(ExpenseCategory.PRODUCT, JANUARY.plusDays(1), 1);
+        IngestJob bad = job(ExpenseCategory.PRODUCT, JANUARY.plusDays(2), 1);
+        IngestJob last = job(ExpenseCategory.PRODUCT, JANUARY.plusDays(3), 1);
+        bad.setCurrencyShortname("XXX");
+
+        when(ingestJobRepository.claimBatch(anyInt(), anyLong(), anyInt())).thenReturn(List.of(first, bad, last));
+        when(ingestJobRepository.complete(any(), anyInt(), any(), any(), anyBoolean())).thenReturn(1);
+        AtomicLong ids = new AtomicLong();
+        when(transactionService.processGroup(any())).thenAnswer(invocation -> {
+            List<Transaction> group = invocation.getArgument(0);
+            if (group.stream().anyMatch(transaction -> transaction.getCurrencyShortname().equals("XXX"))) {
+                throw new IllegalArgumentException("Unsupported currency: XXX");
+            }
+            group.forEach(transaction -> transaction.setId(ids.incrementAndGet()));
+            return group;
+        });
+
+        worker.drainOnce();
+
+        verify(transactionService, times(4)).processGroup(any());
+        verify(ingestJobRepository).complete(eq(first.getId()), eq(1), eq(1L), any(), eq(false));
+        verify(ingestJobRepository).complete(eq(last.getId()), eq(1), eq(2L), any(), eq(false));
+        verify(ingestJobRepository).requeue(bad.getId(), 1, "Unsupported currency: XXX", 5.0);
+        verify(ingestJobRepository, never()).fail(any(), anyInt(), any());
+    }
+
+    @Test
+    void reclaimedJobRollsBackWithoutRetryAndNeighboursComplete() {
+        IngestJob reclaimed = job(ExpenseCategory.PRODUCT, JANUARY.plusDays(1), 1);
+        IngestJob other = job(ExpenseCategory.PRODUCT, JANUARY.plusDays(2), 1);
+
+        when(ingestJobRepository.claimBatch(anyInt(), anyLong(), anyInt())).thenReturn(List.of(reclaimed, other));
+        when(ingestJobRepository.complete(eq(reclaimed.getId()), anyInt(), any(), any(), anyBoolean())).thenReturn(0);
+        when(ingestJobRepository.complete(eq(other.getId()), anyInt(), any(), any(), anyBoolean())).thenReturn(1);
+        AtomicLong ids = new AtomicLong();
+        when(transactionService.processGroup(any())).thenAnswer(invocation -> {
+            List<Transaction> group = invocation.getArgument(0);
+            group.forEach(transaction -> transaction.setId(ids.incrementAndGet()));
+            return group;
+        });
+
+        worker.drainOnce();
+
+        verify(transactionService, times(3)).processGroup(any());
+        verify(ingestJobRepository).complete(eq(other.getId()), eq(1), eq(4L), any(), eq(false));
+        verify(ingestJobRepository, never()).requeue(any(), anyInt(), any(), anyDouble());
+        verify(ingestJobRepository, never()).fail(any(), anyInt(), any());
+    }
+
+    @Test
+    void abandonedJobsAreFailedOnceAttemptsRunOut() {
+        when(ingestJobRepository.claimBatch(anyInt(), anyLong(), anyInt())).thenReturn(List.of());
+
+        worker.drainOnce();
+
+        verify(ingestJobRepository).failAbandoned(300, 3);
+        verify(ingestJobRepository).claimBatch(10, 300, 3);
+    }
+
+    @Test
+    void retryDelayDoublesUpToMaximum() {
+        assertThat(worker.retryDelay(1)).isEqualTo(Duration.ofSeconds(5));
+        assertThat(worker.retryDelay(2)).isEqualTo(Duration.ofSeconds(10));
+        assertThat(worker.retryDelay(4)).isEqualTo(Duration.ofSeconds(40));
+        assertThat(worker.retryDelay(20)).isEqualTo(Duration.ofMinutes(5));
+    }
+
+    @Test
+    void emptyQueueDoesNothing() {
+        when(ingestJobRepository.claimBatch(anyInt(), anyLong(), anyInt())).thenReturn(List.of());
+
+        assertThat(worker.drainOnce()).isZero();
+    }
+
+    private static IngestJob job(ExpenseCategory category, OffsetDateTime datetime, int attempts) {
+        return IngestJob.builder()
+                .id(UUID.randomUUID())
+                .status(IngestJobStatus.PROCESSING)
+                .accountFrom("1")
+                .accountTo("2")
+                .currencyShortname("KZT")
+                .sum(new BigDecimal("5000.00"))
+                .expenseCategory(category)
+                .datetime(datetime)
+                .attempts(attempts)
+                .createdAt(datetime)
+                .startedAt(datetime.plusSeconds(1))
+                .build();
+    }
+}
@@ -0,0 +1,102 @@
+package com.testtask.service;
+
+import com.testtask.archive.ArchiveManifest;
+import com.testtask.archive.ArchivedTransaction;
+import com.testtask.archive.ColumnarArchiveWriter;
+import com.testtask.dto.ExceededTransactionFilter;
+import com.testtask.dto.ExceededTransactionResponseDto;
+import com.testtask.model.ExceededCursor;
+import com.testtask.model.ExpenseCategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionArchiveServiceTest {
+
+    private static final ExceededTransactionFilter NO_FILTER = new ExceededTransactionFilter(null, null, null, null);
+
+    @TempDir
+    Path directory;
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    private TransactionArchiveService archiveService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        archiveService = new TransactionArchiveService(directory, jsonMapper);
+        archive(YearMonth.of(2024, 1), List.of(
+                row(3, "2024-01-20T10:00:00Z", "SERVICE", true),
+                row(2, "2024-01-10T10:00:00Z", "PRODUCT", false),
+                row(1, "2024-01-05T10:00:00Z", "PRODUCT", true)));
+        archive(YearMonth.of(2024, 2), List.of(
+                row(6, "2024-02-15T10:00:00Z", "PRODUCT", true),
+                row(5, "2024-02-15T10:00:00Z", "PRODUCT", true)));
+    }
+
+    @Test
+    void pagesExceededRowsNewestFirstAcrossMonths() throws IOException {
+        List<ExceededTransactionResponseDto> first = archiveService.findExceededPage(NO_FILTER, null, 2);
+        ExceededTransactionResponseDto last = first.getLast();
+        List<ExceededTransactionResponseDto> rest = archiveService.findExceededPage(
+                NO_FILTER, new ExceededCursor(last.datetime(), last.id()), 10);
+
+        assertThat(first).extracting(ExceededTransactionResponseDto::id).containsExactly(6L, 5L);
+        assertThat(rest).extracting(ExceededTransactionResponseDto::id).containsExactly(3L, 1L);
+
+        // Manifest переживает перезапуск.
+        TransactionArchiveService reloaded = new TransactionArchiveService(directory, jsonMapper);
+        ExceededTransactionFilter products = new ExceededTransactionFilter(ExpenseCategory.PRODUCT,
+                OffsetDateTime.parse("2024-01-01T00:00:00Z"), OffsetDateTime.parse("2024-02-01T00:00:00Z"), null);
+        assertThat(reloaded.findExceededPage(products, null, 10))
+                .extracting(ExceededTransactionResponseDto::id)
+                .containsExactly(1L);
+    }
+
+    @Test
+    void narrowsLiveFilterToMonthsAfterArchive() {
+        OffsetDateTime through = OffsetDateTime.parse("2024-03-01T00:00:00Z");
+
+        assertThat(archiveService.archivedThrough()).contains(through);
+        assertThat(archiveService.liveFilter(NO_FILTER)).get()
+                .extracting(ExceededTransactionFilter::from)
+                .isEqualTo(through);
+        assertThat(archiveService.liveFilter(new ExceededTransactionFilter(
+                null, null, OffsetDateTime.parse("2024-02-10T00:00:00Z"), null))).isEmpty();
+    }
+
+    private void archive(YearMonth month, List<ArchivedTransaction> rows) throws IOException {
+        String file = "transactions-" + month + ".txa.gz";
+        ColumnarArchiveWriter writer;
+        try (OutputStream output = Files.newOutputStream(directory.resolve(file))) {
+            writer = new ColumnarArchiveWriter(output, 2);
+            try (writer) {
+                for (ArchivedTransaction row : rows) {
+                    writer.write(row);
+                }
+            }
+        }
+        archiveService.register(new ArchiveManifest.Entry(month, file, writer.rows(), writer.exceededRows(),
+                writer.minDatetime(), writer.maxDatetime(), "", Instant.now()));
+    }
+
+    private static ArchivedTransaction row(long id, String datetime, String category, boolean exceeded) {
+        Instant instant = Instant.parse(datetime);
+        return new ArchivedTransaction(id, "0000000123", "9999999999", "USD", new BigDecimal("700.00"),
+                category, instant, new BigDecimal("700.00"), null, exceeded, instant, instant,
+                new BigDecimal("1000.00"), Instant.parse("2024-01-01T00:00:00Z"), "USD");
+    }
+}
@@ -0,0 +1,136 @@
+package com.testtask.service;
+
+import com.testtask.archive.ArchiveManifest;
+import com.testtask.archive.ArchivedTransaction;
+import com.testtask.archive.ColumnarArchiveReader;
+import com.testtask.repository.TransactionArchiveRepository;
+import com.testtask.repository.TransactionPartitionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionArchiverTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2024, 1);
+    private static final YearMonth CURRENT = MONTH.plusMonths(25);
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private TransactionArchiveRepository archiveRepository;
+
+    @Mock
+    private TransactionPartitionRepository partitionRepository;
+
+    private TransactionArchiveService archiveService;
+
+    private TransactionArchiver archiver;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        archiveService = new TransactionArchiveService(directory, JsonMapper.builder().build());
+        archiver = new TransactionArchiver(archiveRepository, partitionRepository, archiveService,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new SimpleMeterRegistry(),
+                true, 24, 2);
+        when(archiveRepository.findOldestMonth()).thenReturn(Optional.of(MONTH));
+    }
+
+    @Test
+    void detachesBeforeExportAndDeletesOnlyExportedRows() throws IOException {
+        when(archiveRepository.hasRows(MONTH)).thenReturn(true);
+        when(partitionRepository.detachPartition(MONTH)).thenReturn(true);
+        when(archiveRepository.findRows(MONTH)).thenReturn(List.of(row(4, "2024-01-15T10:00:00Z")));
+        doAnswer(invocation -> {
+            Consumer<ArchivedTransaction> consumer = invocation.getArgument(1);
+            consumer.accept(row(5, "2024-01-20T10:00:00Z"));
+            consumer.accept(row(2, "2024-01-10T10:00:00Z"));
+            return null;
+        }).when(archiveRepository).streamDetachedPartition(eq(MONTH), any());
+
+        archiver.archive(CURRENT);
+
+        ArchiveManifest.Entry entry = archiveService.manifest().find(MONTH).orElseThrow();
+        assertThat(entry.rows()).isEqualTo(3);
+        assertThat(ids(entry)).containsExactly(5L, 4L, 2L);
+        verify(archiveRepository).dropDetachedPartition(MONTH);
+        verify(archiveRepository).deleteRows(MONTH, new long[]{4});
+    }
+
+    @Test
+    void rearchivesLateRowsOfArchivedMonth() throws IOException {
+        when(archiveRepository.hasRows(MONTH)).thenReturn(true);
+        when(archiveRepository.findRows(MONTH))
+                .thenReturn(List.of(row(3, "2024-01-20T10:00:00Z"), row(1, "2024-01-05T10:00:00Z")))
+                .thenReturn(List.of(row(2, "2024-01-10T10:00:00Z")));
+        archiver.archive(CURRENT);
+        ArchiveManifest.Entry first = archiveService.manifest().find(MONTH).orElseThrow();
+
+        archiver.archive(CURRENT);
+
+        ArchiveManifest.Entry second = archiveService.manifest().find(MONTH).orElseThrow();
+        assertThat(second.file()).isNotEqualTo(first.file());
+        assertThat(ids(second)).containsExactly(3L, 2L, 1L);
+        assertThat(directory.resolve(first.file())).doesNotExist();
+        verify(archiveRepository).deleteRows(MONTH, new long[]{3, 1});
+        verify(archiveRepository).deleteRows(MONTH, new long[]{2});
+        verify(archiveRepository, never()).dropDetachedPartition(any());
+    }
+
+    @Test
+    void keepsRowsWhenExportFails() {
+        when(partitionRepository.findDetachedMonths()).thenReturn(List.of(MONTH));
+        when(archiveRepository.findRows(MONTH)).thenReturn(List.of());
+        doThrow(new IllegalStateException("connection lost"))
+                .when(archiveRepository).streamDetachedPartition(eq(MONTH), any());
+
+        archiver.archive(CURRENT);
+
+        assertThat(archiveService.manifest().find(MONTH)).isEmpty();
+        verify(archiveRepository, never()).dropDetachedPartition(any());
+        verify(archiveRepository, never()).deleteRows(any(), any());
+    }
+
+    private List<Long> ids(ArchiveManifest.Entry entry) throws IOException {
+        List<Long> ids = new ArrayList<>();
+        ColumnarArchiveReader.read(directory.resolve(entry.file()), false, row -> ids.add(row.id()));
+        assertThat(Files.list(directory)).noneMatch(file -> file.toString().endsWith(".tmp"));
+        return ids;
+    }
+
+    private static ArchivedTransaction row(long id, String datetime) {
+        Instant instant = Instant.parse(datetime);
+        return new ArchivedTransaction(id, "0000000123", "9999999999", "USD", new BigDecimal("700.00"),
+                "PRODUCT", instant, new BigDecimal("700.00"), null, true, instant, instant,
+                new BigDecimal("1000.00"), Instant.parse("2024-01-01T00:00:00Z"), "USD");
+    }
+}
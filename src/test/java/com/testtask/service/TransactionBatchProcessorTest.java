@@ -0,0 +1,179 @@
+package com.testtask.service;
+
+import com.testtask.entity.Transaction;
+import com.testtask.exception.BatchTimeoutException;
+import com.testtask.model.ExpenseCategory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionBatchProcessorTest {
+
+    private static final int MAX_CONCURRENCY = 3;
+    private static final OffsetDateTime JANUARY = OffsetDateTime.of(2026, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    @Mock
+    private TransactionService transactionService;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void keepsInputOrderAndNeverExceedsPermits() {
+        AtomicInteger current = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        when(transactionService.processGroup(any())).thenAnswer(invocation -> {
+            peak.accumulateAndGet(current.incrementAndGet(), Math::max);
+            Thread.sleep(5);
+            current.decrementAndGet();
+            return invocation.getArgument(0);
+        });
+
+        List<Transaction> batch = transactions(50);
+
+        List<Transaction> saved = processor(Duration.ofSeconds(10)).processAll(batch);
+
+        assertThat(saved).containsExactlyElementsOf(batch);
+        assertThat(peak.get()).isLessThanOrEqualTo(MAX_CONCURRENCY);
+        verify(transactionService, times(12)).processGroup(any());
+    }
+
+    @Test
+    void groupsByCategoryAndMonthSortedByDatetime() {
+        List<List<Transaction>> groups = new CopyOnWriteArrayList<>();
+        when(transactionService.processGroup(any())).thenAnswer(invocation -> {
+            List<Transaction> group = invocation.getArgument(0);
+            groups.add(group);
+            return group;
+        });
+
+        Transaction late = transaction(0, ExpenseCategory.PRODUCT, JANUARY.plusDays(20));
+        Transaction otherCategory = transaction(1, ExpenseCategory.SERVICE, JANUARY.plusDays(5));
+        Transaction early = transaction(2, ExpenseCategory.PRODUCT, JANUARY.plusDays(3));
+        Transaction nextMonth = transaction(3, ExpenseCategory.PRODUCT, JANUARY.plusMonths(1));
+
+        List<Transaction> saved = processor(Duration.ofSeconds(10))
+                .processAll(List.of(late, otherCategory, early, nextMonth));
+
+        assertThat(saved).containsExactly(late, otherCategory, early, nextMonth);
+        assertThat(groups).containsExactlyInAnyOrder(
+                List.of(early, late), List.of(otherCategory), List.of(nextMonth));
+    }
+
+    @Test
+    void failureCancelsRemainingItems() {
+        AtomicInteger started = new AtomicInteger();
+
+        when(transactionService.processGroup(any())).thenAnswer(invocation -> {
+            if (started.incrementAndGet() == 1) {
+                throw new IllegalStateException("boom");
+            }
+            Thread.sleep(10_000);
+            return invocation.getArgument(0);
+        });
+
+        assertThatThrownBy(() -> processor(Duration.ofSeconds(10)).processAll(transactions(20)))
+                .hasRootCauseInstanceOf(IllegalStateException.class);
+
+        assertThat(started.get()).isLessThan(12);
+    }
+
+    @Test
+    void settledModeReportsFailedGroupAndKeepsOthers() {
+        when(transactionService.processGroup(any())).thenAnswer(invocation -> {
+            List<Transaction> group = invocation.getArgument(0);
+            if (group.get(0).getExpenseCategory() == ExpenseCategory.SERVICE) {
+                throw new IllegalStateException("boom");
+            }
+            return group;
+        });
+
+        Transaction product = transaction(0, ExpenseCategory.PRODUCT, JANUARY.plusDays(1));
+        Transaction service = transaction(1, ExpenseCategory.SERVICE, JANUARY.plusDays(1));
+
+        List<BatchItemResult> results = processor(Duration.ofSeconds(10)).processAllSettled(List.of(product, service));
+
+        assertThat(results.get(0)).isEqualTo(BatchItemResult.saved(product));
+        assertThat(results.get(1)).isEqualTo(BatchItemResult.failed("boom"));
+    }
+
+    @Test
+    void timeoutCancelsBatch() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        when(transactionService.processGroup(any())).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return invocation.getArgument(0);
+        });
+
+        assertThatThrownBy(() -> processor(Duration.ofMillis(200)).processAll(transactions(5)))
+                .isInstanceOf(BatchTimeoutException.class);
+
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private TransactionBatchProcessor processor(Duration timeout) {
+        return new TransactionBatchProcessor(transactionService, executor, MAX_CONCURRENCY, timeout,
+                new SimpleMeterRegistry());
+    }
+
+    /**
+     * Двенадцать групп: месяц меняется по кругу, категория чередуется вместе с ним.
+     */
+    private static List<Transaction> transactions(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> transaction(i,
+                        ExpenseCategory.values()[i % 2],
+                        JANUARY.plusMonths(i % 12).plusHours(i)))
+                .toList();
+    }
+
+    private static Transaction transaction(int i, ExpenseCategory category, OffsetDateTime datetime) {
+        return Transaction.builder()
+                .accountFrom(String.valueOf(i))
+                .sum(BigDecimal.TEN)
+                .expenseCategory(category)
+                .datetime(datetime)
+                .build();
+    }
+}
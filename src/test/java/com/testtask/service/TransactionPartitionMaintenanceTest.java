@@ -0,0 +1,60 @@
+package com.testtask.service;
+
+import com.testtask.repository.TransactionPartitionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionPartitionMaintenanceTest {
+
+    private static final YearMonth CURRENT = YearMonth.of(2026, 3);
+
+    @Mock
+    private TransactionPartitionRepository partitionRepository;
+
+    @Test
+    void createsCurrentAndFutureMonthsWithoutDetachingByDefault() {
+        TransactionPartitionMaintenance maintenance = new TransactionPartitionMaintenance(partitionRepository, 2, 0);
+
+        maintenance.maintain(CURRENT);
+
+        verify(partitionRepository).createPartition(YearMonth.of(2026, 3));
+        verify(partitionRepository).createPartition(YearMonth.of(2026, 4));
+        verify(partitionRepository).createPartition(YearMonth.of(2026, 5));
+        verify(partitionRepository, never()).detachPartition(any());
+        verifyNoMoreInteractions(partitionRepository);
+        assertThat(maintenance.retainedFrom()).isEmpty();
+    }
+
+    @Test
+    void detachesOnlyMonthsOlderThanRetention() {
+        TransactionPartitionMaintenance maintenance = new TransactionPartitionMaintenance(partitionRepository, 0, 12);
+        when(partitionRepository.findAttachedMonths()).thenReturn(List.of(
+                YearMonth.of(2025, 1), YearMonth.of(2025, 2), YearMonth.of(2025, 3), YearMonth.of(2025, 4), CURRENT));
+        when(partitionRepository.detachPartition(any())).thenReturn(true);
+
+        maintenance.maintain(CURRENT);
+
+        verify(partitionRepository).detachPartition(YearMonth.of(2025, 1));
+        verify(partitionRepository).detachPartition(YearMonth.of(2025, 2));
+        verify(partitionRepository, never()).detachPartition(YearMonth.of(2025, 3));
+        verify(partitionRepository, never()).detachPartition(CURRENT);
+
+        when(partitionRepository.findAttachedMonths()).thenReturn(List.of(YearMonth.of(2025, 3), CURRENT));
+        assertThat(maintenance.retainedFrom()).contains(OffsetDateTime.of(2025, 3, 1, 0, 0, 0, 0, ZoneOffset.UTC));
+    }
+}
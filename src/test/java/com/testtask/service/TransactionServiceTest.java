@@ -1,7 +1,14 @@
 package com.testtask.service;
 
+import com.testtask.cache.LimitTimeline;
+import com.testtask.dto.ExceededTransactionFilter;
+import com.testtask.dto.ExceededTransactionPageDto;
+import com.testtask.dto.ExceededTransactionResponseDto;
 import com.testtask.entity.Limit;
 import com.testtask.entity.Transaction;
+import com.testtask.exception.ExchangeRateProviderException;
+import com.testtask.exception.InvalidRequestException;
+import com.testtask.model.ExceededCursor;
 import com.testtask.model.ExpenseCategory;
 import com.testtask.repository.LimitRepository;
 import com.testtask.repository.TransactionRepository;
@@ -11,14 +18,25 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,6 +51,18 @@ class TransactionServiceTest {
     @Mock
     private ExchangeRateService exchangeRateService;
 
+    @Mock
+    private MonthlySpendService monthlySpendService;
+
+    @Mock
+    private LimitTimeline limitTimeline;
+
+    @Mock
+    private TransactionArchiveService transactionArchiveService;
+
+    @Mock
+    private ProcessingMetrics processingMetrics;
+
     @InjectMocks
     private TransactionService transactionService;
 
@@ -72,6 +102,9 @@ class TransactionServiceTest {
         assertThat(saved.getUsdAmount()).isEqualByComparingTo("1.00");
         assertThat(saved.isLimitExceeded()).isFalse();
         assertThat(saved.getLimit()).isNull();
+        assertThat(saved.getLimitSum()).isEqualByComparingTo("1000.00");
+        assertThat(saved.getLimitDatetime()).isEqualTo(OffsetDateTime.of(2026, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC));
+        assertThat(saved.getLimitCurrency()).isEqualTo("USD");
     }
 
     @Test
@@ -97,6 +130,9 @@ class TransactionServiceTest {
         assertThat(saved.getUsdAmount()).isEqualByComparingTo("2.00");
         assertThat(saved.isLimitExceeded()).isTrue();
         assertThat(saved.getLimit()).isNull();
+        verify(processingMetrics).recordLimitCheck("KZT", ExpenseCategory.PRODUCT, true);
+        verify(processingMetrics).recordStage(eq(ProcessingMetrics.Stage.SPENT_LOOKUP), eq("KZT"), eq(ExpenseCategory.PRODUCT), anyLong());
+        verify(processingMetrics).recordStage(eq(ProcessingMetrics.Stage.SAVE), eq("KZT"), eq(ExpenseCategory.PRODUCT), anyLong());
     }
 
     @Test
@@ -117,10 +153,6 @@ class TransactionServiceTest {
                 eq(ExpenseCategory.PRODUCT), any()))
                 .thenReturn(java.util.Optional.of(limit));
 
-        when(limitRepository.findFirstByCategoryAndLimitDatetimeLessThanOrderByLimitDatetimeDesc(
-                eq(ExpenseCategory.PRODUCT), eq(limit.getLimitDatetime())))
-                .thenReturn(java.util.Optional.empty());
-
         when(transactionRepository.sumUsdAfterLimit(
                 any(), any(), any()))
                 .thenReturn(new BigDecimal("1000.00"));
@@ -135,6 +167,8 @@ class TransactionServiceTest {
         assertThat(saved.getUsdAmount()).isEqualByComparingTo("400.00");
         assertThat(saved.isLimitExceeded()).isFalse();
         assertThat(saved.getLimit()).isEqualTo(limit);
+        assertThat(saved.getLimitSum()).isEqualByComparingTo("1500.00");
+        assertThat(saved.getLimitDatetime()).isEqualTo(limit.getLimitDatetime());
     }
 
     @Test
@@ -155,10 +189,6 @@ class TransactionServiceTest {
                 eq(ExpenseCategory.PRODUCT), any()))
                 .thenReturn(Optional.of(limit));
 
-        when(limitRepository.findFirstByCategoryAndLimitDatetimeLessThanOrderByLimitDatetimeDesc(
-                eq(ExpenseCategory.PRODUCT), eq(limit.getLimitDatetime())))
-                .thenReturn(Optional.empty());
-
         when(transactionRepository.sumUsdAfterLimit(any(), any(), any()))
                 .thenReturn(new BigDecimal("1200.00"));
 
@@ -192,10 +222,6 @@ class TransactionServiceTest {
                 eq(ExpenseCategory.PRODUCT), any()))
                 .thenReturn(Optional.of(limit));
 
-        when(limitRepository.findFirstByCategoryAndLimitDatetimeLessThanOrderByLimitDatetimeDesc(
-                eq(ExpenseCategory.PRODUCT), eq(limit.getLimitDatetime())))
-                .thenReturn(Optional.empty());
-
         when(transactionRepository.sumUsdAfterLimit(any(), any(), any()))
                 .thenReturn(new BigDecimal("1100.00"));
 
@@ -267,10 +293,6 @@ class TransactionServiceTest {
                 eq(ExpenseCategory.PRODUCT), eq(txDate2)))
                 .thenReturn(Optional.of(limit2));
 
-        when(limitRepository.findFirstByCategoryAndLimitDatetimeLessThanOrderByLimitDatetimeDesc(
-                eq(ExpenseCategory.PRODUCT), eq(limit2.getLimitDatetime())))
-                .thenReturn(Optional.of(limit1));
-
         when(transactionRepository.sumUsdAfterLimit(any(), any(), eq(txDate2)))
                 .thenReturn(new BigDecimal("700.00"));
 
@@ -310,10 +332,6 @@ class TransactionServiceTest {
                 any(), eq(txTime)))
                 .thenReturn(Optional.of(newLimit));
 
-        when(limitRepository.findFirstByCategoryAndLimitDatetimeLessThanOrderByLimitDatetimeDesc(
-                any(), eq(newLimit.getLimitDatetime())))
-                .thenReturn(Optional.of(oldLimit));
-
         when(transactionRepository.sumUsdAfterLimit(any(), any(), eq(txTime)))
                 .thenReturn(new BigDecimal("2500.00"));
 
@@ -345,9 +363,6 @@ class TransactionServiceTest {
         when(limitRepository.findFirstByCategoryAndLimitDatetimeLessThanEqualOrderByLimitDatetimeDesc(
                 any(), any())).thenReturn(Optional.of(limit));
 
-        when(limitRepository.findFirstByCategoryAndLimitDatetimeLessThanOrderByLimitDatetimeDesc(
-                any(), any())).thenReturn(Optional.empty());
-
         when(transactionRepository.sumUsdAfterLimit(any(), any(), any()))
                 .thenReturn(new BigDecimal("1100.00"));
 
@@ -379,9 +394,6 @@ class TransactionServiceTest {
         when(limitRepository.findFirstByCategoryAndLimitDatetimeLessThanEqualOrderByLimitDatetimeDesc(
                 any(), any())).thenReturn(Optional.of(limit));
 
-        when(limitRepository.findFirstByCategoryAndLimitDatetimeLessThanOrderByLimitDatetimeDesc(
-                any(), any())).thenReturn(Optional.empty());
-
         when(transactionRepository.sumUsdAfterLimit(any(), any(), any()))
                 .thenReturn(new BigDecimal("1499.99"));
 
@@ -430,10 +442,6 @@ class TransactionServiceTest {
                 eq(ExpenseCategory.PRODUCT), eq(dt1)))
                 .thenReturn(Optional.of(limitJan1));
 
-        when(limitRepository.findFirstByCategoryAndLimitDatetimeLessThanOrderByLimitDatetimeDesc(
-                eq(ExpenseCategory.PRODUCT), eq(limitJan1.getLimitDatetime())))
-                .thenReturn(Optional.empty());
-
         when(transactionRepository.sumUsdAfterLimit(
                 eq(ExpenseCategory.PRODUCT),
                 argThat(d -> d.getDayOfMonth() == 1 && d.getMonthValue() == 1),
@@ -459,10 +467,6 @@ class TransactionServiceTest {
                 eq(ExpenseCategory.PRODUCT), eq(dt2)))
                 .thenReturn(Optional.of(limitJan1));
 
-        when(limitRepository.findFirstByCategoryAndLimitDatetimeLessThanOrderByLimitDatetimeDesc(
-                eq(ExpenseCategory.PRODUCT), eq(limitJan1.getLimitDatetime())))
-                .thenReturn(Optional.empty());
-
         when(transactionRepository.sumUsdAfterLimit(
                 eq(ExpenseCategory.PRODUCT),
                 argThat(d -> d.getDayOfMonth() == 1 && d.getMonthValue() == 1),
@@ -488,10 +492,6 @@ class TransactionServiceTest {
                 eq(ExpenseCategory.PRODUCT), eq(dt3)))
                 .thenReturn(Optional.of(limitJan11));
 
-        when(limitRepository.findFirstByCategoryAndLimitDatetimeLessThanOrderByLimitDatetimeDesc(
-                eq(ExpenseCategory.PRODUCT), eq(limitJan11.getLimitDatetime())))
-                .thenReturn(Optional.of(limitJan1));
-
         when(transactionRepository.sumUsdAfterLimit(
                 eq(ExpenseCategory.PRODUCT),
                 argThat(d -> d.getDayOfMonth() == 1 && d.getMonthValue() == 1),
@@ -528,9 +528,6 @@ class TransactionServiceTest {
         when(limitRepository.findFirstByCategoryAndLimitDatetimeLessThanEqualOrderByLimitDatetimeDesc(any(), any()))
                 .thenReturn(Optional.of(limit));
 
-        when(limitRepository.findFirstByCategoryAndLimitDatetimeLessThanOrderByLimitDatetimeDesc(any(), any()))
-                .thenReturn(Optional.empty());
-
         when(transactionRepository.sumUsdAfterLimit(any(), any(), any()))
                 .thenReturn(new BigDecimal("1100.00"));
 
@@ -568,9 +565,6 @@ class TransactionServiceTest {
         when(limitRepository.findFirstByCategoryAndLimitDatetimeLessThanEqualOrderByLimitDatetimeDesc(any(), eq(changeTime)))
                 .thenReturn(Optional.of(newLimit));
 
-        when(limitRepository.findFirstByCategoryAndLimitDatetimeLessThanOrderByLimitDatetimeDesc(any(), eq(changeTime)))
-                .thenReturn(Optional.of(oldLimit));
-
         when(transactionRepository.sumUsdAfterLimit(any(), any(), eq(changeTime)))
                 .thenReturn(new BigDecimal("2500.00"));
 
@@ -628,9 +622,6 @@ class TransactionServiceTest {
         when(limitRepository.findFirstByCategoryAndLimitDatetimeLessThanEqualOrderByLimitDatetimeDesc(any(), eq(t12.plusSeconds(1))))
                 .thenReturn(Optional.of(lim12));
 
-        when(limitRepository.findFirstByCategoryAndLimitDatetimeLessThanOrderByLimitDatetimeDesc(any(), eq(t12)))
-                .thenReturn(Optional.of(lim11));
-
         when(transactionRepository.sumUsdAfterLimit(any(), any(), any())).thenReturn(BigDecimal.ZERO);
 
         when(transactionRepository.save(any())).thenAnswer(i -> i.getArgument(0));
@@ -716,10 +707,6 @@ class TransactionServiceTest {
                 any(), eq(tx2Time)))
                 .thenReturn(Optional.of(limit2));
 
-        when(limitRepository.findFirstByCategoryAndLimitDatetimeLessThanOrderByLimitDatetimeDesc(
-                any(), eq(limit2Time)))
-                .thenReturn(Optional.of(limit1));
-
         when(transactionRepository.sumUsdAfterLimit(any(), any(), eq(tx2Time)))
                 .thenReturn(new BigDecimal("1000.00"));
 
@@ -735,4 +722,206 @@ class TransactionServiceTest {
         assertThat(saved.isLimitExceeded()).isFalse();
         assertThat(saved.getUsdAmount()).isEqualByComparingTo("3000.00");
     }
+
+    @Test
+    void processAndSaveUsesMonthlyAggregateInsteadOfScan() {
+        OffsetDateTime monthStart = OffsetDateTime.of(2026, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+        when(exchangeRateService.getOrFetchRate(eq("KZT"), any()))
+                .thenReturn(new BigDecimal("500.00"));
+
+        when(limitRepository.findFirstByCategoryAndLimitDatetimeLessThanEqualOrderByLimitDatetimeDesc(
+                any(), any()))
+                .thenReturn(Optional.empty());
+
+        when(monthlySpendService.spentBefore(ExpenseCategory.PRODUCT, monthStart, transaction.getDatetime()))
+                .thenReturn(Optional.of(new BigDecimal("999.50")));
+
+        when(transactionRepository.save(any(Transaction.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        Transaction saved = transactionService.processAndSave(transaction);
+
+        assertThat(saved.isLimitExceeded()).isTrue();
+        verify(transactionRepository, never()).sumUsdAfterLimit(any(), any(), any());
+        verify(monthlySpendService).recordSpend(
+                ExpenseCategory.PRODUCT, monthStart, transaction.getDatetime(), new BigDecimal("1.00"));
+    }
+
+    @Test
+    void processAndSaveReadsLimitsFromLoadedTimeline() {
+        var limit = Limit.builder()
+                .id(1L)
+                .category(ExpenseCategory.PRODUCT)
+                .limitSum(new BigDecimal("1500.00"))
+                .limitDatetime(OffsetDateTime.of(
+                        2026, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC))
+                .currency("USD")
+                .build();
+
+        when(exchangeRateService.getOrFetchRate(eq("KZT"), any()))
+                .thenReturn(new BigDecimal("500.00"));
+
+        when(limitTimeline.isLoaded()).thenReturn(true);
+        when(limitTimeline.applicableAt(ExpenseCategory.PRODUCT, transaction.getDatetime()))
+                .thenReturn(Optional.of(limit));
+        when(transactionRepository.sumUsdAfterLimit(any(), any(), any()))
+                .thenReturn(new BigDecimal("1499.50"));
+
+        when(transactionRepository.save(any(Transaction.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        Transaction saved = transactionService.processAndSave(transaction);
+
+        assertThat(saved.getLimit()).isEqualTo(limit);
+        assertThat(saved.isLimitExceeded()).isTrue();
+        verifyNoInteractions(limitRepository);
+    }
+
+    @Test
+    void processGroupSeesEarlierItemsOfTheSameGroup() {
+        OffsetDateTime first = OffsetDateTime.of(2026, 1, 10, 12, 0, 0, 0, ZoneOffset.UTC);
+        OffsetDateTime second = first.plusHours(1);
+
+        Transaction a = groupItem(first, "300000.00");
+        Transaction b = groupItem(second, "300000.00");
+        Transaction c = groupItem(second, "100000.00");
+
+        when(exchangeRateService.getOrFetchRate(eq("KZT"), any()))
+                .thenReturn(new BigDecimal("500.00"));
+        when(limitRepository.findFirstByCategoryAndLimitDatetimeLessThanEqualOrderByLimitDatetimeDesc(any(), any()))
+                .thenReturn(Optional.empty());
+        when(transactionRepository.sumUsdAfterLimit(any(), any(), eq(first)))
+                .thenReturn(new BigDecimal("100.00"));
+        when(transactionRepository.saveAll(any()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<Transaction> saved = transactionService.processGroup(List.of(a, b, c));
+
+        // 100 + 600 = 700; b: 700 + 600 > 1000; c не видит b (тот же момент): 700 + 200 <= 1000
+        assertThat(saved).extracting(Transaction::isLimitExceeded).containsExactly(false, true, false);
+        verify(exchangeRateService).getOrFetchRate(eq("KZT"), any());
+        verify(monthlySpendService).recordSpend(
+                ExpenseCategory.PRODUCT, OffsetDateTime.of(2026, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC), saved);
+    }
+
+    @Test
+    void processGroupAddsStoredTransactionsInsideTheGroupWindow() {
+        OffsetDateTime first = OffsetDateTime.of(2026, 1, 10, 12, 0, 0, 0, ZoneOffset.UTC);
+        OffsetDateTime last = first.plusDays(1);
+
+        Transaction a = groupItem(first, "50000.00");
+        Transaction b = groupItem(last, "50000.00");
+
+        TransactionRepository.UsdAmountAt stored = new TransactionRepository.UsdAmountAt() {
+            @Override
+            public OffsetDateTime getDatetime() {
+                return first.plusHours(2);
+            }
+
+            @Override
+            public BigDecimal getUsdAmount() {
+                return new BigDecimal("850.00");
+            }
+        };
+
+        when(exchangeRateService.getOrFetchRate(eq("KZT"), any()))
+                .thenReturn(new BigDecimal("500.00"));
+        when(limitRepository.findFirstByCategoryAndLimitDatetimeLessThanEqualOrderByLimitDatetimeDesc(any(), any()))
+                .thenReturn(Optional.empty());
+        when(transactionRepository.sumUsdAfterLimit(any(), any(), eq(first)))
+                .thenReturn(new BigDecimal("100.00"));
+        when(transactionRepository.findUsdAmountsBetween(ExpenseCategory.PRODUCT, first, last))
+                .thenReturn(List.of(stored));
+        when(transactionRepository.saveAll(any()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<Transaction> saved = transactionService.processGroup(List.of(a, b));
+
+        // a: 100 + 100; b: 100 + 100 + 850 + 100 > 1000
+        assertThat(saved).extracting(Transaction::isLimitExceeded).containsExactly(false, true);
+    }
+
+    @Test
+    void exceededPageReturnsCursorOnlyWhenMoreRowsExist() {
+        ExceededTransactionFilter filter = new ExceededTransactionFilter(ExpenseCategory.PRODUCT, null, null, null);
+        Instant newest = Instant.parse("2026-01-20T10:00:00Z");
+
+        when(transactionRepository.findExceededPage(filter, null, 3))
+                .thenReturn(List.of(exceeded(9L, newest), exceeded(8L, newest), exceeded(5L, newest.minusSeconds(60))));
+
+        ExceededTransactionPageDto page = transactionService.getExceededTransactionsPage(filter, null, 2);
+
+        assertThat(page.items()).extracting(ExceededTransactionResponseDto::id).containsExactly(9L, 8L);
+        assertThat(ExceededCursor.decode(page.nextCursor())).isEqualTo(new ExceededCursor(newest, 8L));
+
+        when(transactionRepository.findExceededPage(filter, new ExceededCursor(newest, 8L), 3))
+                .thenReturn(List.of(exceeded(5L, newest.minusSeconds(60))));
+
+        ExceededTransactionPageDto next = transactionService.getExceededTransactionsPage(filter, page.nextCursor(), 2);
+
+        assertThat(next.items()).extracting(ExceededTransactionResponseDto::id).containsExactly(5L);
+        assertThat(next.nextCursor()).isNull();
+    }
+
+    @Test
+    void processAndSaveAsyncSavesWithTheFetchedRate() {
+        TransactionService asyncService = asyncService();
+        when(exchangeRateService.getOrFetchRateAsync("KZT", transaction.getDatetime().toLocalDate()))
+                .thenReturn(Mono.just(new BigDecimal("500.00")));
+        when(transactionRepository.sumUsdAfterLimit(any(), any(), any())).thenReturn(new BigDecimal("999.50"));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Transaction saved = asyncService.processAndSaveAsync(transaction).block();
+
+        assertThat(saved.getUsdAmount()).isEqualByComparingTo("1.00");
+        assertThat(saved.isLimitExceeded()).isTrue();
+        verify(exchangeRateService, never()).getOrFetchRate(any(), any());
+        verify(processingMetrics).recordStage(eq(ProcessingMetrics.Stage.FX_LOOKUP), eq("KZT"), eq(ExpenseCategory.PRODUCT), anyLong());
+    }
+
+    @Test
+    void processAndSaveAsyncSavesNothingWhenRateLookupFails() {
+        TransactionService asyncService = asyncService();
+        when(exchangeRateService.getOrFetchRateAsync(eq("KZT"), any()))
+                .thenReturn(Mono.error(new ExchangeRateProviderException("Alpha Vantage is down", true)));
+
+        assertThatThrownBy(() -> asyncService.processAndSaveAsync(transaction).block())
+                .isInstanceOf(ExchangeRateProviderException.class);
+
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void exceededPageRejectsMalformedCursorAndSize() {
+        ExceededTransactionFilter filter = new ExceededTransactionFilter(null, null, null, null);
+
+        assertThatThrownBy(() -> transactionService.getExceededTransactionsPage(filter, "not-a-cursor", 10))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThatThrownBy(() -> transactionService.getExceededTransactionsPage(filter, null, 0))
+                .isInstanceOf(InvalidRequestException.class);
+        verifyNoInteractions(transactionRepository);
+    }
+
+    private TransactionService asyncService() {
+        return new TransactionService(transactionRepository, limitRepository, exchangeRateService, monthlySpendService,
+                limitTimeline, transactionArchiveService, processingMetrics, Schedulers.immediate(),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+    }
+
+    private ExceededTransactionResponseDto exceeded(long id, Instant datetime) {
+        return new ExceededTransactionResponseDto(id, "123", "456", "KZT", new BigDecimal("500000.00"), "PRODUCT",
+                datetime, new BigDecimal("1000.00"), new BigDecimal("1000.00"), datetime, "USD");
+    }
+
+    private Transaction groupItem(OffsetDateTime datetime, String sum) {
+        return Transaction.builder()
+                .accountFrom("123")
+                .accountTo("456")
+                .currencyShortname("KZT")
+                .sum(new BigDecimal(sum))
+                .expenseCategory(ExpenseCategory.PRODUCT)
+                .datetime(datetime)
+                .build();
+    }
 }
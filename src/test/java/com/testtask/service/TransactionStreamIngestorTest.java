@@ -0,0 +1,119 @@
+package com.testtask.service;
+
+import com.testtask.entity.Transaction;
+import com.testtask.mapper.AppMapperImpl;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionStreamIngestorTest {
+
+    private static final JsonMapper MAPPER = JsonMapper.builder().build();
+
+    private static final String VALID = """
+            {"accountFrom":"1","accountTo":"2","currencyShortname":"KZT","sum":5000.00,"expenseCategory":"PRODUCT","datetime":"2026-01-10T12:00:00+03:00"}""";
+
+    @Mock
+    private TransactionBatchProcessor transactionBatchProcessor;
+
+    private ValidatorFactory validatorFactory;
+    private TransactionStreamIngestor ingestor;
+    private final List<Integer> chunkSizes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        ingestor = new TransactionStreamIngestor(transactionBatchProcessor, new AppMapperImpl(),
+                validatorFactory.getValidator(), MAPPER, 2, 512);
+    }
+
+    @AfterEach
+    void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Test
+    void reportsEveryLineAndProcessesInChunks() throws Exception {
+        AtomicLong ids = new AtomicLong();
+        when(transactionBatchProcessor.processAllSettled(any())).thenAnswer(invocation -> {
+            List<Transaction> chunk = invocation.getArgument(0);
+            chunkSizes.add(chunk.size());
+            return chunk.stream()
+                    .map(transaction -> {
+                        transaction.setId(ids.incrementAndGet());
+                        transaction.setUsdAmount(new BigDecimal("10.00"));
+                        return BatchItemResult.saved(transaction);
+                    })
+                    .toList();
+        });
+
+        String input = String.join("\n",
+                VALID,
+                "",
+                "{not json",
+                VALID.replace("\"KZT\"", "\"KZTX\""),
+                VALID,
+                "x".repeat(2_000),
+                VALID + "\r") + "\n";
+
+        List<JsonNode> results = run(input);
+
+        assertThat(results).extracting(node -> node.get("line").asLong())
+                .containsExactlyInAnyOrder(1L, 3L, 4L, 5L, 6L, 7L);
+        assertThat(result(results, 1).get("id").asLong()).isPositive();
+        assertThat(result(results, 1).get("limitExceeded").asBoolean()).isFalse();
+        assertThat(result(results, 3).get("error").asString()).startsWith("Malformed JSON");
+        assertThat(result(results, 4).get("error").asString()).contains("currencyShortname");
+        assertThat(result(results, 6).get("error").asString()).contains("longer than 512");
+        assertThat(result(results, 7).has("error")).isFalse();
+        assertThat(chunkSizes).containsExactly(2, 1);
+    }
+
+    @Test
+    void reportsFailedItemsFromProcessor() throws Exception {
+        when(transactionBatchProcessor.processAllSettled(any()))
+                .thenAnswer(invocation -> List.of(BatchItemResult.failed("boom")));
+
+        List<JsonNode> results = run(VALID);
+
+        assertThat(results).hasSize(1);
+        assertThat(results.get(0).get("error").asString()).isEqualTo("boom");
+        assertThat(results.get(0).has("id")).isFalse();
+    }
+
+    private List<JsonNode> run(String input) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ingestor.ingest(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output);
+
+        return output.toString(StandardCharsets.UTF_8).lines()
+                .map(MAPPER::readTree)
+                .toList();
+    }
+
+    private static JsonNode result(List<JsonNode> results, long line) {
+        return results.stream()
+                .filter(node -> node.get("line").asLong() == line)
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,180 @@
+package com.testtask.service;
+
+import com.testtask.dto.TransactionRequestDto;
+import com.testtask.entity.Transaction;
+import com.testtask.entity.WalDeadLetter;
+import com.testtask.mapper.AppMapperImpl;
+import com.testtask.model.ExpenseCategory;
+import com.testtask.repository.WalAppliedRepository;
+import com.testtask.repository.WalDeadLetterRepository;
+import com.testtask.wal.SegmentLog;
+import com.testtask.wal.WalRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WalApplierTest {
+
+    private static final OffsetDateTime JANUARY = OffsetDateTime.of(2026, 1, 10, 12, 0, 0, 0, ZoneOffset.UTC);
+
+    @Mock
+    private WalAppliedRepository walAppliedRepository;
+
+    @Mock
+    private WalDeadLetterRepository walDeadLetterRepository;
+
+    @Mock
+    private TransactionService transactionService;
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    private WalApplier applier;
+
+    @BeforeEach
+    void setUp() {
+        applier = new WalApplier(mock(SegmentLog.class), walAppliedRepository, walDeadLetterRepository, transactionService,
+                new AppMapperImpl(), jsonMapper, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                100, Duration.ofMillis(10), 2, Duration.ofMillis(1), Duration.ofMinutes(1), Duration.ofHours(1),
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void skipsRecordsAlreadyAppliedBeforeRestart() throws Exception {
+        when(walAppliedRepository.findAppliedSeqs(1, 3)).thenReturn(List.of(1L, 2L));
+
+        AtomicLong ids = new AtomicLong(100);
+        when(transactionService.processGroup(any())).thenAnswer(invocation -> {
+            List<Transaction> group = invocation.getArgument(0);
+            group.forEach(transaction -> transaction.setId(ids.incrementAndGet()));
+            return group;
+        });
+
+        applier.applyBatch(List.of(record(1, JANUARY), record(2, JANUARY.plusHours(1)), record(3, JANUARY.plusHours(2))));
+
+        verify(transactionService, times(1)).processGroup(any());
+        verify(walAppliedRepository).markApplied(3L, 101L, null);
+        verify(walAppliedRepository, never()).markApplied(eq(1L), any(), any());
+    }
+
+    @Test
+    void movesRecordToDeadLettersAfterMaxAttempts() throws Exception {
+        when(walAppliedRepository.findAppliedSeqs(anyLong(), anyLong())).thenReturn(List.of());
+        when(transactionService.processGroup(any())).thenThrow(new IllegalStateException("No rate"));
+        WalRecord record = record(7, JANUARY);
+
+        applier.applyBatch(List.of(record));
+
+        verify(transactionService, times(2)).processGroup(any());
+        verify(walDeadLetterRepository).insert(eq(7L), eq(record.payload()), eq("No rate"), eq(60.0));
+        verify(walAppliedRepository).markApplied(eq(7L), isNull(), eq("No rate"));
+    }
+
+    @Test
+    void failedGroupIsAppliedOneByOneSoOnlyTheBadRecordIsDeadLettered() throws Exception {
+        when(walAppliedRepository.findAppliedSeqs(anyLong(), anyLong())).thenReturn(List.of());
+        AtomicLong ids = new AtomicLong(100);
+        when(transactionService.processGroup(any())).thenAnswer(invocation -> {
+            List<Transaction> group = invocation.getArgument(0);
+            if (group.stream().anyMatch(transaction -> transaction.getCurrencyShortname().equals("XXX"))) {
+                throw new IllegalArgumentException("Unsupported currency: XXX");
+            }
+            group.forEach(transaction -> transaction.setId(ids.incrementAndGet()));
+            return group;
+        });
+
+        applier.applyBatch(List.of(record(1, JANUARY), record(2, JANUARY.plusHours(1), "XXX"), record(3, JANUARY.plusHours(2))));
+
+        verify(walAppliedRepository).markApplied(1L, 101L, null);
+        verify(walAppliedRepository).markApplied(3L, 102L, null);
+        verify(walDeadLetterRepository).insert(eq(2L), any(), eq("Unsupported currency: XXX"), anyDouble());
+        verify(walDeadLetterRepository, never()).insert(eq(1L), any(), any(), anyDouble());
+        verify(walDeadLetterRepository, never()).insert(eq(3L), any(), any(), anyDouble());
+    }
+
+    @Test
+    void corruptPayloadIsDeadLetteredWithoutBlockingLaterRecords() throws Exception {
+        when(walAppliedRepository.findAppliedSeqs(anyLong(), anyLong())).thenReturn(List.of());
+        when(transactionService.processGroup(any())).thenAnswer(invocation -> {
+            List<Transaction> group = invocation.getArgument(0);
+            group.forEach(transaction -> transaction.setId(200L));
+            return group;
+        });
+        byte[] corrupt = "{\"sum\": ".getBytes(StandardCharsets.UTF_8);
+
+        applier.applyBatch(List.of(new WalRecord(8, corrupt), record(9, JANUARY)));
+
+        verify(walDeadLetterRepository).insert(eq(8L), eq(corrupt), startsWith("Cannot decode WAL record"), anyDouble());
+        verify(walAppliedRepository).markApplied(eq(8L), isNull(), startsWith("Cannot decode WAL record"));
+        verify(walAppliedRepository).markApplied(9L, 200L, null);
+        verify(transactionService, times(1)).processGroup(any());
+    }
+
+    @Test
+    void retriesDeadLettersAndDropsThemOnceApplied() {
+        WalDeadLetter recovered = deadLetter(record(4, JANUARY), 0);
+        WalDeadLetter stillFailing = deadLetter(record(5, JANUARY, "XXX"), 2);
+        when(walDeadLetterRepository.findDue(100)).thenReturn(List.of(recovered, stillFailing));
+        when(transactionService.processGroup(any())).thenAnswer(invocation -> {
+            List<Transaction> group = invocation.getArgument(0);
+            if (group.getFirst().getCurrencyShortname().equals("XXX")) {
+                throw new IllegalArgumentException("Unsupported currency: XXX");
+            }
+            return group;
+        });
+
+        applier.retryDeadLetters();
+
+        verify(walDeadLetterRepository).deleteById(4L);
+        verify(walDeadLetterRepository, never()).deleteById(5L);
+        verify(walDeadLetterRepository).reschedule(5L, "Unsupported currency: XXX", 480.0);
+    }
+
+    @Test
+    void deadLetterDelayDoublesUpToMaximum() {
+        assertThat(applier.deadLetterDelay(1)).isEqualTo(Duration.ofMinutes(2));
+        assertThat(applier.deadLetterDelay(3)).isEqualTo(Duration.ofMinutes(8));
+        assertThat(applier.deadLetterDelay(10)).isEqualTo(Duration.ofHours(1));
+    }
+
+    private static WalDeadLetter deadLetter(WalRecord record, int attempts) {
+        return WalDeadLetter.builder().seq(record.seq()).payload(record.payload()).attempts(attempts).build();
+    }
+
+    private WalRecord record(long seq, OffsetDateTime datetime) {
+        return record(seq, datetime, "KZT");
+    }
+
+    private WalRecord record(long seq, OffsetDateTime datetime, String currency) {
+        TransactionRequestDto dto = new TransactionRequestDto("0000000123", "9999999999", currency,
+                new BigDecimal("1000.00"), ExpenseCategory.PRODUCT, datetime);
+        return new WalRecord(seq, jsonMapper.writeValueAsBytes(dto));
+    }
+}
@@ -0,0 +1,103 @@
+package com.testtask.support;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongFunction;
+
+/**
+ * Нагрузка по открытой модели: запросы уходят с заданной частотой независимо от того, ответил ли сервер
+ * на предыдущие. Задержка считается от запланированного момента отправки, а не от фактического,
+ * поэтому время ожидания в очереди перед перегруженным сервером попадает в гистограмму
+ * (без coordinated omission).
+ */
+public final class OpenLoadGenerator {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final HttpClient client;
+
+    public OpenLoadGenerator(HttpClient client) {
+        this.client = client;
+    }
+
+    public record Result(String scenario, Histogram latency, long sent, long errors, Duration elapsed) {
+
+        public double throughput() {
+            return latency.getTotalCount() / (elapsed.toNanos() / 1e9);
+        }
+
+        public String summary() {
+            return String.format("%s: sent=%d errors=%d throughput=%.1f req/s p50=%.2fms p99=%.2fms p999=%.2fms max=%.2fms",
+                    scenario, sent, errors, throughput(),
+                    latency.getValueAtPercentile(50) / NANOS_PER_MILLI,
+                    latency.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                    latency.getValueAtPercentile(99.9) / NANOS_PER_MILLI,
+                    latency.getMaxValue() / NANOS_PER_MILLI);
+        }
+
+        /**
+         * Распределение в формате .hgrm (значения в миллисекундах), его читает HdrHistogram plotter.
+         */
+        public String percentileDistribution() {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8)) {
+                latency.outputPercentileDistribution(out, NANOS_PER_MILLI);
+            }
+            return bytes.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Отправляет запросы с частотой ratePerSecond в течение duration и ждёт ответов на все отправленные.
+     * Запрос с номером i строится вызовом requests.apply(i); ответ с кодом 4xx/5xx или ошибка считаются ошибкой.
+     */
+    public Result run(String scenario, double ratePerSecond, Duration duration, LongFunction<HttpRequest> requests) {
+
+        Histogram latency = new ConcurrentHistogram(3);
+        AtomicLong errors = new AtomicLong();
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        long durationNanos = duration.toNanos();
+        long sent = 0;
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i * intervalNanos < durationNanos; i++) {
+                long intended = start + i * intervalNanos;
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                HttpRequest request = requests.apply(i);
+                executor.submit(() -> {
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 400) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    } finally {
+                        latency.recordValue(System.nanoTime() - intended);
+                    }
+                });
+                sent++;
+            }
+        }
+
+        return new Result(scenario, latency, sent, errors.get(), Duration.ofNanos(System.nanoTime() - start));
+    }
+}
@@ -0,0 +1,205 @@
+package com.testtask.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Локальная замена Alpha Vantage для тестов: отвечает на FX_DAILY так же, как настоящий API,
+ * и позволяет задать задержку ответа и сценарий отказа.
+ */
+public class StubFxServer implements AutoCloseable {
+
+    public enum Mode {
+        OK,
+        THROTTLED,
+        SERVER_ERROR,
+        INVALID_SYMBOL
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, NavigableMap<LocalDate, BigDecimal>> series = new ConcurrentHashMap<>();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private volatile Duration latency = Duration.ZERO;
+    private volatile Mode mode = Mode.OK;
+
+    private StubFxServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/query", this::handle);
+        server.setExecutor(executor);
+    }
+
+    public static StubFxServer start() {
+        try {
+            StubFxServer stub = new StubFxServer();
+            stub.server.start();
+            return stub;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot start stub FX server", e);
+        }
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public StubFxServer withSeries(String currency, NavigableMap<LocalDate, BigDecimal> closes) {
+        series.put(currency, new TreeMap<>(closes));
+        return this;
+    }
+
+    /**
+     * Детерминированный ряд по рабочим дням: курс случайно блуждает вокруг {@code start}.
+     */
+    public StubFxServer withGeneratedSeries(String currency, LocalDate from, LocalDate to, BigDecimal start) {
+        return withSeries(currency, generateSeries(currency, from, to, start));
+    }
+
+    public static NavigableMap<LocalDate, BigDecimal> generateSeries(String currency, LocalDate from,
+                                                                     LocalDate to, BigDecimal start) {
+        NavigableMap<LocalDate, BigDecimal> closes = new TreeMap<>();
+        Random random = new Random(currency.hashCode());
+        BigDecimal rate = start;
+
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            if (day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                continue;
+            }
+            BigDecimal drift = BigDecimal.valueOf(random.nextGaussian() * 0.004 + 1.0);
+            rate = rate.multiply(drift).setScale(4, RoundingMode.HALF_UP);
+            closes.put(day, rate);
+        }
+        return closes;
+    }
+
+    public StubFxServer latency(Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    public StubFxServer mode(Mode mode) {
+        this.mode = mode;
+        return this;
+    }
+
+    public int requestCount() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try {
+            if (!latency.isZero()) {
+                Thread.sleep(latency);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.close();
+            return;
+        }
+
+        Map<String, String> params = queryParams(exchange.getRequestURI());
+        String currency = params.getOrDefault("to_symbol", "");
+
+        switch (mode) {
+            case THROTTLED -> respond(exchange, 200, """
+                    {"Note": "Thank you for using Alpha Vantage! Our standard API call frequency is 5 calls per minute."}
+                    """);
+            case SERVER_ERROR -> respond(exchange, 503, "Service Unavailable");
+            case INVALID_SYMBOL -> respond(exchange, 200, """
+                    {"Error Message": "Invalid API call. Please retry or visit the documentation for FX_DAILY."}
+                    """);
+            case OK -> {
+                NavigableMap<LocalDate, BigDecimal> closes = series.get(currency);
+                if (closes == null) {
+                    respond(exchange, 200, """
+                            {"Error Message": "Invalid API call. Please retry or visit the documentation for FX_DAILY."}
+                            """);
+                } else {
+                    respond(exchange, 200, dailyPayload(currency, closes, "full".equals(params.get("outputsize"))));
+                }
+            }
+        }
+    }
+
+    public static String dailyPayload(String currency, NavigableMap<LocalDate, BigDecimal> closes, boolean full) {
+        StringBuilder json = new StringBuilder(closes.size() * 160 + 512);
+        json.append("{\"Meta Data\":{")
+                .append("\"1. Information\":\"Forex Daily Prices (open, high, low, close)\",")
+                .append("\"2. From Symbol\":\"USD\",")
+                .append("\"3. To Symbol\":\"").append(currency).append("\",")
+                .append("\"4. Output Size\":\"").append(full ? "Full size" : "Compact").append("\",")
+                .append("\"5. Last Refreshed\":\"").append(closes.isEmpty() ? "" : closes.lastKey()).append("\",")
+                .append("\"6. Time Zone\":\"UTC\"},")
+                .append("\"Time Series FX (Daily)\":{");
+
+        int limit = full ? Integer.MAX_VALUE : 100;
+        int written = 0;
+        for (Map.Entry<LocalDate, BigDecimal> day : closes.descendingMap().entrySet()) {
+            if (written == limit) {
+                break;
+            }
+            if (written++ > 0) {
+                json.append(',');
+            }
+            String close = day.getValue().toPlainString();
+            json.append('"').append(day.getKey()).append("\":{")
+                    .append("\"1. open\":\"").append(close).append("\",")
+                    .append("\"2. high\":\"").append(close).append("\",")
+                    .append("\"3. low\":\"").append(close).append("\",")
+                    .append("\"4. close\":\"").append(close).append("\"}");
+        }
+        return json.append("}}").toString();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> queryParams(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(pair.substring(0, eq), pair.substring(eq + 1));
+            }
+        }
+        return params;
+    }
+}
@@ -0,0 +1,132 @@
+package com.testtask.wal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SegmentLogTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsOnlyDurableRecordsInOrder() throws Exception {
+        try (SegmentLog log = SegmentLog.open(directory, SEGMENT_SIZE, 1)) {
+            long first = log.append(bytes("a"));
+            long second = log.append(bytes("b"));
+            SegmentLog.Reader reader = log.reader(first);
+
+            assertThat(reader.next(10)).isEmpty();
+
+            log.awaitDurable(second);
+            List<WalRecord> records = reader.next(10);
+
+            assertThat(records).extracting(WalRecord::seq).containsExactly(first, second);
+            assertThat(new String(records.get(1).payload(), StandardCharsets.UTF_8)).isEqualTo("b");
+            assertThat(reader.next(10)).isEmpty();
+        }
+    }
+
+    @Test
+    void concurrentAppendersShareFlushes() throws Exception {
+        int appenders = 32;
+        int perAppender = 50;
+        try (SegmentLog log = SegmentLog.open(directory, 1 << 20, 1);
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < appenders; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < perAppender; j++) {
+                        log.awaitDurable(log.append(bytes("record")));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            assertThat(log.durableSeq()).isEqualTo(appenders * perAppender);
+            assertThat(log.flushedRecords()).isEqualTo(appenders * perAppender);
+            assertThat(log.flushes()).isLessThanOrEqualTo(appenders * perAppender);
+            assertThat(log.reader(1).next(appenders * perAppender + 1)).hasSize(appenders * perAppender);
+        }
+    }
+
+    @Test
+    void recoveryStopsAtTornRecordAndContinuesNumbering() throws Exception {
+        Path segment;
+        try (SegmentLog log = SegmentLog.open(directory, SEGMENT_SIZE, 1)) {
+            log.append(bytes("one"));
+            log.append(bytes("two"));
+            log.awaitDurable(log.append(bytes("three")));
+            segment = directory.resolve(String.format("%020d.wal", 1));
+        }
+
+        // Порча последней записи: CRC больше не сходится.
+        int thirdOffset = 2 * SegmentLog.HEADER_SIZE + "one".length() + "two".length();
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(thirdOffset + SegmentLog.HEADER_SIZE);
+            file.write('X');
+        }
+
+        try (SegmentLog log = SegmentLog.open(directory, SEGMENT_SIZE, 1)) {
+            List<WalRecord> records = log.reader(1).next(10);
+
+            assertThat(records).extracting(WalRecord::seq).containsExactly(1L, 2L);
+            assertThat(log.append(bytes("four"))).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void rollsSegmentsAndDeletesFullyAppliedOnes() throws Exception {
+        byte[] payload = new byte[1000];
+        try (SegmentLog log = SegmentLog.open(directory, SEGMENT_SIZE, 1)) {
+            long last = 0;
+            for (int i = 0; i < 10; i++) {
+                last = log.append(payload);
+            }
+            log.awaitDurable(last);
+
+            assertThat(log.segmentCount()).isEqualTo(3);
+            assertThat(log.reader(1).next(20)).hasSize(10);
+
+            log.deleteThrough(6);
+
+            assertThat(log.firstSeq()).isEqualTo(5);
+            assertThat(log.reader(1).next(20)).extracting(WalRecord::seq).containsExactly(5L, 6L, 7L, 8L, 9L, 10L);
+            assertThat(walFiles()).hasSize(2);
+        }
+    }
+
+    @Test
+    void startsAfterMinNextSeqWhenDirectoryIsEmpty() throws Exception {
+        try (SegmentLog log = SegmentLog.open(directory, SEGMENT_SIZE, 42)) {
+            assertThat(log.append(bytes("x"))).isEqualTo(42);
+        }
+    }
+
+    private List<Path> walFiles() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}